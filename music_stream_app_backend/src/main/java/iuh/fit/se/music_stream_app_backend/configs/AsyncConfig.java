@@ -0,0 +1,66 @@
+package iuh.fit.se.music_stream_app_backend.configs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    // Background origin fetches that fill the audio cache; excess work is dropped, not queued forever
+    @Bean(name = "audioFetchExecutor")
+    public ThreadPoolTaskExecutor audioFetchExecutor(
+            @Value("${audio.cache.fill-threads:4}") int threads,
+            @Value("${audio.cache.fill-queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("audio-fetch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    // Next-track prefetch: a couple of low-priority threads, prefetches that do not fit are skipped
+    @Bean(name = "prefetchExecutor")
+    public ThreadPoolTaskExecutor prefetchExecutor(
+            @Value("${audio.prefetch.threads:2}") int threads,
+            @Value("${audio.prefetch.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("audio-prefetch-");
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    // StreamingResponseBody writers: one virtual thread per transfer, capped instead of pooled
+    @Bean(name = "streamingExecutor")
+    public SimpleAsyncTaskExecutor streamingExecutor(
+            @Value("${audio.streaming.max-concurrent:10000}") int maxConcurrent) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("audio-stream-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(maxConcurrent);
+        executor.setRejectTasksWhenLimitReached(true);
+        return executor;
+    }
+
+    // Unified search fan-out: each source query gets its own virtual thread
+    @Bean(name = "searchExecutor")
+    public SimpleAsyncTaskExecutor searchExecutor(
+            @Value("${search.unified.max-concurrent:1000}") int maxConcurrent) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("search-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(maxConcurrent);
+        executor.setRejectTasksWhenLimitReached(true);
+        return executor;
+    }
+}
@@ -0,0 +1,35 @@
+package iuh.fit.se.music_stream_app_backend.configs;
+
+import iuh.fit.se.music_stream_app_backend.utils.BandwidthShaper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /actuator/bandwidth: per-user throughput and throttling delay of users active in the last seconds.
+ */
+@Component
+@Endpoint(id = "bandwidth")
+@RequiredArgsConstructor
+public class BandwidthEndpoint {
+
+    private static final int MAX_USERS = 100;
+
+    private final BandwidthShaper bandwidthShaper;
+
+    @ReadOperation
+    public Map<String, Object> bandwidth() {
+        List<BandwidthShaper.UserStats> active = bandwidthShaper.activeUsers();
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("enabled", bandwidthShaper.isEnabled());
+        body.put("activeUsers", active.size());
+        body.put("users", active.subList(0, Math.min(active.size(), MAX_USERS)));
+        return body;
+    }
+}
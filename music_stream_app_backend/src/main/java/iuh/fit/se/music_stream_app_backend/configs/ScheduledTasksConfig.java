@@ -1,8 +1,15 @@
 package iuh.fit.se.music_stream_app_backend.configs;
 
-import iuh.fit.se.music_stream_app_backend.service.DownloadService;
+import iuh.fit.se.music_stream_app_backend.service.AudioMetadataService;
+import iuh.fit.se.music_stream_app_backend.service.CatalogSearchService;
+import iuh.fit.se.music_stream_app_backend.service.SearchKeyBackfillService;
+import iuh.fit.se.music_stream_app_backend.service.SuggestService;
+import iuh.fit.se.music_stream_app_backend.utils.BandwidthShaper;
+import iuh.fit.se.music_stream_app_backend.utils.DownloadTokenSweeper;
+import iuh.fit.se.music_stream_app_backend.utils.StreamLeaseRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -13,12 +20,63 @@ import org.springframework.scheduling.annotation.Scheduled;
 @Slf4j
 public class ScheduledTasksConfig {
 
-    private final DownloadService downloadService;
+    private final DownloadTokenSweeper downloadTokenSweeper;
+    private final AudioMetadataService audioMetadataService;
+    private final CatalogSearchService catalogSearchService;
+    private final SearchKeyBackfillService searchKeyBackfillService;
+    private final SuggestService suggestService;
+    private final BandwidthShaper bandwidthShaper;
+    private final StreamLeaseRegistry streamLeaseRegistry;
 
-    // Chạy mỗi 30 phút để cleanup expired tokens
-    @Scheduled(fixedRate = 1800000) // 30 minutes in milliseconds
-    public void cleanupExpiredDownloadTokens() {
-        downloadService.cleanupExpiredTokens();
+    @Value("${audio.metadata.backfill-enabled:true}")
+    private boolean metadataBackfillEnabled;
+
+    @Value("${search.keys.backfill-enabled:true}")
+    private boolean searchKeyBackfillEnabled;
+
+    // Expired tokens go through the TTL index, this removes used ones in small batches
+    @Scheduled(initialDelayString = "${download.token.sweep.initial-delay-ms:60000}",
+            fixedDelayString = "${download.token.sweep.interval-ms:300000}")
+    public void sweepDownloadTokens() {
+        downloadTokenSweeper.sweep();
+    }
+
+    // Extract audio metadata for songs added before the extractor existed or whose extraction failed
+    @Scheduled(initialDelayString = "${audio.metadata.backfill-initial-delay-ms:60000}",
+            fixedDelayString = "${audio.metadata.backfill-interval-ms:3600000}")
+    public void backfillAudioMetadata() {
+        if (metadataBackfillEnabled) {
+            audioMetadataService.backfill();
+        }
+    }
+
+    // Drop token buckets of users that stopped downloading
+    @Scheduled(fixedRate = 300000) // 5 minutes
+    public void purgeIdleBandwidthBuckets() {
+        bandwidthShaper.purgeIdle();
     }
-}
 
+    // Expire silent stream leases, then persist the rest so a restart keeps the limits
+    @Scheduled(fixedDelayString = "${download.streams.snapshot-interval-ms:30000}")
+    public void snapshotStreamLeases() {
+        streamLeaseRegistry.expire();
+        streamLeaseRegistry.snapshot();
+    }
+
+    // Catalog writes of other instances only reach this instance's search index and trie on a rebuild
+    @Scheduled(initialDelayString = "${search.index.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${search.index.rebuild-interval-ms:3600000}")
+    public void rebuildSearchIndex() {
+        catalogSearchService.rebuild();
+        suggestService.rebuild();
+    }
+
+    // Search keys for documents saved before they existed; a no-op once the catalog is migrated
+    @Scheduled(initialDelayString = "${search.keys.backfill-initial-delay-ms:30000}",
+            fixedDelayString = "${search.keys.backfill-interval-ms:3600000}")
+    public void backfillSearchKeys() {
+        if (searchKeyBackfillEnabled) {
+            searchKeyBackfillService.backfill();
+        }
+    }
+}
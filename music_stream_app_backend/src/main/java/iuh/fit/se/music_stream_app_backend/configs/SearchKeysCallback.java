@@ -0,0 +1,19 @@
+package iuh.fit.se.music_stream_app_backend.configs;
+
+import iuh.fit.se.music_stream_app_backend.utils.SearchKeys;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recomputes search keys on every save and insert, so no write path can leave them stale.
+ * Partial updates through MongoTemplate must set them themselves when they change a name.
+ */
+@Component
+public class SearchKeysCallback implements BeforeConvertCallback<Object> {
+
+    @Override
+    public Object onBeforeConvert(Object entity, String collection) {
+        SearchKeys.apply(entity);
+        return entity;
+    }
+}
@@ -49,7 +49,8 @@ public class SecurityConfig {
         configuration.setAllowCredentials(true);
 
         // ✅ Cho phép client thấy các header này trong response
-        configuration.setExposedHeaders(Arrays.asList("Authorization", "Content-Type"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "Content-Type",
+                "Accept-Ranges", "Content-Range", "Content-Length", "ETag"));
 
         // ✅ Cache preflight (OPTIONS) trong 1 giờ
         configuration.setMaxAge(3600L);
@@ -73,6 +74,7 @@ public class SecurityConfig {
                         .requestMatchers(securityEndpoints.getPublicEndpointsArray()).permitAll()
 
                         // Role-based endpoints
+                        .requestMatchers(securityEndpoints.getAdminRoleEndpointsArray()).hasRole("ADMIN")
                         .requestMatchers(securityEndpoints.getPremiumRoleEndpointsArray()).hasRole("PREMIUM")
                         .requestMatchers(securityEndpoints.getStandardRoleEndpointsArray()).hasAnyRole("STANDARD", "PREMIUM")
 
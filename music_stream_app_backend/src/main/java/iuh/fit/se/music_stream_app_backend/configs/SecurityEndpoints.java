@@ -24,6 +24,9 @@ public class SecurityEndpoints {
             "/v3/api-docs/**",
             "/swagger-ui.html",
 
+            // Actuator health check
+            "/actuator/health",
+
             // Artists endpoints - public
             "/artists/**",
 
@@ -34,7 +37,10 @@ public class SecurityEndpoints {
 
             "/accounts/upgrade/**",
             "/api/download/**",
-            "/albums/**"
+            "/albums/**",
+
+            // Search - public
+            "/search/**"
 
 
     );
@@ -73,6 +79,12 @@ public class SecurityEndpoints {
             "/premium/**"
     );
 
+    // ADMIN role - tài khoản trong security.admin-emails
+    private final List<String> adminRoleEndpoints = Arrays.asList(
+            // Actuator metrics, bandwidth: lộ userId và lưu lượng của người dùng khác
+            "/actuator/**"
+    );
+
     // ==================== HELPER METHODS ====================
 
     /**
@@ -102,4 +114,11 @@ public class SecurityEndpoints {
     public String[] getPremiumRoleEndpointsArray() {
         return premiumRoleEndpoints.toArray(new String[0]);
     }
+
+    /**
+     * Lấy tất cả admin role endpoints dưới dạng array
+     */
+    public String[] getAdminRoleEndpointsArray() {
+        return adminRoleEndpoints.toArray(new String[0]);
+    }
 }
@@ -1,10 +1,31 @@
 package iuh.fit.se.music_stream_app_backend.configs;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 @EnableSpringDataWebSupport(pageSerializationMode = EnableSpringDataWebSupport.PageSerializationMode.VIA_DTO)
-public class WebConfig {
+public class WebConfig implements WebMvcConfigurer {
 
+    private final AsyncTaskExecutor streamingExecutor;
+    private final long asyncTimeoutMs;
+
+    public WebConfig(@Qualifier("streamingExecutor") AsyncTaskExecutor streamingExecutor,
+                     @Value("${audio.streaming.async-timeout-ms:3600000}") long asyncTimeoutMs) {
+        this.streamingExecutor = streamingExecutor;
+        this.asyncTimeoutMs = asyncTimeoutMs;
+    }
+
+    // StreamingResponseBody (ZIP exports) runs here, released from the request thread;
+    // whole-album exports outlive the 30s container default
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamingExecutor);
+        configurer.setDefaultTimeout(asyncTimeoutMs);
+    }
 }
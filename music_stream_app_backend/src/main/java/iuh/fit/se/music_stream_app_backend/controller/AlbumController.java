@@ -1,6 +1,7 @@
 package iuh.fit.se.music_stream_app_backend.controller;
 
 import iuh.fit.se.music_stream_app_backend.models.Album;
+import iuh.fit.se.music_stream_app_backend.models.enums.SearchMode;
 import iuh.fit.se.music_stream_app_backend.service.AlbumService;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -39,8 +40,9 @@ public class AlbumController {
     }
 
     @GetMapping("/search")
-    public List<Album> findByAlbumName(@RequestParam String name) {
-        return albumService.findAlbumByName(name);
+    public List<Album> findByAlbumName(@RequestParam String name,
+                                       @RequestParam(defaultValue = "prefix") String mode) {
+        return albumService.findAlbumByName(name, SearchMode.fromValue(mode));
     }
 
     @PutMapping("/update/{id}")
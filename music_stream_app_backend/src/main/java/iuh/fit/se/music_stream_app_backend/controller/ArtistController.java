@@ -1,6 +1,7 @@
 package iuh.fit.se.music_stream_app_backend.controller;
 
 import iuh.fit.se.music_stream_app_backend.models.Artist;
+import iuh.fit.se.music_stream_app_backend.models.enums.SearchMode;
 import iuh.fit.se.music_stream_app_backend.service.ArtistService;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -36,11 +37,12 @@ public class ArtistController {
     @GetMapping("/search")
     public Page<Artist> getArtistsByName(
             @RequestParam String name,
+            @RequestParam(defaultValue = "prefix") String mode,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size
     ) {
         Pageable pageable = PageRequest.of(page, size);
-        return artistService.findArtistByName(name, pageable);
+        return artistService.findArtistByName(name, SearchMode.fromValue(mode), pageable);
     }
 
     // 🟢 Thêm nghệ sĩ mới
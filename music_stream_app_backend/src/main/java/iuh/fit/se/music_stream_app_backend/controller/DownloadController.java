@@ -1,10 +1,27 @@
 package iuh.fit.se.music_stream_app_backend.controller;
 
+import iuh.fit.se.music_stream_app_backend.dto.request.BatchDownloadTokenRequest;
 import iuh.fit.se.music_stream_app_backend.dto.request.GenerateDownloadTokenRequest;
+import iuh.fit.se.music_stream_app_backend.dto.response.BatchDownloadTokenResponse;
 import iuh.fit.se.music_stream_app_backend.dto.response.DownloadTokenResponse;
+import iuh.fit.se.music_stream_app_backend.exception.BadRequestException;
+import iuh.fit.se.music_stream_app_backend.exception.ResourceNotFoundException;
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.service.AudioIndexService;
 import iuh.fit.se.music_stream_app_backend.service.DownloadService;
+import iuh.fit.se.music_stream_app_backend.service.HlsService;
+import iuh.fit.se.music_stream_app_backend.service.PrefetchService;
+import iuh.fit.se.music_stream_app_backend.service.ZipExportService;
+import iuh.fit.se.music_stream_app_backend.utils.PinnedFileResource;
+import iuh.fit.se.music_stream_app_backend.utils.AccountTypeCache;
+import iuh.fit.se.music_stream_app_backend.utils.AudioResponseWriter;
+import iuh.fit.se.music_stream_app_backend.utils.BandwidthShaper;
+import iuh.fit.se.music_stream_app_backend.utils.DownloadUrlSigner;
+import iuh.fit.se.music_stream_app_backend.utils.StreamLeaseRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
@@ -13,10 +30,14 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/api/download")
@@ -24,7 +45,20 @@ import java.nio.charset.StandardCharsets;
 @Tag(name = "Download Controller", description = "APIs for PREMIUM users to download songs securely")
 public class DownloadController {
 
+    private static final MediaType AUDIO_MPEG = MediaType.parseMediaType("audio/mpeg");
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+    // Browsers open <audio> playback with "bytes=0-" rather than without a Range header
+    private static final Pattern OPENING_RANGE = Pattern.compile("bytes=\\s*0-.*");
+
     private final DownloadService downloadService;
+    private final ZipExportService zipExportService;
+    private final HlsService hlsService;
+    private final AudioIndexService audioIndexService;
+    private final PrefetchService prefetchService;
+    private final AudioResponseWriter audioResponseWriter;
+    private final BandwidthShaper bandwidthShaper;
+    private final StreamLeaseRegistry streamLeaseRegistry;
+    private final AccountTypeCache accountTypeCache;
 
     @PostMapping("/token")
     @Operation(
@@ -43,60 +77,311 @@ public class DownloadController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/token/batch")
+    @Operation(
+        summary = "Generate download tokens in batch",
+        description = "Generate one-time download tokens for every song of an album, a playlist or a list of song ids "
+                + "in a single request. Provide exactly one of albumId, playlistId or songIds (max 500 songs)."
+    )
+    public ResponseEntity<BatchDownloadTokenResponse> generateBatchDownloadTokens(
+            @RequestBody BatchDownloadTokenRequest request) {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String userId = authentication.getName();
+
+        BatchDownloadTokenResponse response = downloadService.generateBatchDownloadTokens(userId, request);
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/zip/album/{albumId}")
+    @Operation(
+        summary = "Download album as ZIP",
+        description = "Stream a ZIP of all tracks of an album for PREMIUM users."
+    )
+    public ResponseEntity<StreamingResponseBody> downloadAlbumZip(@PathVariable String albumId) {
+        BatchDownloadTokenRequest request = new BatchDownloadTokenRequest();
+        request.setAlbumId(albumId);
+        return zipResponse("album_" + albumId, request);
+    }
+
+    @GetMapping("/zip/playlist/{playlistId}")
+    @Operation(
+        summary = "Download playlist as ZIP",
+        description = "Stream a ZIP of all tracks of a playlist for PREMIUM users."
+    )
+    public ResponseEntity<StreamingResponseBody> downloadPlaylistZip(@PathVariable String playlistId) {
+        BatchDownloadTokenRequest request = new BatchDownloadTokenRequest();
+        request.setPlaylistId(playlistId);
+        return zipResponse("playlist_" + playlistId, request);
+    }
+
+    private ResponseEntity<StreamingResponseBody> zipResponse(String name, BatchDownloadTokenRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String userId = authentication.getName();
+
+        // Entitlement and song lookup happen before the response starts, so errors keep their status
+        List<Song> songs = downloadService.getDownloadableSongs(userId, request);
+
+        StreamingResponseBody body = out -> zipExportService.writeZip(songs,
+                bandwidthShaper.throttle(out, userId, BandwidthShaper.Priority.BULK));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + ".zip\"")
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache, no-store, must-revalidate")
+                .header("X-Content-Type-Options", "nosniff")
+                .body(body);
+    }
+
     @GetMapping("/{token}")
     @Operation(
         summary = "Download song file",
-        description = "Download song using a valid one-time token. Token can only be used once and expires in 15 minutes."
+        description = "Download song using a valid one-time token. Token can only be used once and expires in 15 minutes. "
+                + "In content-addressed or origin-redirect delivery mode this redirects to the content or signed origin URL."
     )
-    public ResponseEntity<Resource> downloadFile(@PathVariable String token) throws IOException {
+    public void downloadFile(@PathVariable String token,
+                             HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
 
         // Get current user ID from security context
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String userId = authentication.getName();
 
-        Resource resource = downloadService.downloadFile(token, userId);
+        Song song = downloadService.redeemDownload(token, userId);
 
-        // Get filename from resource
-        String filename = resource.getFilename();
-        if (filename == null) {
-            filename = "song_" + System.currentTimeMillis() + ".mp3";
+        String redirectUrl = downloadService.redirectUrl(song, true);
+        if (redirectUrl != null) {
+            redirect(redirectUrl, response);
+            return;
         }
 
-        // Encode filename for Content-Disposition header
-        String encodedFilename = URLEncoder.encode(filename, StandardCharsets.UTF_8)
-                .replaceAll("\\+", "%20");
+        Resource resource = downloadService.openStream(song);
+        try {
+            // Get filename from resource
+            String filename = resource.getFilename();
+            if (filename == null) {
+                filename = "song_" + System.currentTimeMillis() + ".mp3";
+            }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=\"" + filename + "\"; filename*=UTF-8''" + encodedFilename)
-                .header(HttpHeaders.CACHE_CONTROL, "no-cache, no-store, must-revalidate")
-                .header(HttpHeaders.PRAGMA, "no-cache")
-                .header(HttpHeaders.EXPIRES, "0")
-                .header("X-Content-Type-Options", "nosniff")
-                .body(resource);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, attachment(filename));
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache, no-store, must-revalidate");
+            response.setHeader(HttpHeaders.PRAGMA, "no-cache");
+            response.setHeader(HttpHeaders.EXPIRES, "0");
+            response.setHeader("X-Content-Type-Options", "nosniff");
+
+            // Downloads are bulk traffic, shaped below streaming playback
+            audioResponseWriter.write(resource, MediaType.APPLICATION_OCTET_STREAM, request,
+                    bandwidthShaper.throttle(response, userId, BandwidthShaper.Priority.BULK));
+        } finally {
+            // A sendfile still to come is covered by the cache's release grace
+            PinnedFileResource.release(resource);
+        }
+    }
+
+    @GetMapping("/content/{contentHash}/{key}")
+    @Operation(
+        summary = "Content-addressed audio",
+        description = "Audio bytes addressed by their SHA-256 hash and a server-issued key. The bytes behind a hash never "
+                + "change, so the response is publicly cacheable forever; authorization happens on the token URL that "
+                + "redirects here."
+    )
+    public void contentFile(@PathVariable String contentHash,
+                            @PathVariable String key,
+                            HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        writeContent(contentHash, key, false, request, response);
+    }
+
+    @GetMapping("/content/{contentHash}/{key}/attachment")
+    @Operation(
+        summary = "Content-addressed audio download",
+        description = "Same bytes as the content-addressed audio, sent as a file download."
+    )
+    public void contentAttachment(@PathVariable String contentHash,
+                                  @PathVariable String key,
+                                  HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
+        writeContent(contentHash, key, true, request, response);
+    }
+
+    // No client-supplied parameters reach the response, so each song has exactly two cacheable variants
+    private void writeContent(String contentHash, String key, boolean attachment,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!CONTENT_HASH.matcher(contentHash).matches()) {
+            throw new ResourceNotFoundException("Song", "contentHash", contentHash);
+        }
+        Song song = downloadService.findByContentHash(contentHash, key);
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        Resource resource = downloadService.openStream(song);
+        try {
+            String filename = resource.getFilename();
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    attachment && filename != null ? attachment(filename) : "inline");
+            audioResponseWriter.write(resource, AUDIO_MPEG, null, "\"" + contentHash + "\"", request, response);
+        } finally {
+            PinnedFileResource.release(resource);
+        }
     }
 
     @GetMapping("/stream/{token}")
     @Operation(
         summary = "Stream song file",
-        description = "Stream song using a valid token for preview. Token can only be used once."
+        description = "Stream song using a valid token. Supports Range/If-Range requests (206 Partial Content) "
+                + "so players can seek and resume until the token expires. "
+                + "Pass t (seconds) to start playback at that time instead of a byte Range. "
+                + "Pass playlistId or albumId to let the server prefetch the next tracks."
     )
-    public ResponseEntity<Resource> streamFile(@PathVariable String token) throws IOException {
+    public void streamFile(@PathVariable String token,
+                           @RequestParam(value = "t", required = false) Double t,
+                           @RequestParam(value = "playlistId", required = false) String playlistId,
+                           @RequestParam(value = "albumId", required = false) String albumId,
+                           HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
 
         // Get current user ID from security context
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String userId = authentication.getName();
 
-        Resource resource = downloadService.downloadFile(token, userId);
+        Song song = downloadService.authorizeStream(token, userId);
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType("audio/mpeg"))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
-                .header(HttpHeaders.CACHE_CONTROL, "no-cache, no-store, must-revalidate")
-                .header(HttpHeaders.PRAGMA, "no-cache")
-                .header(HttpHeaders.EXPIRES, "0")
-                .body(resource);
+        // One lease per (user, song): Range requests of the same player share it
+        StreamLeaseRegistry.Lease lease =
+                streamLeaseRegistry.acquire(userId, accountTypeCache.get(userId), song.getSongId());
+        boolean redirected = false;
+        try {
+            // Only the opening request of a play triggers prefetching, not every Range request after it
+            if (opensPlayback(request)) {
+                prefetchService.prefetchNext(song, playlistId, albumId);
+            }
+
+            // Redirect modes: range requests go straight to the cacheable or origin URL (time seeks are served here)
+            String redirectUrl = t == null ? downloadService.redirectUrl(song, false) : null;
+            if (redirectUrl != null) {
+                redirect(redirectUrl, response);
+                redirected = true;
+                return;
+            }
+
+            // Time seek: resolved to a frame boundary through the song's seek index
+            String range = null;
+            if (t != null) {
+                if (!Double.isFinite(t) || t < 0) {
+                    throw new BadRequestException("t must be a finite, non-negative number of seconds");
+                }
+                range = "bytes=" + audioIndexService.byteOffsetAt(song, t) + "-";
+            }
+
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline");
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache, no-store, must-revalidate");
+            response.setHeader(HttpHeaders.PRAGMA, "no-cache");
+            response.setHeader(HttpHeaders.EXPIRES, "0");
+
+            Resource resource = downloadService.openStream(song);
+            try {
+                audioResponseWriter.write(resource, AUDIO_MPEG, range, null, request,
+                        bandwidthShaper.throttle(response, userId, BandwidthShaper.Priority.STREAM));
+            } finally {
+                PinnedFileResource.release(resource);
+            }
+        } finally {
+            // Playback from the redirect target is out of sight, so its slot is held for longer
+            if (redirected) {
+                streamLeaseRegistry.releaseDetached(lease);
+            } else {
+                streamLeaseRegistry.release(lease);
+            }
+        }
+    }
+
+    @PostMapping("/stream/{token}/heartbeat")
+    @Operation(
+        summary = "Stream heartbeat",
+        description = "Keeps the concurrent-stream slot of a song that is playing from the player's buffer "
+                + "without issuing requests. Slots expire when neither requests nor heartbeats arrive."
+    )
+    public ResponseEntity<Void> streamHeartbeat(@PathVariable String token) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Song song = downloadService.authorizeStream(token, authentication.getName());
+
+        streamLeaseRegistry.heartbeat(authentication.getName(), song.getSongId());
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/hls/{token}/playlist.m3u8")
+    @Operation(
+        summary = "HLS playlist",
+        description = "HLS media playlist for a song, split on MP3 frame boundaries into segments of a few seconds. "
+                + "Segment URLs carry a signed grant for this user that expires with the token."
+    )
+    public ResponseEntity<String> hlsPlaylist(@PathVariable String token) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String userId = authentication.getName();
+        DownloadService.HlsAccess access = downloadService.authorizeHls(token, userId);
+        Song song = access.song();
+
+        StreamLeaseRegistry.Lease lease =
+                streamLeaseRegistry.acquire(userId, accountTypeCache.get(userId), song.getSongId());
+        try {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/vnd.apple.mpegurl"))
+                    .header(HttpHeaders.CACHE_CONTROL, "private, no-store")
+                    .body(hlsService.getPlaylist(song, access.segmentGrant()));
+        } finally {
+            // The player comes back for segments only every few seconds
+            streamLeaseRegistry.releaseDetached(lease);
+        }
+    }
+
+    @GetMapping("/hls/segments/{grant}/{key}/{index}.mp3")
+    @Operation(
+        summary = "HLS segment",
+        description = "One packed-audio MP3 segment of an HLS playlist, cut from the audio cache. Authorized by the "
+                + "grant in its URL, counted as the user's stream and shaped like stream traffic."
+    )
+    public void hlsSegment(@PathVariable String grant,
+                           @PathVariable String key,
+                           @PathVariable int index,
+                           HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        DownloadUrlSigner.Claims claims = downloadService.authorizeSegment(grant);
+        String userId = claims.userId();
+
+        StreamLeaseRegistry.Lease lease =
+                streamLeaseRegistry.acquire(userId, accountTypeCache.get(userId), claims.songId());
+        try {
+            Resource segment = hlsService.getSegment(claims.songId(), key, index);
+
+            // Per-user URL: the player may reuse the bytes until the grant expires, shared caches may not
+            long maxAge = Math.max(0, claims.expiresAtEpochSeconds() - Instant.now().getEpochSecond());
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=" + maxAge);
+            audioResponseWriter.write(segment, AUDIO_MPEG, null, "\"" + key + "-" + index + "\"", request,
+                    bandwidthShaper.throttle(response, userId, BandwidthShaper.Priority.STREAM));
+        } finally {
+            streamLeaseRegistry.releaseDetached(lease);
+        }
+    }
+
+    private boolean opensPlayback(HttpServletRequest request) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        return range == null || OPENING_RANGE.matcher(range.trim()).matches();
+    }
+
+    // Token URLs are short-lived and per-user, only the redirect target may be cached
+    private void redirect(String location, HttpServletResponse response) {
+        response.setStatus(HttpServletResponse.SC_FOUND);
+        response.setHeader(HttpHeaders.LOCATION, location);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
     }
-}
 
+    private String attachment(String filename) {
+        // Encode filename for Content-Disposition header
+        String encodedFilename = URLEncoder.encode(filename, StandardCharsets.UTF_8)
+                .replaceAll("\\+", "%20");
+        String asciiFilename = filename.replaceAll("[^\\x20-\\x7E]|[\"\\\\]", "_");
+        return "attachment; filename=\"" + asciiFilename + "\"; filename*=UTF-8''" + encodedFilename;
+    }
+}
@@ -0,0 +1,52 @@
+package iuh.fit.se.music_stream_app_backend.controller;
+
+import iuh.fit.se.music_stream_app_backend.dto.response.SearchResponse;
+import iuh.fit.se.music_stream_app_backend.dto.response.SuggestionResponse;
+import iuh.fit.se.music_stream_app_backend.service.SuggestService;
+import iuh.fit.se.music_stream_app_backend.service.UnifiedSearchService;
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/search")
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@RequiredArgsConstructor
+public class SearchController {
+
+    SuggestService suggestService;
+    UnifiedSearchService unifiedSearchService;
+
+    @GetMapping
+    @Operation(
+        summary = "Search songs, artists and albums",
+        description = "One ranked list over all three, by match quality and popularity. Accent-insensitive "
+                + "and typo-tolerant. partial=true when a source did not answer in time; missing lists which."
+    )
+    public SearchResponse search(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        return unifiedSearchService.search(q, limit);
+    }
+
+    @GetMapping("/suggest")
+    @Operation(
+        summary = "Autocomplete",
+        description = "Most popular songs, artists and albums having a word that starts with q. "
+                + "Accent-insensitive, meant to be called on every keystroke."
+    )
+    public List<SuggestionResponse> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return suggestService.suggest(q, Math.max(1, limit));
+    }
+}
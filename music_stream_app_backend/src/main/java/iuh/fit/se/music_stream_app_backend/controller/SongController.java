@@ -1,16 +1,28 @@
 package iuh.fit.se.music_stream_app_backend.controller;
 
 import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.models.enums.SearchMode;
+import iuh.fit.se.music_stream_app_backend.service.PreviewService;
 import iuh.fit.se.music_stream_app_backend.service.SongService;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -20,6 +32,11 @@ import java.util.List;
 public class SongController {
 
     SongService songService;
+    PreviewService previewService;
+
+    @Value("${audio.preview.max-age-seconds:86400}")
+    @NonFinal
+    long previewMaxAgeSeconds;
 
     @GetMapping
     public Page<Song> getAllSongs(
@@ -35,14 +52,45 @@ public class SongController {
         return songService.findSongById(id);
     }
 
+    // Public and token-free: the clip is the same for every user, so browsers and CDNs may cache it
+    @GetMapping("/{id}/preview")
+    public ResponseEntity<Resource> getSongPreview(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "30") int seconds,
+            WebRequest request
+    ) {
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(previewMaxAgeSeconds)).cachePublic();
+
+        // Other lengths are sent to the served one, so caches hold one entry per clip, not per query
+        int clipSeconds = previewService.clipSeconds(seconds);
+        if (clipSeconds != seconds) {
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(URI.create("preview?seconds=" + clipSeconds))
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+
+        PreviewService.PreviewClip clip = previewService.getPreview(id, clipSeconds);
+        if (request.checkNotModified(clip.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("audio/mpeg"))
+                .cacheControl(cacheControl)
+                .eTag(clip.etag())
+                .header("X-Preview-Duration", String.valueOf(clip.durationSeconds()))
+                .body(new ByteArrayResource(clip.data()));
+    }
+
     @GetMapping("/search")
     public Page<Song> getSongsByName(
             @RequestParam String name,
+            @RequestParam(defaultValue = "prefix") String mode,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size
     ) {
         Pageable pageable = PageRequest.of(page, size);
-        return songService.getSongsByName(name, pageable);
+        return songService.getSongsByName(name, SearchMode.fromValue(mode), pageable);
     }
 
     @PostMapping("/artist")
@@ -56,8 +104,9 @@ public class SongController {
     }
 
     @GetMapping("/album/{albumName}")
-    public List<Song> getSongsByAlbum(@PathVariable String albumName) {
-        return songService.getSongsByAlbumName(albumName);
+    public List<Song> getSongsByAlbum(@PathVariable String albumName,
+                                      @RequestParam(defaultValue = "prefix") String mode) {
+        return songService.getSongsByAlbumName(albumName, SearchMode.fromValue(mode));
     }
 
     @PostMapping
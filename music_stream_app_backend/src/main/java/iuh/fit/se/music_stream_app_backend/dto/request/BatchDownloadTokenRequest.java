@@ -0,0 +1,17 @@
+package iuh.fit.se.music_stream_app_backend.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchDownloadTokenRequest {
+    // Exactly one of these must be set
+    private String albumId;
+    private String playlistId;
+    private List<String> songIds;
+}
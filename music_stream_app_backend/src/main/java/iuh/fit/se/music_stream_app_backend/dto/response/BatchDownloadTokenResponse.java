@@ -0,0 +1,19 @@
+package iuh.fit.se.music_stream_app_backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchDownloadTokenResponse {
+    private int count;
+    private int skipped; // songs without an audio file
+    private String expiresAt;
+    private List<DownloadTokenResponse> tokens;
+}
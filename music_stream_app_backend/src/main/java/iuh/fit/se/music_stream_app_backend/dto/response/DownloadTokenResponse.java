@@ -16,5 +16,7 @@ public class DownloadTokenResponse {
     private String songTitle;
     private String artist;
     private long fileSizeBytes;
+    private Integer bitrateKbps;
+    private double durationSeconds;
 }
 
@@ -0,0 +1,19 @@
+package iuh.fit.se.music_stream_app_backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SearchResponse {
+    private String query;
+    private List<SearchResultResponse> results;
+    private boolean partial; // some source did not answer before the deadline
+    private List<String> missing; // song | artist | album sources left out
+}
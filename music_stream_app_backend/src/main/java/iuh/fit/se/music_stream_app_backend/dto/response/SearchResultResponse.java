@@ -0,0 +1,18 @@
+package iuh.fit.se.music_stream_app_backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SearchResultResponse {
+    private String type; // song | artist | album
+    private String id;
+    private String text; // display name, with accents
+    private double score; // relevance to the query, boosted by popularity
+    private Object item; // the Song, Artist or Album
+}
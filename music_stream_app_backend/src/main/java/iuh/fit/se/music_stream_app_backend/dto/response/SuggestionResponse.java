@@ -0,0 +1,17 @@
+package iuh.fit.se.music_stream_app_backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SuggestionResponse {
+    private String type; // song | artist | album
+    private String id;
+    private String text; // display name, with accents
+    private long score; // listens + likes, followers, or listens + favourites
+}
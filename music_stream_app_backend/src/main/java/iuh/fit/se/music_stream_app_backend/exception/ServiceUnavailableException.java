@@ -0,0 +1,7 @@
+package iuh.fit.se.music_stream_app_backend.exception;
+
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package iuh.fit.se.music_stream_app_backend.exception;
+
+public class TooManyStreamsException extends RuntimeException {
+    public TooManyStreamsException(String message) {
+        super(message);
+    }
+}
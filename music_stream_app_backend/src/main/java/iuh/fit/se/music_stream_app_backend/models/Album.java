@@ -1,9 +1,11 @@
 package iuh.fit.se.music_stream_app_backend.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import iuh.fit.se.music_stream_app_backend.dto.embedded.SongEmbedded;
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -31,4 +33,12 @@ public class Album {
     private String image;
     private List<String> artists;
     private List<SongEmbedded> songs;
+
+    // Accent-folded search keys, derived from albumName on every save (SearchKeysCallback)
+    @JsonIgnore
+    @Indexed
+    private String albumNameFolded;
+    @JsonIgnore
+    @Indexed
+    private List<String> searchTokens;
 }
@@ -1,10 +1,12 @@
 package iuh.fit.se.music_stream_app_backend.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import iuh.fit.se.music_stream_app_backend.dto.embedded.AlbumEmbedded;
 import iuh.fit.se.music_stream_app_backend.dto.embedded.SongEmbedded;
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -30,4 +32,12 @@ public class Artist {
     private List<AlbumEmbedded> albums;
     private List<SongEmbedded> songs;
     private long followers;
+
+    // Accent-folded search keys, derived from artistName on every save (SearchKeysCallback)
+    @JsonIgnore
+    @Indexed
+    private String artistNameFolded;
+    @JsonIgnore
+    @Indexed
+    private List<String> searchTokens;
 }
@@ -5,12 +5,21 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.time.LocalDateTime;
 
 @Document(collection = "download_tokens")
+@CompoundIndexes({
+        // Serves findByTokenAndUsedFalseAndExpiresAtAfter
+        @CompoundIndex(name = "token_used_expires_at", def = "{'token': 1, 'used': 1, 'expires_at': 1}"),
+        // Serves the sweeper's scan for used tokens
+        @CompoundIndex(name = "used_used_at", def = "{'used': 1, 'used_at': 1}")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -31,7 +40,9 @@ public class DownloadToken {
     @Field("created_at")
     private LocalDateTime createdAt;
 
+    // Mongo's TTL monitor removes tokens once expired (checked about once a minute)
     @Field("expires_at")
+    @Indexed(name = "expires_at_ttl", expireAfter = "0s")
     private LocalDateTime expiresAt;
 
     @Field("used")
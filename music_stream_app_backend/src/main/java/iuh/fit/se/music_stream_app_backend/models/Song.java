@@ -1,12 +1,15 @@
 package iuh.fit.se.music_stream_app_backend.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import iuh.fit.se.music_stream_app_backend.dto.embedded.AlbumEmbedded;
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Document(collection = "songs")
@@ -35,4 +38,22 @@ public class Song {
     private AlbumEmbedded album;
 
     private List<String> artist;
+
+    // Audio metadata, filled by the extractor at ingest (null until extracted)
+    private Long fileSizeBytes;
+    private Integer bitrateKbps;
+    @Indexed(sparse = true)
+    private String contentHash;
+    private LocalDateTime metadataExtractedAt;
+
+    // Accent-folded search keys, derived from title and album name on every save (SearchKeysCallback)
+    @JsonIgnore
+    @Indexed
+    private String titleFolded;
+    @JsonIgnore
+    @Indexed
+    private List<String> searchTokens;
+    @JsonIgnore
+    @Indexed
+    private List<String> albumTokens;
 }
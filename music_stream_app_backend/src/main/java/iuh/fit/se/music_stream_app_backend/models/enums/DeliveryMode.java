@@ -0,0 +1,31 @@
+package iuh.fit.se.music_stream_app_backend.models.enums;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Arrays;
+
+/**
+ * How authorized audio bytes reach the client.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+@Getter
+public enum DeliveryMode {
+    // Bytes served by the token URL itself, never cached by intermediaries
+    DIRECT("direct"),
+    // Token URL redirects to an immutable, publicly cacheable URL addressed by the content hash
+    CONTENT_ADDRESSED("content-addressed"),
+    // Token URL redirects to a short-lived signed origin URL, bytes never pass through the JVM
+    ORIGIN_REDIRECT("origin-redirect");
+    String value;
+
+    public static DeliveryMode fromValue(String value) {
+        return Arrays.stream(values())
+                .filter(mode -> mode.value.equalsIgnoreCase(value.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown delivery mode: " + value));
+    }
+}
@@ -0,0 +1,29 @@
+package iuh.fit.se.music_stream_app_backend.models.enums;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Arrays;
+
+/**
+ * How a name search is matched in MongoDB.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@AllArgsConstructor
+@Getter
+public enum SearchMode {
+    // Anchored prefix on the folded (lower-case, accent-free) field, served by its index
+    PREFIX("prefix"),
+    // Substring anywhere in the displayed name, case-insensitive: scans, only on request
+    CONTAINS("contains");
+    String value;
+
+    public static SearchMode fromValue(String value) {
+        return Arrays.stream(values())
+                .filter(mode -> mode.value.equalsIgnoreCase(value.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown search mode: " + value));
+    }
+}
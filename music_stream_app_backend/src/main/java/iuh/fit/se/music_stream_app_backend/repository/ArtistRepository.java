@@ -1,14 +1,9 @@
 package iuh.fit.se.music_stream_app_backend.repository;
 
 import iuh.fit.se.music_stream_app_backend.models.Artist;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
-import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ArtistRepository extends MongoRepository<Artist, String> {
-    @Query(value = "{'artistName': {$regex: ?0, $options: 'i'}}")
-    Page<Artist> findByArtistNameRegex(String regex, Pageable pageable);
 }
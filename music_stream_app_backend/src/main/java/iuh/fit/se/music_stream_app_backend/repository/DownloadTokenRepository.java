@@ -10,7 +10,5 @@ import java.util.Optional;
 @Repository
 public interface DownloadTokenRepository extends MongoRepository<DownloadToken, String> {
     Optional<DownloadToken> findByTokenAndUsedFalseAndExpiresAtAfter(String token, LocalDateTime now);
-
-    void deleteByExpiresAtBefore(LocalDateTime now);
 }
 
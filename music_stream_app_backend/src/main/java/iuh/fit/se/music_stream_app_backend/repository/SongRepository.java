@@ -7,16 +7,20 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface SongRepository extends MongoRepository<Song, String> {
-    @Query(value = "{'album.albumName': {$regex: ?0, $options: 'i'}}")
-    List<Song> findByAlbumNameRegex(String regex);
+    @Query(value = "{'album.albumName': ?0}")
+    List<Song> findByAlbumName(String albumName);
+
+    @Query(value = "{'album.albumName': ?0, 'title': {$in: ?1}}")
+    List<Song> findByAlbumNameAndTitleIn(String albumName, Collection<String> titles);
 
     @Query("{'artist': {$in: ?0}}")
     Page<Song> getSongsByArtistIn(List<String> artistNames, Pageable pageable);
 
-    @Query(value = "{'title': {$regex: ?0, $options: 'i'}}")
-    Page<Song> findByTitleRegex(String regex, Pageable pageable);
+    Optional<Song> findFirstByContentHash(String contentHash);
 }
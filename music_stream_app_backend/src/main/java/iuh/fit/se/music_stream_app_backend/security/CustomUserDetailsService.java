@@ -3,6 +3,8 @@ package iuh.fit.se.music_stream_app_backend.security;
 import iuh.fit.se.music_stream_app_backend.models.Account;
 import iuh.fit.se.music_stream_app_backend.repository.AccountRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -10,6 +12,7 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -17,6 +20,10 @@ public class CustomUserDetailsService implements UserDetailsService {
 
     private final AccountRepository accountRepository;
 
+    // Operators allowed on /actuator/**, there is no admin flag on accounts
+    @Value("${security.admin-emails:}")
+    private List<String> adminEmails;
+
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         Account account = accountRepository.findByEmail(email);
@@ -24,11 +31,22 @@ public class CustomUserDetailsService implements UserDetailsService {
             throw new UsernameNotFoundException("User not found with email: " + email);
         }
 
+        List<SimpleGrantedAuthority> authorities = new ArrayList<>();
+        if (isAdmin(account.getEmail())) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+        }
+
         return User.builder()
                 .username(account.getEmail())
                 .password(account.getPassword())
-                .authorities(new ArrayList<>())
+                .authorities(authorities)
                 .build();
     }
+
+    private boolean isAdmin(String email) {
+        return email != null && adminEmails.stream()
+                .map(String::trim)
+                .anyMatch(admin -> !admin.isEmpty() && admin.equalsIgnoreCase(email));
+    }
 }
 
@@ -1,6 +1,7 @@
 package iuh.fit.se.music_stream_app_backend.service;
 
 import iuh.fit.se.music_stream_app_backend.models.Album;
+import iuh.fit.se.music_stream_app_backend.models.enums.SearchMode;
 
 import java.util.List;
 import java.util.Optional;
@@ -10,7 +11,7 @@ public interface AlbumService {
     List<Album> findAllAlbums();
     Album findAlbumById(String id);
     List<Album> getAlbumsByArtist(List<String> artistNames);
-    List<Album> findAlbumByName(String name);
+    List<Album> findAlbumByName(String name, SearchMode mode);
     Optional<Album> update (String id, Album album);
     boolean deleteById(String id);
     boolean updateFavourites(String id, long favourites);
@@ -1,6 +1,7 @@
 package iuh.fit.se.music_stream_app_backend.service;
 
 import iuh.fit.se.music_stream_app_backend.models.Artist;
+import iuh.fit.se.music_stream_app_backend.models.enums.SearchMode;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -13,5 +14,5 @@ public interface ArtistService {
 
     Page<Artist> findAllArtists(Pageable pageable);
 
-    Page<Artist> findArtistByName(String name, Pageable pageable);
+    Page<Artist> findArtistByName(String name, SearchMode mode, Pageable pageable);
 }
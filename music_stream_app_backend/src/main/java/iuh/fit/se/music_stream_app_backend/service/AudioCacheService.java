@@ -0,0 +1,20 @@
+package iuh.fit.se.music_stream_app_backend.service;
+
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import org.springframework.core.io.Resource;
+
+import java.nio.ByteBuffer;
+
+public interface AudioCacheService {
+    boolean isEnabled();
+
+    Resource openAudio(Song song);
+
+    Resource getOrFetch(Song song);
+
+    boolean isCached(String songId);
+
+    ByteBuffer readSegment(String songId, long offset, int length);
+
+    void evict(String songId);
+}
@@ -0,0 +1,12 @@
+package iuh.fit.se.music_stream_app_backend.service;
+
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.utils.Mp3SeekIndex;
+
+public interface AudioIndexService {
+    Mp3SeekIndex getIndex(Song song);
+
+    long byteOffsetAt(Song song, double seconds);
+
+    void evict(String songId);
+}
@@ -0,0 +1,11 @@
+package iuh.fit.se.music_stream_app_backend.service;
+
+import iuh.fit.se.music_stream_app_backend.models.Song;
+
+public interface AudioMetadataService {
+    Song extract(Song song);
+
+    void extractAsync(Song song);
+
+    int backfill();
+}
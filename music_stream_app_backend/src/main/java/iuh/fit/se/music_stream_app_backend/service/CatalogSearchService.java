@@ -0,0 +1,37 @@
+package iuh.fit.se.music_stream_app_backend.service;
+
+import iuh.fit.se.music_stream_app_backend.models.Album;
+import iuh.fit.se.music_stream_app_backend.models.Artist;
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * Accent-insensitive search over song titles, album names and artist names. Catalog writes go
+ * through the index* / remove* methods so results stay current without rereading collections.
+ */
+public interface CatalogSearchService {
+    Page<Song> searchSongs(String query, Pageable pageable);
+
+    List<Song> searchSongsByAlbumName(String query);
+
+    Page<Artist> searchArtists(String query, Pageable pageable);
+
+    Page<Album> searchAlbums(String query, Pageable pageable);
+
+    void indexSong(Song song);
+
+    void removeSong(String songId);
+
+    void indexArtist(Artist artist);
+
+    void removeArtist(String artistId);
+
+    void indexAlbum(Album album);
+
+    void removeAlbum(String albumId);
+
+    void rebuild();
+}
@@ -1,13 +1,43 @@
 package iuh.fit.se.music_stream_app_backend.service;
 
+import iuh.fit.se.music_stream_app_backend.dto.request.BatchDownloadTokenRequest;
+import iuh.fit.se.music_stream_app_backend.dto.response.BatchDownloadTokenResponse;
 import iuh.fit.se.music_stream_app_backend.dto.response.DownloadTokenResponse;
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.utils.DownloadUrlSigner;
 import org.springframework.core.io.Resource;
 
+import java.util.List;
+
 public interface DownloadService {
     DownloadTokenResponse generateDownloadToken(String userId, String songId);
 
-    Resource downloadFile(String token, String userId);
+    BatchDownloadTokenResponse generateBatchDownloadTokens(String userId, BatchDownloadTokenRequest request);
+
+    List<Song> getDownloadableSongs(String userId, BatchDownloadTokenRequest request);
+
+    Song redeemDownload(String token, String userId);
+
+    Resource openStream(Song song);
+
+    Song authorizeStream(String token, String userId);
+
+    /**
+     * Authorizes an HLS playlist like {@link #authorizeStream} and signs a grant for its segments:
+     * same user and song, expiring with the stream token.
+     */
+    HlsAccess authorizeHls(String token, String userId);
+
+    /**
+     * Checks a segment grant's signature and expiry, and that its user still has PREMIUM access.
+     */
+    DownloadUrlSigner.Claims authorizeSegment(String grant);
+
+    String redirectUrl(Song song, boolean attachment);
+
+    Song findByContentHash(String contentHash, String key);
 
-    void cleanupExpiredTokens();
+    record HlsAccess(Song song, String segmentGrant) {
+    }
 }
 
@@ -0,0 +1,23 @@
+package iuh.fit.se.music_stream_app_backend.service;
+
+import iuh.fit.se.music_stream_app_backend.models.DownloadToken;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage for download tokens issued in mongo token mode. Selected with {@code download.token.store}.
+ */
+public interface DownloadTokenStore {
+    void save(DownloadToken token);
+
+    void saveAll(List<DownloadToken> tokens);
+
+    Optional<DownloadToken> findValid(String token, LocalDateTime now);
+
+    /**
+     * Atomically flips the token from unused to used. Returns false if another request got there first.
+     */
+    boolean markUsed(DownloadToken token, LocalDateTime now);
+}
@@ -0,0 +1,14 @@
+package iuh.fit.se.music_stream_app_backend.service;
+
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import org.springframework.core.io.Resource;
+
+public interface HlsService {
+    String getPlaylist(Song song, String segmentGrant);
+
+    Resource getSegment(String songId, String key, int index);
+
+    void warmAsync(Song song);
+
+    void evict(String songId);
+}
@@ -2,10 +2,19 @@ package iuh.fit.se.music_stream_app_backend.service.Impl;
 
 import iuh.fit.se.music_stream_app_backend.exception.ResourceNotFoundException;
 import iuh.fit.se.music_stream_app_backend.models.Album;
+import iuh.fit.se.music_stream_app_backend.models.enums.SearchMode;
 import iuh.fit.se.music_stream_app_backend.repository.AlbumRepository;
 import iuh.fit.se.music_stream_app_backend.service.AlbumService;
+import iuh.fit.se.music_stream_app_backend.service.CatalogSearchService;
+import iuh.fit.se.music_stream_app_backend.service.SuggestService;
+import iuh.fit.se.music_stream_app_backend.utils.SearchQueries;
+import iuh.fit.se.music_stream_app_backend.utils.SearchResultCache;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -16,10 +25,22 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class AlbumServiceImpl implements AlbumService {
     AlbumRepository albumRepository;
+    CatalogSearchService catalogSearchService;
+    SuggestService suggestService;
+    SearchResultCache searchResultCache;
+    SearchQueries searchQueries;
+
+    @NonFinal
+    @Value("${search.index.album-songs-limit:500}")
+    int searchLimit;
 
     @Override
     public Album addAlbum(Album album) {
-        return albumRepository.save(album);
+        Album saved = albumRepository.save(album);
+        catalogSearchService.indexAlbum(saved);
+        suggestService.indexAlbum(saved);
+        searchResultCache.invalidate(SearchResultCache.Section.ALBUMS);
+        return saved;
     }
 
     @Override
@@ -39,8 +60,21 @@ public class AlbumServiceImpl implements AlbumService {
     }
 
     @Override
-    public List<Album> findAlbumByName(String name) {
-       return albumRepository.findByAlbumNameRegex(".*" + name + ".*");
+    public List<Album> findAlbumByName(String name, SearchMode mode) {
+        return searchResultCache.get(SearchResultCache.Section.ALBUMS, "albumsByName", mode, name,
+                Pageable.unpaged(), () -> {
+                    // Cách 1: Tiền tố của tên đã chuẩn hoá (dùng index album_name_folded)
+                    String searchTerm = name.trim();
+                    List<Album> result = searchQueries.list(
+                            searchQueries.name(mode, "albumNameFolded", "albumName", searchTerm), searchLimit, Album.class);
+
+                    // Nếu không tìm thấy, tìm theo từ bất kỳ, không dấu qua search index
+                    if (result.isEmpty()) {
+                        result = catalogSearchService.searchAlbums(searchTerm, PageRequest.of(0, searchLimit)).getContent();
+                    }
+
+                    return result;
+                });
     }
 
     @Override
@@ -53,7 +87,11 @@ public class AlbumServiceImpl implements AlbumService {
             existing.setFavourites(album.getFavourites());
             existing.setRelease(album.getRelease());
             existing.setSongs(album.getSongs());
-            return albumRepository.save(existing);
+            Album saved = albumRepository.save(existing);
+            catalogSearchService.indexAlbum(saved);
+            suggestService.indexAlbum(saved);
+            searchResultCache.invalidate(SearchResultCache.Section.ALBUMS);
+            return saved;
         });
     }
 
@@ -63,6 +101,9 @@ public class AlbumServiceImpl implements AlbumService {
             throw new ResourceNotFoundException("Album", "id", id);
         }
         albumRepository.deleteById(id);
+        catalogSearchService.removeAlbum(id);
+        suggestService.removeAlbum(id);
+        searchResultCache.invalidate(SearchResultCache.Section.ALBUMS);
         return true;
     }
 
@@ -71,7 +112,9 @@ public class AlbumServiceImpl implements AlbumService {
         Album album = albumRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Album", "id", id));
         album.setFavourites(favourites);
-        albumRepository.save(album);
+        // Favourites count towards the album's rank in suggestions
+        suggestService.indexAlbum(albumRepository.save(album));
+        searchResultCache.invalidate(SearchResultCache.Section.ALBUMS);
         return true;
     }
 }
@@ -2,30 +2,37 @@ package iuh.fit.se.music_stream_app_backend.service.Impl;
 
 import iuh.fit.se.music_stream_app_backend.exception.ResourceNotFoundException;
 import iuh.fit.se.music_stream_app_backend.models.Artist;
+import iuh.fit.se.music_stream_app_backend.models.enums.SearchMode;
 import iuh.fit.se.music_stream_app_backend.repository.ArtistRepository;
 import iuh.fit.se.music_stream_app_backend.service.ArtistService;
+import iuh.fit.se.music_stream_app_backend.service.CatalogSearchService;
+import iuh.fit.se.music_stream_app_backend.service.SuggestService;
+import iuh.fit.se.music_stream_app_backend.utils.SearchQueries;
+import iuh.fit.se.music_stream_app_backend.utils.SearchResultCache;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
-import java.text.Normalizer;
-import java.util.List;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-
 @Service
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @RequiredArgsConstructor
 public class ArtistServiceImpl implements ArtistService {
     ArtistRepository artistRepository;
+    CatalogSearchService catalogSearchService;
+    SuggestService suggestService;
+    SearchResultCache searchResultCache;
+    SearchQueries searchQueries;
 
     @Override
     public Artist AddArtist(Artist artist) {
-        return artistRepository.save(artist);
+        Artist saved = artistRepository.save(artist);
+        catalogSearchService.indexArtist(saved);
+        suggestService.indexArtist(saved);
+        searchResultCache.invalidate(SearchResultCache.Section.ARTISTS);
+        return saved;
     }
 
     @Override
@@ -40,38 +47,19 @@ public class ArtistServiceImpl implements ArtistService {
     }
 
     @Override
-    public Page<Artist> findArtistByName(String name, Pageable pageable) {
-        // Cách 1: Tìm kiếm thông thường (case-insensitive)
-        String searchTerm = name.trim();
-        Page<Artist> result = artistRepository.findByArtistNameRegex(searchTerm, pageable);
-
-        // Nếu không tìm thấy, thử loại bỏ dấu và tìm lại
-        if (result.isEmpty()) {
-            // Lấy tất cả artists và filter trong Java
-            String normalizedSearch = removeAccents(searchTerm).toLowerCase();
-            List<Artist> allArtists = artistRepository.findAll();
-
-            List<Artist> filtered = allArtists.stream()
-                    .filter(artist -> removeAccents(artist.getArtistName()).toLowerCase().contains(normalizedSearch))
-                    .skip((long) pageable.getPageNumber() * pageable.getPageSize())
-                    .limit(pageable.getPageSize())
-                    .collect(Collectors.toList());
+    public Page<Artist> findArtistByName(String name, SearchMode mode, Pageable pageable) {
+        return searchResultCache.get(SearchResultCache.Section.ARTISTS, "artistsByName", mode, name, pageable, () -> {
+            // Cách 1: Tiền tố của tên đã chuẩn hoá (dùng index artist_name_folded)
+            String searchTerm = name.trim();
+            Page<Artist> result = searchQueries.page(
+                    searchQueries.name(mode, "artistNameFolded", "artistName", searchTerm), pageable, Artist.class);
 
-            long total = allArtists.stream()
-                    .filter(artist -> removeAccents(artist.getArtistName()).toLowerCase().contains(normalizedSearch))
-                    .count();
-
-            return new PageImpl<>(filtered, pageable, total);
-        }
-
-        return result;
-    }
+            // Nếu không tìm thấy, tìm không dấu qua search index (không đọc toàn bộ collection)
+            if (result.isEmpty()) {
+                return catalogSearchService.searchArtists(searchTerm, pageable);
+            }
 
-    // Helper method để loại bỏ dấu tiếng Việt
-    private String removeAccents(String text) {
-        if (text == null) return "";
-        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
-        Pattern pattern = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
-        return pattern.matcher(normalized).replaceAll("");
+            return result;
+        });
     }
 }
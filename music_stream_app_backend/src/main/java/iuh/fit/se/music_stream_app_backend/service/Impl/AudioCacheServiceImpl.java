@@ -0,0 +1,552 @@
+package iuh.fit.se.music_stream_app_backend.service.Impl;
+
+import iuh.fit.se.music_stream_app_backend.exception.ResourceNotFoundException;
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.service.AudioCacheService;
+import iuh.fit.se.music_stream_app_backend.service.OriginFetchService;
+import iuh.fit.se.music_stream_app_backend.utils.OriginResource;
+import iuh.fit.se.music_stream_app_backend.utils.PinnedFileResource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Size-bounded LRU cache of song audio on local disk, keyed by songId.
+ * Concurrent misses for the same song share a single origin fetch; streaming misses are
+ * proxied from origin while the file is filled in the background. Files handed out are pinned
+ * until released (plus a short grace for sendfile, which opens the file after the servlet
+ * returns), and eviction skips pinned entries instead of deleting a file that is being served.
+ */
+@Service
+@Slf4j
+public class AudioCacheServiceImpl implements AudioCacheService {
+
+    private static final String FILE_SUFFIX = ".mp3";
+    private static final String PART_SUFFIX = ".part";
+    private static final long NEVER_PINNED = Long.MIN_VALUE;
+
+    @Value("${audio.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audio.cache.directory:./audio-cache}")
+    private String directory;
+
+    @Value("${audio.cache.max-size-bytes:2147483648}")
+    private long maxSizeBytes;
+
+    @Value("${audio.cache.mapped-max-bytes:268435456}")
+    private long mappedMaxBytes;
+
+    @Value("${audio.cache.release-grace-seconds:30}")
+    private long releaseGraceSeconds;
+
+    @Value("${audio.cache.pin-max-seconds:3600}")
+    private long pinMaxSeconds;
+
+    private final MeterRegistry meterRegistry;
+    private final OriginFetchService originFetchService;
+    private final Executor audioFetchExecutor;
+
+    // Access-ordered map: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong currentSize = new AtomicLong();
+    // Out of the index (evicted while pinned, or larger than the whole cache), deleted once released
+    private final List<CacheEntry> pendingDelete = new ArrayList<>();
+
+    private final Map<String, CompletableFuture<CacheEntry>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, MappedByteBuffer> mapped = new ConcurrentHashMap<>();
+    private final AtomicLong mappedSize = new AtomicLong();
+
+    private Path cacheDir;
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    public AudioCacheServiceImpl(MeterRegistry meterRegistry,
+                                 OriginFetchService originFetchService,
+                                 @Qualifier("audioFetchExecutor") Executor audioFetchExecutor) {
+        this.meterRegistry = meterRegistry;
+        this.originFetchService = originFetchService;
+        this.audioFetchExecutor = audioFetchExecutor;
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        hits = Counter.builder("audio.cache.requests").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("audio.cache.requests").tag("result", "miss").register(meterRegistry);
+        evictions = Counter.builder("audio.cache.evictions").register(meterRegistry);
+        Gauge.builder("audio.cache.size", currentSize, AtomicLong::get).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("audio.cache.entries", this, cache -> cache.entryCount()).register(meterRegistry);
+        Gauge.builder("audio.cache.hit.ratio", this, cache -> cache.hitRatio()).register(meterRegistry);
+
+        if (!enabled) {
+            return;
+        }
+
+        cacheDir = Paths.get(directory).toAbsolutePath().normalize();
+        Files.createDirectories(cacheDir);
+
+        // Rebuild the index from disk, oldest files first so they are evicted first
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            List<Path> existing = files.toList();
+            for (Path file : existing) {
+                if (file.getFileName().toString().endsWith(PART_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            existing.stream()
+                    .filter(file -> file.getFileName().toString().endsWith(FILE_SUFFIX))
+                    .sorted(Comparator.comparingLong(this::lastModified))
+                    .forEach(file -> {
+                        String name = file.getFileName().toString();
+                        String key = name.substring(0, name.length() - FILE_SUFFIX.length());
+                        long size = file.toFile().length();
+                        entries.put(key, new CacheEntry(file, size));
+                        currentSize.addAndGet(size);
+                    });
+        }
+        evictIfNeeded();
+        log.info("Audio cache ready at {} with {} entries ({} bytes)", cacheDir, entries.size(), currentSize.get());
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Resource openAudio(Song song) {
+        requireAudioUrl(song);
+        if (!enabled) {
+            return new OriginResource(song.getAudioUrl(), originFetchService);
+        }
+
+        String key = cacheKey(song.getSongId());
+        CacheEntry entry = lookupPinned(key);
+        if (entry != null) {
+            hits.increment();
+            return resource(entry);
+        }
+
+        // Cold track: proxy straight from origin while the cache is filled in the background
+        misses.increment();
+        fillAsync(key, song);
+        return new OriginResource(song.getAudioUrl(), originFetchService);
+    }
+
+    @Override
+    public Resource getOrFetch(Song song) {
+        requireAudioUrl(song);
+        if (!enabled) {
+            return new OriginResource(song.getAudioUrl(), originFetchService);
+        }
+
+        String key = cacheKey(song.getSongId());
+        CacheEntry entry = lookupPinned(key);
+        if (entry != null) {
+            hits.increment();
+            return resource(entry);
+        }
+
+        misses.increment();
+        CacheEntry fetched = fetchShared(key, song);
+        pin(fetched);
+        return resource(fetched);
+    }
+
+    @Override
+    public boolean isCached(String songId) {
+        if (!enabled) {
+            return false;
+        }
+        lock.lock();
+        try {
+            return entries.containsKey(cacheKey(songId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ByteBuffer readSegment(String songId, long offset, int length) {
+        String key = cacheKey(songId);
+        CacheEntry entry = enabled ? lookupPinned(key) : null;
+        if (entry == null) {
+            throw new ResourceNotFoundException("Cached audio", "songId", songId);
+        }
+        try {
+            return read(key, entry, offset, length);
+        } finally {
+            unpin(entry);
+        }
+    }
+
+    private ByteBuffer read(String key, CacheEntry entry, long offset, int length) {
+
+        // Hot files stay mapped; larger-than-budget reads fall back to a positional read
+        MappedByteBuffer buffer = mapped.get(key);
+        if (buffer == null && entry.size() <= Integer.MAX_VALUE && mappedSize.get() + entry.size() <= mappedMaxBytes) {
+            buffer = mapped.computeIfAbsent(key, k -> map(entry));
+        }
+
+        long start = Math.min(offset, entry.size());
+        int count = (int) Math.min(length, entry.size() - start);
+        if (buffer != null) {
+            return buffer.slice((int) start, count).asReadOnlyBuffer();
+        }
+
+        try (FileChannel channel = FileChannel.open(entry.path(), StandardOpenOption.READ)) {
+            ByteBuffer out = ByteBuffer.allocate(count);
+            while (out.hasRemaining() && channel.read(out, start + out.position()) > 0) {
+                // keep reading until the segment is complete
+            }
+            return out.flip();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void evict(String songId) {
+        if (!enabled) {
+            return;
+        }
+        String key = cacheKey(songId);
+        lock.lock();
+        try {
+            CacheEntry removed = entries.remove(key);
+            if (removed == null) {
+                return;
+            }
+            unindex(key, removed);
+            pendingDelete.add(removed);
+        } finally {
+            lock.unlock();
+        }
+        deletePending();
+    }
+
+    // Concurrent misses for the same key share one origin fetch
+    private CacheEntry fetchShared(String key, Song song) {
+        CompletableFuture<CacheEntry> mine = new CompletableFuture<>();
+        CompletableFuture<CacheEntry> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return await(existing);
+        }
+        return fill(key, song, mine);
+    }
+
+    // Runs the fetch registered as mine; a fill that completed just before it was registered is reused
+    private CacheEntry fill(String key, Song song, CompletableFuture<CacheEntry> mine) {
+        try {
+            CacheEntry cached = lookup(key);
+            CacheEntry fetched = cached != null ? cached : fetch(key, song);
+            mine.complete(fetched);
+            return fetched;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private void fillAsync(String key, Song song) {
+        // Registered before queuing, so concurrent cold opens queue a single fill
+        CompletableFuture<CacheEntry> mine = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, mine) != null) {
+            return;
+        }
+        try {
+            audioFetchExecutor.execute(() -> {
+                try {
+                    fill(key, song, mine);
+                } catch (RuntimeException e) {
+                    log.warn("Background cache fill failed for song {}: {}", song.getSongId(), e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            log.debug("Cache fill queue full, skipping song {}", song.getSongId());
+        }
+    }
+
+    private CacheEntry lookup(String key) {
+        lock.lock();
+        try {
+            CacheEntry entry = entries.get(key);
+            if (entry != null && !Files.exists(entry.path())) {
+                entries.remove(key);
+                unindex(key, entry);
+                return null;
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Pinned under the same lock as the lookup, so eviction cannot slip in between
+    private CacheEntry lookupPinned(String key) {
+        lock.lock();
+        try {
+            CacheEntry entry = lookup(key);
+            if (entry != null) {
+                pin(entry);
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private CacheEntry fetch(String key, Song song) {
+        Path target = cacheDir.resolve(key + FILE_SUFFIX);
+        Path part = cacheDir.resolve(key + "-" + UUID.randomUUID() + PART_SUFFIX);
+        try {
+            originFetchService.download(song.getAudioUrl(), part);
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Error caching audio file for song {}", song.getSongId(), e);
+            throw new IllegalStateException("Error accessing audio file");
+        } finally {
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException e) {
+                log.warn("Could not delete partial cache file {}", part);
+            }
+        }
+
+        CacheEntry entry = new CacheEntry(target, target.toFile().length());
+        // Counts as just released: the callers waiting on this fetch pin it before the grace runs out
+        entry.releasedAt = System.nanoTime();
+        lock.lock();
+        try {
+            if (entry.size() > maxSizeBytes) {
+                // Served to the waiting callers, but never indexed: it would evict everything else
+                pendingDelete.add(entry);
+            } else {
+                CacheEntry previous = entries.put(key, entry);
+                if (previous != null) {
+                    unindex(key, previous);
+                }
+                currentSize.addAndGet(entry.size());
+            }
+        } finally {
+            lock.unlock();
+        }
+        evictIfNeeded();
+        return entry;
+    }
+
+    private void evictIfNeeded() {
+        deletePending();
+        List<CacheEntry> victims = new ArrayList<>();
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            Iterator<Map.Entry<String, CacheEntry>> it = entries.entrySet().iterator();
+            // Least recently used first, entries being served are skipped rather than deleted under a reader
+            while (currentSize.get() > maxSizeBytes && it.hasNext()) {
+                Map.Entry<String, CacheEntry> eldest = it.next();
+                if (!evictable(eldest.getValue(), now)) {
+                    continue;
+                }
+                it.remove();
+                unindex(eldest.getKey(), eldest.getValue());
+                victims.add(eldest.getValue());
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (CacheEntry victim : victims) {
+            deleteFile(victim);
+            evictions.increment();
+        }
+    }
+
+    private void pin(CacheEntry entry) {
+        lock.lock();
+        try {
+            entry.pins++;
+            entry.pinnedAt = System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void unpin(CacheEntry entry) {
+        lock.lock();
+        try {
+            entry.pins = Math.max(0, entry.pins - 1);
+            entry.releasedAt = System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Resource resource(CacheEntry entry) {
+        return new PinnedFileResource(entry.path(), () -> {
+            unpin(entry);
+            deletePending();
+        });
+    }
+
+    // Pins that are never released (a caller that crashed) stop protecting the file after pin-max-seconds
+    private boolean evictable(CacheEntry entry, long now) {
+        if (entry.pins > 0) {
+            return now - entry.pinnedAt > TimeUnit.SECONDS.toNanos(pinMaxSeconds);
+        }
+        return entry.releasedAt == NEVER_PINNED
+                || now - entry.releasedAt > TimeUnit.SECONDS.toNanos(releaseGraceSeconds);
+    }
+
+    private void deletePending() {
+        List<CacheEntry> deletable = new ArrayList<>();
+        lock.lock();
+        try {
+            if (pendingDelete.isEmpty()) {
+                return;
+            }
+            long now = System.nanoTime();
+            Iterator<CacheEntry> it = pendingDelete.iterator();
+            while (it.hasNext()) {
+                CacheEntry entry = it.next();
+                if (!evictable(entry, now)) {
+                    continue;
+                }
+                it.remove();
+                // A newer fetch of the same song replaced the file under the same name
+                boolean replaced = entries.values().stream().anyMatch(other -> other.path().equals(entry.path()));
+                if (!replaced) {
+                    deletable.add(entry);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        deletable.forEach(this::deleteFile);
+    }
+
+    // Caller holds the lock
+    private void unindex(String key, CacheEntry entry) {
+        currentSize.addAndGet(-entry.size());
+        if (mapped.remove(key) != null) {
+            mappedSize.addAndGet(-entry.size());
+        }
+    }
+
+    private void deleteFile(CacheEntry entry) {
+        try {
+            Files.deleteIfExists(entry.path());
+        } catch (IOException e) {
+            log.warn("Could not delete cached audio {}", entry.path(), e);
+        }
+    }
+
+    private MappedByteBuffer map(CacheEntry entry) {
+        try (FileChannel channel = FileChannel.open(entry.path(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, entry.size());
+            mappedSize.addAndGet(entry.size());
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void requireAudioUrl(Song song) {
+        if (song.getAudioUrl() == null || song.getAudioUrl().isEmpty()) {
+            throw new IllegalStateException("Song audio file is not available");
+        }
+    }
+
+    private CacheEntry await(CompletableFuture<CacheEntry> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private int entryCount() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private long lastModified(Path file) {
+        return file.toFile().lastModified();
+    }
+
+    private String cacheKey(String songId) {
+        return songId.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    private static final class CacheEntry {
+        private final Path path;
+        private final long size;
+        // Guarded by the cache lock
+        private int pins;
+        private long pinnedAt;
+        private long releasedAt = NEVER_PINNED;
+
+        private CacheEntry(Path path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+
+        private Path path() {
+            return path;
+        }
+
+        private long size() {
+            return size;
+        }
+    }
+}
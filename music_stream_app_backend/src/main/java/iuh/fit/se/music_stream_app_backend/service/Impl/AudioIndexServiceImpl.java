@@ -0,0 +1,292 @@
+package iuh.fit.se.music_stream_app_backend.service.Impl;
+
+import iuh.fit.se.music_stream_app_backend.exception.ServiceUnavailableException;
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.service.AudioCacheService;
+import iuh.fit.se.music_stream_app_backend.service.AudioIndexService;
+import iuh.fit.se.music_stream_app_backend.service.OriginFetchService;
+import iuh.fit.se.music_stream_app_backend.utils.Mp3FrameParser;
+import iuh.fit.se.music_stream_app_backend.utils.Mp3SeekIndex;
+import iuh.fit.se.music_stream_app_backend.utils.PinnedFileResource;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Builds one seek index per song and audio URL and keeps it in memory and on disk.
+ * Cached files get an exact frame index; songs only on origin get an estimate from the
+ * Xing TOC or CBR header, read with a small range request, until the cache fills.
+ */
+@Service
+@Slf4j
+public class AudioIndexServiceImpl implements AudioIndexService {
+
+    private static final int MAX_INDEXES_IN_MEMORY = 10_000;
+    private static final int PROBE_BYTES = 16 * 1024;
+
+    @Value("${audio.index.directory:./audio-cache/index}")
+    private String directory;
+
+    @Value("${audio.index.seek-resolution-ms:250}")
+    private long seekResolutionMs;
+
+    @Value("${audio.index.duration-tolerance-seconds:1}")
+    private double durationToleranceSeconds;
+
+    private final AudioCacheService audioCacheService;
+    private final OriginFetchService originFetchService;
+    private final MongoTemplate mongoTemplate;
+
+    private final Map<String, CompletableFuture<Mp3SeekIndex>> building = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, Mp3SeekIndex> indexes = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Path indexDir;
+
+    public AudioIndexServiceImpl(AudioCacheService audioCacheService,
+                                 OriginFetchService originFetchService,
+                                 MongoTemplate mongoTemplate) {
+        this.audioCacheService = audioCacheService;
+        this.originFetchService = originFetchService;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        indexDir = Paths.get(directory).toAbsolutePath().normalize();
+        Files.createDirectories(indexDir);
+    }
+
+    @Override
+    public Mp3SeekIndex getIndex(Song song) {
+        String key = indexKey(song);
+        boolean cached = audioCacheService.isCached(song.getSongId());
+
+        lock.lock();
+        try {
+            Mp3SeekIndex index = indexes.get(key);
+            // An estimate is replaced as soon as the file is in the local cache
+            if (index != null && (index.isExact() || !cached)) {
+                return index;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Mp3SeekIndex index = readIndex(key);
+        if (index == null) {
+            index = buildShared(key, song, cached);
+        }
+
+        lock.lock();
+        try {
+            indexes.put(key, index);
+            if (indexes.size() > MAX_INDEXES_IN_MEMORY) {
+                indexes.remove(indexes.keySet().iterator().next());
+            }
+        } finally {
+            lock.unlock();
+        }
+        return index;
+    }
+
+    @Override
+    public long byteOffsetAt(Song song, double seconds) {
+        return getIndex(song).byteOffsetAt(seconds);
+    }
+
+    @Override
+    public void evict(String songId) {
+        String prefix = songKey(songId) + ".";
+        lock.lock();
+        try {
+            indexes.keySet().removeIf(key -> key.startsWith(prefix));
+        } finally {
+            lock.unlock();
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(indexDir, prefix + "*")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("Could not delete seek indexes of song {}: {}", songId, e.getMessage());
+        }
+    }
+
+    // Concurrent seeks into the same song build the index once
+    private Mp3SeekIndex buildShared(String key, Song song, boolean cached) {
+        CompletableFuture<Mp3SeekIndex> mine = new CompletableFuture<>();
+        CompletableFuture<Mp3SeekIndex> existing = building.putIfAbsent(key, mine);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        try {
+            Mp3SeekIndex index = cached ? buildExact(key, song) : buildEstimate(song);
+            mine.complete(index);
+            return index;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            building.remove(key, mine);
+        }
+    }
+
+    private Mp3SeekIndex buildExact(String key, Song song) {
+        Resource source = audioCacheService.getOrFetch(song);
+        try (FileChannel channel = FileChannel.open(source.getFile().toPath(), StandardOpenOption.READ)) {
+            Mp3FrameParser.FrameScan scan = Mp3FrameParser.scan(
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            if (scan.frameCount() == 0) {
+                throw new IllegalStateException("Audio file is not a valid MP3 stream");
+            }
+
+            Mp3SeekIndex index = Mp3SeekIndex.fromScan(scan, seekResolutionMs / 1000.0);
+            writeIndex(key, index);
+            correctDuration(song, index);
+            return index;
+        } catch (IOException e) {
+            log.error("Error indexing audio for song {}", song.getSongId(), e);
+            throw new UncheckedIOException(e);
+        } finally {
+            PinnedFileResource.release(source);
+        }
+    }
+
+    // Reads the ID3 tag size, then the first frame, with at most two small range requests
+    private Mp3SeekIndex buildEstimate(Song song) {
+        String url = song.getAudioUrl();
+        Probe head = probe(url, 0);
+        int tagSize = Mp3FrameParser.id3v2TagSize(head.data(), 0);
+
+        Probe frames = tagSize + Mp3FrameParser.HEADER_SIZE < head.data().limit()
+                ? new Probe(head.data().position(tagSize).slice(), head.contentLength())
+                : probe(url, tagSize);
+
+        int first = Mp3FrameParser.findFirstFrame(frames.data(), 0);
+        Mp3FrameParser.FrameHeader header = first < 0 ? null : Mp3FrameParser.parseHeader(frames.data(), first);
+        if (header == null || frames.contentLength() < 0) {
+            throw new IllegalStateException("Audio file is not a valid MP3 stream");
+        }
+        Mp3FrameParser.XingHeader xing = Mp3FrameParser.parseXing(frames.data(), first, header);
+        return Mp3SeekIndex.fromHeader(header, xing, tagSize + first, frames.contentLength());
+    }
+
+    private Probe probe(String url, long offset) {
+        try (OriginFetchService.OriginResponse response =
+                     originFetchService.fetch(url, "bytes=" + offset + "-" + (offset + PROBE_BYTES - 1), null)) {
+            // Origins that ignore Range answer 200 with the whole file, only the head is read
+            byte[] bytes = response.body().readNBytes(PROBE_BYTES);
+            return new Probe(ByteBuffer.wrap(bytes), contentLength(response));
+        } catch (IOException e) {
+            log.error("Error probing audio header {}", url, e);
+            throw new ServiceUnavailableException("Error accessing audio file");
+        }
+    }
+
+    private long contentLength(OriginFetchService.OriginResponse response) {
+        try {
+            String contentRange = response.header(HttpHeaders.CONTENT_RANGE);
+            if (contentRange != null) {
+                String total = contentRange.substring(contentRange.lastIndexOf('/') + 1).trim();
+                return "*".equals(total) ? -1 : Long.parseLong(total);
+            }
+            String contentLength = response.header(HttpHeaders.CONTENT_LENGTH);
+            return response.status() == 200 && contentLength != null ? Long.parseLong(contentLength) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Song.duration comes from whoever added the song, the frame count is the real playtime
+    private void correctDuration(Song song, Mp3SeekIndex index) {
+        double duration = Math.round(index.durationSeconds() * 1000) / 1000.0;
+        if (Math.abs(song.getDuration() - duration) <= durationToleranceSeconds) {
+            return;
+        }
+        log.info("Correcting duration of song {} from {}s to {}s", song.getSongId(), song.getDuration(), duration);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(song.getSongId())),
+                Update.update("duration", duration), Song.class);
+        song.setDuration(duration);
+    }
+
+    private void writeIndex(String key, Mp3SeekIndex index) throws IOException {
+        Path target = indexDir.resolve(key + ".idx");
+        Path part = indexDir.resolve(key + ".idx.part");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(part)))) {
+            index.writeTo(out);
+        }
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Mp3SeekIndex readIndex(String key) {
+        Path index = indexDir.resolve(key + ".idx");
+        if (!Files.exists(index)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index)))) {
+            return Mp3SeekIndex.readFrom(in);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable seek index {}", index);
+            return null;
+        }
+    }
+
+    // New audio gets a new key, so an index of the old file never maps seeks into the new one
+    private String indexKey(Song song) {
+        byte[] url = String.valueOf(song.getAudioUrl()).getBytes(StandardCharsets.UTF_8);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url);
+            return songKey(song.getSongId()) + "." + HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private String songKey(String songId) {
+        return songId.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    private record Probe(ByteBuffer data, long contentLength) {
+    }
+}
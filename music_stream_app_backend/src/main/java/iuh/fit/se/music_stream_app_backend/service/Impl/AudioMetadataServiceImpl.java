@@ -0,0 +1,177 @@
+package iuh.fit.se.music_stream_app_backend.service.Impl;
+
+import iuh.fit.se.music_stream_app_backend.exception.ServiceUnavailableException;
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.service.AudioCacheService;
+import iuh.fit.se.music_stream_app_backend.service.AudioIndexService;
+import iuh.fit.se.music_stream_app_backend.service.AudioMetadataService;
+import iuh.fit.se.music_stream_app_backend.service.OriginFetchService;
+import iuh.fit.se.music_stream_app_backend.utils.Mp3SeekIndex;
+import iuh.fit.se.music_stream_app_backend.utils.OriginResource;
+import iuh.fit.se.music_stream_app_backend.utils.PinnedFileResource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Extracts size, bitrate, duration and a SHA-256 content hash for a song and stores them on the
+ * Song document. Duration and bitrate come from the seek index (frame headers, read with small
+ * range requests when the file is not cached); size and hash from a single streaming read that
+ * does not go through the audio cache, so backfills do not evict hot songs.
+ */
+@Service
+@Slf4j
+public class AudioMetadataServiceImpl implements AudioMetadataService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Value("${audio.metadata.backfill-batch-size:100}")
+    private int backfillBatchSize;
+
+    private final AudioIndexService audioIndexService;
+    private final AudioCacheService audioCacheService;
+    private final OriginFetchService originFetchService;
+    private final MongoTemplate mongoTemplate;
+    private final Executor audioFetchExecutor;
+
+    public AudioMetadataServiceImpl(AudioIndexService audioIndexService,
+                                    AudioCacheService audioCacheService,
+                                    OriginFetchService originFetchService,
+                                    MongoTemplate mongoTemplate,
+                                    @Qualifier("audioFetchExecutor") Executor audioFetchExecutor) {
+        this.audioIndexService = audioIndexService;
+        this.audioCacheService = audioCacheService;
+        this.originFetchService = originFetchService;
+        this.mongoTemplate = mongoTemplate;
+        this.audioFetchExecutor = audioFetchExecutor;
+    }
+
+    @Override
+    public Song extract(Song song) {
+        if (song.getAudioUrl() == null || song.getAudioUrl().isEmpty()) {
+            throw new IllegalStateException("Song has no audio URL");
+        }
+
+        Mp3SeekIndex index = audioIndexService.getIndex(song);
+        double duration = Math.round(index.durationSeconds() * 1000) / 1000.0;
+
+        // 1. Size and hash in one pass over the bytes
+        MessageDigest digest = sha256();
+        long size = 0;
+        Resource source = audioCacheService.isCached(song.getSongId())
+                ? audioCacheService.getOrFetch(song)
+                : new OriginResource(song.getAudioUrl(), originFetchService);
+        try (InputStream in = source.getInputStream()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                size += read;
+            }
+        } catch (IOException e) {
+            log.error("Error reading audio of song {} for metadata", song.getSongId(), e);
+            throw new ServiceUnavailableException("Error accessing audio file");
+        } finally {
+            PinnedFileResource.release(source);
+        }
+        String contentHash = HexFormat.of().formatHex(digest.digest());
+        LocalDateTime now = LocalDateTime.now();
+
+        // 2. Only the metadata fields are written, the rest of the document may have changed meanwhile
+        Update update = new Update()
+                .set("fileSizeBytes", size)
+                .set("bitrateKbps", index.bitrateKbps())
+                .set("contentHash", contentHash)
+                .set("metadataExtractedAt", now);
+        // CBR/Xing estimates can be off by seconds on VBR files, only a full frame scan overrides the catalog value
+        if (index.isExact()) {
+            update.set("duration", duration);
+            song.setDuration(duration);
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("songId").is(song.getSongId())), update, Song.class);
+
+        song.setFileSizeBytes(size);
+        song.setBitrateKbps(index.bitrateKbps());
+        song.setContentHash(contentHash);
+        song.setMetadataExtractedAt(now);
+        return song;
+    }
+
+    @Override
+    public void extractAsync(Song song) {
+        try {
+            audioFetchExecutor.execute(() -> {
+                try {
+                    extract(song);
+                } catch (RuntimeException e) {
+                    log.warn("Metadata extraction failed for song {}: {}", song.getSongId(), e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Picked up by the next backfill run
+            log.debug("Metadata extraction deferred for song {}, fetch pool is busy", song.getSongId());
+        }
+    }
+
+    @Override
+    public int backfill() {
+        int extracted = 0;
+        String lastId = null;
+        while (true) {
+            // Keyset pagination on _id, songs that fail stay behind the cursor until the next run
+            Criteria criteria = Criteria.where("metadataExtractedAt").is(null);
+            if (lastId != null) {
+                criteria = criteria.and("songId").gt(lastId);
+            }
+            Query query = Query.query(criteria)
+                    .with(Sort.by(Sort.Direction.ASC, "songId"))
+                    .limit(backfillBatchSize);
+            List<Song> batch = mongoTemplate.find(query, Song.class);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            for (Song song : batch) {
+                lastId = song.getSongId();
+                if (song.getAudioUrl() == null || song.getAudioUrl().isEmpty()) {
+                    continue;
+                }
+                try {
+                    extract(song);
+                    extracted++;
+                } catch (RuntimeException e) {
+                    log.warn("Metadata backfill failed for song {}: {}", song.getSongId(), e.getMessage());
+                }
+            }
+        }
+        if (extracted > 0) {
+            log.info("Metadata backfill extracted {} songs", extracted);
+        }
+        return extracted;
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
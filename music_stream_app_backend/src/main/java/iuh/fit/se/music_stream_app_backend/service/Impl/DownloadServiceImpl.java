@@ -1,51 +1,83 @@
 package iuh.fit.se.music_stream_app_backend.service.Impl;
 
+import iuh.fit.se.music_stream_app_backend.dto.embedded.SongEmbedded;
+import iuh.fit.se.music_stream_app_backend.dto.request.BatchDownloadTokenRequest;
+import iuh.fit.se.music_stream_app_backend.dto.response.BatchDownloadTokenResponse;
 import iuh.fit.se.music_stream_app_backend.dto.response.DownloadTokenResponse;
+import iuh.fit.se.music_stream_app_backend.exception.BadRequestException;
 import iuh.fit.se.music_stream_app_backend.exception.ResourceNotFoundException;
 import iuh.fit.se.music_stream_app_backend.exception.UnauthorizedException;
 import iuh.fit.se.music_stream_app_backend.models.Account;
+import iuh.fit.se.music_stream_app_backend.models.Album;
 import iuh.fit.se.music_stream_app_backend.models.DownloadToken;
 import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.models.enums.DeliveryMode;
 import iuh.fit.se.music_stream_app_backend.models.enums.Type;
 import iuh.fit.se.music_stream_app_backend.repository.AccountRepository;
-import iuh.fit.se.music_stream_app_backend.repository.DownloadTokenRepository;
+import iuh.fit.se.music_stream_app_backend.repository.AlbumRepository;
+import iuh.fit.se.music_stream_app_backend.repository.PlaylistRepository;
 import iuh.fit.se.music_stream_app_backend.repository.SongRepository;
+import iuh.fit.se.music_stream_app_backend.service.AudioCacheService;
 import iuh.fit.se.music_stream_app_backend.service.DownloadService;
+import iuh.fit.se.music_stream_app_backend.service.DownloadTokenStore;
+import iuh.fit.se.music_stream_app_backend.utils.AccountTypeCache;
+import iuh.fit.se.music_stream_app_backend.utils.DownloadUrlSigner;
+import iuh.fit.se.music_stream_app_backend.utils.OriginUrlSigner;
+import iuh.fit.se.music_stream_app_backend.utils.SeenNonceRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
-import java.io.IOException;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DownloadServiceImpl implements DownloadService {
 
-    private final DownloadTokenRepository downloadTokenRepository;
+    private final DownloadTokenStore downloadTokenStore;
     private final AccountRepository accountRepository;
     private final SongRepository songRepository;
+    private final AlbumRepository albumRepository;
+    private final PlaylistRepository playlistRepository;
+    private final AudioCacheService audioCacheService;
+    private final DownloadUrlSigner downloadUrlSigner;
+    private final SeenNonceRegistry seenNonceRegistry;
+    private final OriginUrlSigner originUrlSigner;
+    private final AccountTypeCache accountTypeCache;
 
     private static final int TOKEN_EXPIRY_MINUTES = 15; // Token có hiệu lực 15 phút
+    private static final String TOKEN_MODE_SIGNED = "signed";
+    private static final int MAX_BATCH_SIZE = 500;
+
+    // mongo: tokens stored in download_tokens, signed: stateless HMAC-signed tokens
+    @Value("${download.token.mode:mongo}")
+    private String tokenMode;
+
+    @Value("${download.delivery.mode:direct}")
+    private String deliveryMode;
 
     @Override
     @Transactional
     public DownloadTokenResponse generateDownloadToken(String userId, String songId) {
         // 1. Verify user exists and has PREMIUM account
-        Account account = accountRepository.findByUserId(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Account", "userId", userId));
-
-        if (account.getType() != Type.PREMIUM) {
-            throw new UnauthorizedException("Only PREMIUM users can download songs. Please upgrade your account.");
-        }
+        requirePremium(userId);
 
         // 2. Verify song exists
         Song song = songRepository.findById(songId)
@@ -56,28 +88,185 @@ public class DownloadServiceImpl implements DownloadService {
         }
 
         // 3. Generate one-time token
-        String token = UUID.randomUUID().toString();
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime expiresAt = now.plusMinutes(TOKEN_EXPIRY_MINUTES);
+        String token = issueToken(userId, songId, now, expiresAt, downloadTokenStore::save);
+
+        return toTokenResponse(song, token, expiresAt);
+    }
+
+    @Override
+    public BatchDownloadTokenResponse generateBatchDownloadTokens(String userId, BatchDownloadTokenRequest request) {
+        // 1. Entitlement is checked once for the whole batch
+        requirePremium(userId);
+
+        // 2. Resolve all songs of the album / playlist / id list in one query
+        List<Song> songs = resolveBatchSongs(request);
+
+        // 3. Issue tokens, handed to the token store in one call in mongo mode
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusMinutes(TOKEN_EXPIRY_MINUTES);
+        List<DownloadToken> pending = new ArrayList<>();
+        List<DownloadTokenResponse> tokens = new ArrayList<>();
+
+        for (Song song : songs) {
+            if (song.getAudioUrl() == null || song.getAudioUrl().isEmpty()) {
+                continue;
+            }
+            String token = issueToken(userId, song.getSongId(), now, expiresAt, pending::add);
+            tokens.add(toTokenResponse(song, token, expiresAt));
+        }
+
+        if (!pending.isEmpty()) {
+            downloadTokenStore.saveAll(pending);
+        }
+
+        return BatchDownloadTokenResponse.builder()
+                .count(tokens.size())
+                .skipped(songs.size() - tokens.size())
+                .expiresAt(expiresAt.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .tokens(tokens)
+                .build();
+    }
+
+    @Override
+    public List<Song> getDownloadableSongs(String userId, BatchDownloadTokenRequest request) {
+        requirePremium(userId);
+
+        return resolveBatchSongs(request).stream()
+                .filter(song -> song.getAudioUrl() != null && !song.getAudioUrl().isEmpty())
+                .toList();
+    }
+
+    private List<Song> resolveBatchSongs(BatchDownloadTokenRequest request) {
+        boolean hasAlbum = StringUtils.hasText(request.getAlbumId());
+        boolean hasPlaylist = StringUtils.hasText(request.getPlaylistId());
+        boolean hasSongs = request.getSongIds() != null && !request.getSongIds().isEmpty();
+        if ((hasAlbum ? 1 : 0) + (hasPlaylist ? 1 : 0) + (hasSongs ? 1 : 0) != 1) {
+            throw new BadRequestException("Provide exactly one of albumId, playlistId or songIds");
+        }
+
+        List<Song> songs;
+        if (hasAlbum) {
+            Album album = albumRepository.findById(request.getAlbumId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Album", "id", request.getAlbumId()));
+            songs = orderByAlbumTracklist(album, findAlbumSongs(album));
+        } else {
+            List<String> songIds = hasPlaylist
+                    ? playlistRepository.findById(request.getPlaylistId())
+                            .map(playlist -> playlist.getSongs() != null ? playlist.getSongs() : List.<String>of())
+                            .orElseThrow(() -> new ResourceNotFoundException("Playlist", "id", request.getPlaylistId()))
+                    : request.getSongIds();
+            songs = findAllInOrder(songIds);
+        }
+
+        if (songs.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("A batch can contain at most " + MAX_BATCH_SIZE + " songs");
+        }
+        return songs;
+    }
+
+    // Songs only embed the album name, so same-named albums are told apart by the album's own tracklist and artists
+    private List<Song> findAlbumSongs(Album album) {
+        List<String> titles = album.getSongs() == null ? List.of() : album.getSongs().stream()
+                .map(SongEmbedded::getTitle)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        List<Song> songs = titles.isEmpty()
+                ? songRepository.findByAlbumName(album.getAlbumName())
+                : songRepository.findByAlbumNameAndTitleIn(album.getAlbumName(), titles);
+
+        if (album.getArtists() != null && !album.getArtists().isEmpty()) {
+            songs = songs.stream()
+                    .filter(song -> song.getArtist() != null && song.getArtist().stream().anyMatch(album.getArtists()::contains))
+                    .toList();
+        }
+        if (titles.isEmpty()) {
+            return songs;
+        }
+
+        // One song per tracklist entry; a remaining clash is settled by the album cover
+        Map<String, Song> byTitle = new LinkedHashMap<>();
+        for (Song song : songs) {
+            byTitle.merge(song.getTitle(), song,
+                    (kept, other) -> !hasAlbumCover(album, kept) && hasAlbumCover(album, other) ? other : kept);
+        }
+        return List.copyOf(byTitle.values());
+    }
+
+    private boolean hasAlbumCover(Album album, Song song) {
+        return album.getImage() != null && song.getAlbum() != null && album.getImage().equals(song.getAlbum().getImage());
+    }
+
+    // Album.songs only embeds titles, so the tracklist order is restored by title
+    private List<Song> orderByAlbumTracklist(Album album, List<Song> songs) {
+        if (album.getSongs() == null || album.getSongs().isEmpty()) {
+            return songs;
+        }
+        Map<String, Integer> position = new HashMap<>();
+        for (int i = 0; i < album.getSongs().size(); i++) {
+            position.putIfAbsent(album.getSongs().get(i).getTitle(), i);
+        }
+        return songs.stream()
+                .sorted(Comparator.comparingInt(song -> position.getOrDefault(song.getTitle(), Integer.MAX_VALUE)))
+                .toList();
+    }
+
+    // findAllById is a single $in query; results are put back in the requested order
+    private List<Song> findAllInOrder(List<String> songIds) {
+        List<String> distinctIds = songIds.stream().distinct().toList();
+        if (distinctIds.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("A batch can contain at most " + MAX_BATCH_SIZE + " songs");
+        }
+        Map<String, Song> byId = new HashMap<>();
+        songRepository.findAllById(distinctIds).forEach(song -> byId.put(song.getSongId(), song));
+        return distinctIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private void requirePremium(String userId) {
+        Account account = accountRepository.findByUserId(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Account", "userId", userId));
+        accountTypeCache.put(userId, account.getType());
+
+        if (account.getType() != Type.PREMIUM) {
+            throw new UnauthorizedException("Only PREMIUM users can download songs. Please upgrade your account.");
+        }
+    }
+
+    // Returns the token string; in mongo mode the DownloadToken to persist is handed to the sink
+    private String issueToken(String userId, String songId, LocalDateTime now, LocalDateTime expiresAt,
+                              Consumer<DownloadToken> sink) {
+        if (TOKEN_MODE_SIGNED.equalsIgnoreCase(tokenMode)) {
+            // Signed mode: everything needed to verify the token is in the URL, nothing is stored
+            return downloadUrlSigner.sign(songId, userId, expiresAt.atZone(ZoneId.systemDefault()).toEpochSecond());
+        }
 
-        DownloadToken downloadToken = DownloadToken.builder()
+        String token = UUID.randomUUID().toString();
+        sink.accept(DownloadToken.builder()
                 .token(token)
                 .userId(userId)
                 .songId(songId)
                 .createdAt(now)
                 .expiresAt(expiresAt)
                 .used(false)
-                .build();
-
-        downloadTokenRepository.save(downloadToken);
+                .build());
+        return token;
+    }
 
-        // 4. Calculate file size (estimate from URL or set default)
-        long estimatedSize = 5 * 1024 * 1024; // Default 5MB
+    private DownloadTokenResponse toTokenResponse(Song song, String token, LocalDateTime expiresAt) {
+        // Exact size once metadata is extracted, otherwise estimated from duration at 128 kbps
+        long fileSizeBytes = song.getFileSizeBytes() != null
+                ? song.getFileSizeBytes()
+                : (long) (song.getDuration() * 128_000 / 8);
 
-        // 5. Build download URL
+        // Build download URL
         String downloadUrl = "/api/download/" + token;
 
-        // 6. Format artist names
+        // Format artist names
         String artistNames = song.getArtist() != null ? String.join(", ", song.getArtist()) : "Unknown Artist";
 
         return DownloadTokenResponse.builder()
@@ -86,18 +275,71 @@ public class DownloadServiceImpl implements DownloadService {
                 .expiresAt(expiresAt.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
                 .songTitle(song.getTitle())
                 .artist(artistNames)
-                .fileSizeBytes(estimatedSize)
+                .fileSizeBytes(fileSizeBytes)
+                .bitrateKbps(song.getBitrateKbps())
+                .durationSeconds(song.getDuration())
                 .build();
     }
 
     @Override
     @Transactional
-    public Resource downloadFile(String token, String userId) {
-        // 1. Validate token
+    public Song redeemDownload(String token, String userId) {
         LocalDateTime now = LocalDateTime.now();
-        DownloadToken downloadToken = downloadTokenRepository
-                .findByTokenAndUsedFalseAndExpiresAtAfter(token, now)
-                .orElseThrow(() -> new UnauthorizedException("Invalid or expired download token"));
+        DownloadToken downloadToken = validateToken(token, userId, now);
+
+        // 4. Get song details
+        Song song = songRepository.findById(downloadToken.getSongId())
+                .orElseThrow(() -> new ResourceNotFoundException("Song", "id", downloadToken.getSongId()));
+
+        // 5. Mark token as used
+        markUsed(downloadToken, now);
+
+        return song;
+    }
+
+    @Override
+    public Resource openStream(Song song) {
+        return openAudioResource(song);
+    }
+
+    @Override
+    public Song authorizeStream(String token, String userId) {
+        // Stream tokens are not consumed so players can issue Range requests while seeking
+        DownloadToken downloadToken = validateToken(token, userId, LocalDateTime.now());
+
+        return songRepository.findById(downloadToken.getSongId())
+                .orElseThrow(() -> new ResourceNotFoundException("Song", "id", downloadToken.getSongId()));
+    }
+
+    @Override
+    public HlsAccess authorizeHls(String token, String userId) {
+        DownloadToken downloadToken = validateToken(token, userId, LocalDateTime.now());
+        Song song = songRepository.findById(downloadToken.getSongId())
+                .orElseThrow(() -> new ResourceNotFoundException("Song", "id", downloadToken.getSongId()));
+
+        // Segments are fetched without the Authorization header, so they carry the stream token's rights
+        long expiresAt = downloadToken.getExpiresAt().atZone(ZoneId.systemDefault()).toEpochSecond();
+        return new HlsAccess(song, downloadUrlSigner.signGrant(song.getSongId(), userId, expiresAt));
+    }
+
+    @Override
+    public DownloadUrlSigner.Claims authorizeSegment(String grant) {
+        DownloadUrlSigner.Claims claims = downloadUrlSigner.verifyGrant(grant)
+                .orElseThrow(() -> new UnauthorizedException("Invalid or expired segment URL"));
+        if (claims.expiresAtEpochSeconds() <= Instant.now().getEpochSecond()) {
+            throw new UnauthorizedException("Invalid or expired segment URL");
+        }
+        requirePremium(claims.userId());
+        return claims;
+    }
+
+    private DownloadToken validateToken(String token, String userId, LocalDateTime now) {
+        // 1. Validate token
+        DownloadToken downloadToken = downloadUrlSigner.isSigned(token)
+                ? verifySignedToken(token, now)
+                : downloadTokenStore
+                        .findValid(token, now)
+                        .orElseThrow(() -> new UnauthorizedException("Invalid or expired download token"));
 
         // 2. Verify token belongs to requesting user
         if (!downloadToken.getUserId().equals(userId)) {
@@ -107,43 +349,92 @@ public class DownloadServiceImpl implements DownloadService {
         // 3. Verify user still has PREMIUM access
         Account account = accountRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Account", "userId", userId));
+        accountTypeCache.put(userId, account.getType());
 
         if (account.getType() != Type.PREMIUM) {
             throw new UnauthorizedException("PREMIUM subscription required to download songs");
         }
 
-        // 4. Get song details
-        Song song = songRepository.findById(downloadToken.getSongId())
-                .orElseThrow(() -> new ResourceNotFoundException("Song", "id", downloadToken.getSongId()));
+        return downloadToken;
+    }
 
-        // 5. Mark token as used
-        downloadToken.setUsed(true);
-        downloadToken.setUsedAt(now);
-        downloadTokenRepository.save(downloadToken);
+    // Signed tokens are verified in memory and mapped to a transient, never-persisted DownloadToken
+    private DownloadToken verifySignedToken(String token, LocalDateTime now) {
+        DownloadUrlSigner.Claims claims = downloadUrlSigner.verify(token)
+                .orElseThrow(() -> new UnauthorizedException("Invalid or expired download token"));
 
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(
+                Instant.ofEpochSecond(claims.expiresAtEpochSeconds()), ZoneId.systemDefault());
+        if (!expiresAt.isAfter(now)) {
+            throw new UnauthorizedException("Invalid or expired download token");
+        }
 
-        // 6. Return file resource from URL
-        try {
-            URL url = new URL(song.getAudioUrl());
-            Resource resource = new UrlResource(url);
+        return DownloadToken.builder()
+                .token(token)
+                .userId(claims.userId())
+                .songId(claims.songId())
+                .expiresAt(expiresAt)
+                .used(false)
+                .build();
+    }
 
-            if (resource.exists() && resource.isReadable()) {
-                return resource;
-            } else {
-                throw new ResourceNotFoundException("File", "url", song.getAudioUrl());
+    private void markUsed(DownloadToken downloadToken, LocalDateTime now) {
+        if (downloadUrlSigner.isSigned(downloadToken.getToken())) {
+            // Replay protection for signed tokens lives in memory, no database write
+            DownloadUrlSigner.Claims claims = downloadUrlSigner.verify(downloadToken.getToken()).orElseThrow();
+            long nowEpochSeconds = now.atZone(ZoneId.systemDefault()).toEpochSecond();
+            if (!seenNonceRegistry.markSeen(claims.nonce(), claims.expiresAtEpochSeconds(), nowEpochSeconds)) {
+                throw new UnauthorizedException("Invalid or expired download token");
             }
-        } catch (MalformedURLException e) {
-            throw new IllegalStateException("Invalid audio URL");
-        } catch (IOException e) {
-            log.error("Error accessing audio file for song {}", song.getSongId(), e);
-            throw new IllegalStateException("Error accessing audio file");
+            return;
+        }
+
+        // Compare-and-set on the used flag: concurrent redeems of one token cannot both succeed
+        if (!downloadTokenStore.markUsed(downloadToken, now)) {
+            throw new UnauthorizedException("Invalid or expired download token");
         }
     }
 
     @Override
-    @Transactional
-    public void cleanupExpiredTokens() {
-        LocalDateTime now = LocalDateTime.now();
-        downloadTokenRepository.deleteByExpiresAtBefore(now);
+    public String redirectUrl(Song song, boolean attachment) {
+        switch (DeliveryMode.fromValue(deliveryMode)) {
+            case CONTENT_ADDRESSED -> {
+                // Songs without extracted metadata keep being served directly until the backfill reaches them
+                if (!StringUtils.hasText(song.getContentHash())) {
+                    return null;
+                }
+                // The key keeps the URL unguessable from a hash alone; both variants are fixed per song for CDN keys
+                String url = "/api/download/content/" + song.getContentHash() + "/" + contentKey(song.getContentHash());
+                return attachment ? url + "/attachment" : url;
+            }
+            case ORIGIN_REDIRECT -> {
+                if (!originUrlSigner.canSign(song.getAudioUrl())) {
+                    log.debug("Origin of song {} cannot sign URLs, proxying", song.getSongId());
+                    return null;
+                }
+                return originUrlSigner.sign(song.getAudioUrl());
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public Song findByContentHash(String contentHash, String key) {
+        if (!downloadUrlSigner.matchesStableKey("content:" + contentHash, key)) {
+            throw new ResourceNotFoundException("Song", "contentHash", contentHash);
+        }
+        return songRepository.findFirstByContentHash(contentHash)
+                .orElseThrow(() -> new ResourceNotFoundException("Song", "contentHash", contentHash));
+    }
+
+    private String contentKey(String contentHash) {
+        return downloadUrlSigner.stableKey("content:" + contentHash);
+    }
+
+    private Resource openAudioResource(Song song) {
+        // Served from the local disk cache, or proxied from origin while the cache fills
+        return audioCacheService.openAudio(song);
     }
 }
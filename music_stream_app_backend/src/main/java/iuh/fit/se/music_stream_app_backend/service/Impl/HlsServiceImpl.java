@@ -0,0 +1,304 @@
+package iuh.fit.se.music_stream_app_backend.service.Impl;
+
+import iuh.fit.se.music_stream_app_backend.exception.ResourceNotFoundException;
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.repository.SongRepository;
+import iuh.fit.se.music_stream_app_backend.service.AudioCacheService;
+import iuh.fit.se.music_stream_app_backend.service.HlsService;
+import iuh.fit.se.music_stream_app_backend.utils.DownloadUrlSigner;
+import iuh.fit.se.music_stream_app_backend.utils.Mp3FrameParser;
+import iuh.fit.se.music_stream_app_backend.utils.PinnedFileResource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Splits MP3s on frame boundaries into HLS packed-audio segments of a few seconds, without
+ * transcoding. Only the segment boundaries are kept (in memory); a segment is the ID3 timestamp
+ * tag followed by a byte range of the song in the audio cache, so HLS shares the cache's byte
+ * budget and LRU instead of keeping a second copy of every song on disk.
+ * <p>
+ * Segment URLs carry the listener's grant, signed when the playlist is authorized and expiring with
+ * the stream token, and a keyed hash of the song id, its content hash and the segment length, so a
+ * playlist for new audio never points at segments cut from the old file.
+ */
+@Service
+@Slf4j
+public class HlsServiceImpl implements HlsService {
+
+    private static final String SEGMENT_PATH = "/api/download/hls/segments/";
+    private static final int MAX_INDEXES_IN_MEMORY = 10_000;
+
+    @Value("${audio.hls.segment-seconds:6}")
+    private double segmentSeconds;
+
+    private final AudioCacheService audioCacheService;
+    private final SongRepository songRepository;
+    private final DownloadUrlSigner downloadUrlSigner;
+    private final Executor audioFetchExecutor;
+
+    private final Map<String, CompletableFuture<List<Segment>>> building = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, List<Segment>> indexes = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public HlsServiceImpl(AudioCacheService audioCacheService,
+                          SongRepository songRepository,
+                          DownloadUrlSigner downloadUrlSigner,
+                          @Qualifier("audioFetchExecutor") Executor audioFetchExecutor) {
+        this.audioCacheService = audioCacheService;
+        this.songRepository = songRepository;
+        this.downloadUrlSigner = downloadUrlSigner;
+        this.audioFetchExecutor = audioFetchExecutor;
+    }
+
+    @Override
+    public String getPlaylist(Song song, String segmentGrant) {
+        String key = segmentKey(song);
+        List<Segment> segments = segments(key, song);
+        double maxDuration = segments.stream().mapToDouble(Segment::duration).max().orElse(segmentSeconds);
+
+        StringBuilder playlist = new StringBuilder()
+                .append("#EXTM3U\n")
+                .append("#EXT-X-VERSION:3\n")
+                .append("#EXT-X-TARGETDURATION:").append((int) Math.ceil(maxDuration)).append('\n')
+                .append("#EXT-X-MEDIA-SEQUENCE:0\n")
+                .append("#EXT-X-PLAYLIST-TYPE:VOD\n")
+                .append("#EXT-X-INDEPENDENT-SEGMENTS\n");
+        for (int i = 0; i < segments.size(); i++) {
+            playlist.append(String.format(Locale.ROOT, "#EXTINF:%.3f,%n", segments.get(i).duration()))
+                    .append(SEGMENT_PATH).append(segmentGrant).append('/').append(key)
+                    .append('/').append(i).append(".mp3\n");
+        }
+        return playlist.append("#EXT-X-ENDLIST\n").toString();
+    }
+
+    @Override
+    public Resource getSegment(String songId, String key, int index) {
+        // Indexes are keyed by song id and key together, so a valid key cannot be replayed against another song
+        List<Segment> segments = cachedSegments(indexKey(songId, key));
+        Song song = null;
+        if (segments == null) {
+            song = songRepository.findById(songId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Song", "id", songId));
+            // A stale or forged key is indistinguishable from a missing segment
+            if (!downloadUrlSigner.matchesStableKey(segmentKeyInput(song), key)) {
+                throw new ResourceNotFoundException("Segment", "key", key);
+            }
+            segments = segments(key, song);
+        }
+        if (index < 0 || index >= segments.size()) {
+            throw new ResourceNotFoundException("Segment", "index", index);
+        }
+
+        Segment segment = segments.get(index);
+        ByteBuffer audio = read(songId, song, segment);
+        ByteBuffer tag = timestampTag(segment.startSeconds());
+
+        byte[] body = new byte[tag.remaining() + audio.remaining()];
+        int tagLength = tag.remaining();
+        tag.get(body, 0, tagLength);
+        audio.get(body, tagLength, audio.remaining());
+        return new ByteArrayResource(body);
+    }
+
+    @Override
+    public void warmAsync(Song song) {
+        try {
+            audioFetchExecutor.execute(() -> {
+                try {
+                    segments(segmentKey(song), song);
+                } catch (RuntimeException e) {
+                    log.warn("HLS warm-up failed for song {}: {}", song.getSongId(), e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("HLS warm-up skipped for song {}, fetch pool is busy", song.getSongId());
+        }
+    }
+
+    // Boundaries of the old audio must not be applied to the new file the cache fetches next
+    @Override
+    public void evict(String songId) {
+        String prefix = songId + "/";
+        lock.lock();
+        try {
+            indexes.keySet().removeIf(key -> key.startsWith(prefix));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reads from the audio cache, re-fetching the song if it was evicted since the index was built
+    private ByteBuffer read(String songId, Song song, Segment segment) {
+        try {
+            return audioCacheService.readSegment(songId, segment.start(), segment.length());
+        } catch (ResourceNotFoundException e) {
+            if (song == null) {
+                song = songRepository.findById(songId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Song", "id", songId));
+            }
+            Resource source = audioCacheService.getOrFetch(song);
+            try {
+                return audioCacheService.readSegment(songId, segment.start(), segment.length());
+            } finally {
+                PinnedFileResource.release(source);
+            }
+        }
+    }
+
+    private List<Segment> cachedSegments(String key) {
+        lock.lock();
+        try {
+            return indexes.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Segment> segments(String segmentKey, Song song) {
+        String key = indexKey(song.getSongId(), segmentKey);
+        List<Segment> cached = cachedSegments(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<Segment> segments = buildShared(key, song);
+
+        lock.lock();
+        try {
+            indexes.put(key, segments);
+            if (indexes.size() > MAX_INDEXES_IN_MEMORY) {
+                indexes.remove(indexes.keySet().iterator().next());
+            }
+        } finally {
+            lock.unlock();
+        }
+        return segments;
+    }
+
+    // Concurrent first plays of the same song scan it once
+    private List<Segment> buildShared(String key, Song song) {
+        CompletableFuture<List<Segment>> mine = new CompletableFuture<>();
+        CompletableFuture<List<Segment>> existing = building.putIfAbsent(key, mine);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        try {
+            List<Segment> segments = build(song);
+            mine.complete(segments);
+            return segments;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            building.remove(key, mine);
+        }
+    }
+
+    private List<Segment> build(Song song) {
+        Resource source = audioCacheService.getOrFetch(song);
+        try {
+            if (!source.isFile()) {
+                throw new IllegalStateException("HLS requires the audio cache to be enabled");
+            }
+            return segment(song, source);
+        } finally {
+            PinnedFileResource.release(source);
+        }
+    }
+
+    private List<Segment> segment(Song song, Resource source) {
+        try (FileChannel channel = FileChannel.open(source.getFile().toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Mp3FrameParser.FrameScan scan = Mp3FrameParser.scan(data);
+            if (scan.frameCount() == 0) {
+                throw new IllegalStateException("Audio file is not a valid MP3 stream");
+            }
+
+            List<Segment> segments = new ArrayList<>();
+            int framesPerSegment = Math.max(1, (int) Math.round(segmentSeconds / scan.frameDurationSeconds()));
+            for (int first = 0; first < scan.frameCount(); first += framesPerSegment) {
+                int last = Math.min(first + framesPerSegment, scan.frameCount()) - 1;
+                long start = scan.offsets()[first];
+                long end = scan.offsets()[last] + scan.lengths()[last];
+                segments.add(new Segment(start, (int) (end - start), first * scan.frameDurationSeconds(),
+                        (last - first + 1) * scan.frameDurationSeconds()));
+            }
+            return List.copyOf(segments);
+        } catch (IOException e) {
+            log.error("Error building HLS segments for song {}", song.getSongId(), e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Packed audio segments must start with an ID3 PRIV frame carrying the 90kHz MPEG-2 timestamp
+    private ByteBuffer timestampTag(double startSeconds) {
+        byte[] owner = "com.apple.streaming.transportStreamTimestamp".getBytes(StandardCharsets.ISO_8859_1);
+        int frameSize = owner.length + 1 + 8;
+        int tagSize = 10 + frameSize;
+
+        ByteBuffer tag = ByteBuffer.allocate(10 + tagSize);
+        tag.put(new byte[]{'I', 'D', '3', 4, 0, 0});
+        putSyncSafe(tag, tagSize);
+        tag.put(new byte[]{'P', 'R', 'I', 'V'});
+        putSyncSafe(tag, frameSize);
+        tag.putShort((short) 0);
+        tag.put(owner).put((byte) 0);
+        tag.putLong(((long) Math.round(startSeconds * 90_000)) & 0x1FFFFFFFFL);
+        return tag.flip();
+    }
+
+    private void putSyncSafe(ByteBuffer buffer, int value) {
+        buffer.put((byte) ((value >> 21) & 0x7F));
+        buffer.put((byte) ((value >> 14) & 0x7F));
+        buffer.put((byte) ((value >> 7) & 0x7F));
+        buffer.put((byte) (value & 0x7F));
+    }
+
+    private String indexKey(String songId, String segmentKey) {
+        return songId + "/" + segmentKey;
+    }
+
+    private String segmentKey(Song song) {
+        return downloadUrlSigner.stableKey(segmentKeyInput(song));
+    }
+
+    // New audio (content hash) or a new segment length yields new URLs, so cached segments never go stale
+    private String segmentKeyInput(Song song) {
+        String version = song.getContentHash() != null ? song.getContentHash() : song.getAudioUrl();
+        return "hls:" + song.getSongId() + ":" + version + ":" + segmentSeconds;
+    }
+
+    private record Segment(long start, int length, double startSeconds, double duration) {
+    }
+}
@@ -0,0 +1,174 @@
+package iuh.fit.se.music_stream_app_backend.service.Impl;
+
+import iuh.fit.se.music_stream_app_backend.models.Album;
+import iuh.fit.se.music_stream_app_backend.models.Artist;
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.repository.AlbumRepository;
+import iuh.fit.se.music_stream_app_backend.repository.ArtistRepository;
+import iuh.fit.se.music_stream_app_backend.repository.SongRepository;
+import iuh.fit.se.music_stream_app_backend.service.CatalogSearchService;
+import iuh.fit.se.music_stream_app_backend.utils.InvertedIndex;
+import iuh.fit.se.music_stream_app_backend.utils.KeysetScanner;
+import iuh.fit.se.music_stream_app_backend.utils.RebuildableIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Keeps one {@link InvertedIndex} per searchable field in memory. The indexes are built once
+ * the application is up, with id + name projections read in batches, and then follow catalog
+ * writes incrementally; a periodic rebuild picks up writes made by other instances. Writes made
+ * while a rebuild scans the catalog are recorded and replayed onto the new indexes before they
+ * replace the old ones, so the swap does not lose them. A search
+ * resolves ids and the total count from the index and loads only the requested page. Queries
+ * without any exact hit are retried typo-tolerant.
+ */
+@Service
+@ConditionalOnProperty(name = "search.engine", havingValue = "memory", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class InMemoryCatalogSearchService implements CatalogSearchService {
+
+    @Value("${search.index.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    @Value("${search.index.album-songs-limit:500}")
+    private int albumSongsLimit;
+
+    private final SongRepository songRepository;
+    private final ArtistRepository artistRepository;
+    private final AlbumRepository albumRepository;
+    private final KeysetScanner keysetScanner;
+    private final MeterRegistry meterRegistry;
+
+    // Replaced as a whole on rebuild, updated in place otherwise
+    private final RebuildableIndex<Indexes> indexes = new RebuildableIndex<>(new Indexes());
+
+    private record Indexes(InvertedIndex songTitles, InvertedIndex songAlbumNames,
+                           InvertedIndex artistNames, InvertedIndex albumNames) {
+        Indexes() {
+            this(new InvertedIndex(), new InvertedIndex(), new InvertedIndex(), new InvertedIndex());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void onReady() {
+        rebuild();
+        meterRegistry.gauge("search.index.documents", indexes, holder -> holder.get().songTitles().size()
+                + holder.get().artistNames().size() + holder.get().albumNames().size());
+    }
+
+    @Override
+    public Page<Song> searchSongs(String query, Pageable pageable) {
+        InvertedIndex.Hits hits = find(indexes.get().songTitles(), query, (int) pageable.getOffset(),
+                pageable.getPageSize());
+        return new PageImpl<>(load(hits.ids(), songRepository::findAllById, Song::getSongId), pageable, hits.total());
+    }
+
+    @Override
+    public List<Song> searchSongsByAlbumName(String query) {
+        InvertedIndex.Hits hits = find(indexes.get().songAlbumNames(), query, 0, albumSongsLimit);
+        return load(hits.ids(), songRepository::findAllById, Song::getSongId);
+    }
+
+    @Override
+    public Page<Artist> searchArtists(String query, Pageable pageable) {
+        InvertedIndex.Hits hits = find(indexes.get().artistNames(), query, (int) pageable.getOffset(),
+                pageable.getPageSize());
+        return new PageImpl<>(load(hits.ids(), artistRepository::findAllById, Artist::getArtistId),
+                pageable, hits.total());
+    }
+
+    @Override
+    public Page<Album> searchAlbums(String query, Pageable pageable) {
+        InvertedIndex.Hits hits = find(indexes.get().albumNames(), query, (int) pageable.getOffset(),
+                pageable.getPageSize());
+        return new PageImpl<>(load(hits.ids(), albumRepository::findAllById, Album::getAlbumId),
+                pageable, hits.total());
+    }
+
+    @Override
+    public void indexSong(Song song) {
+        indexes.write(target -> putSong(target, song));
+    }
+
+    @Override
+    public void removeSong(String songId) {
+        indexes.write(target -> {
+            target.songTitles().remove(songId);
+            target.songAlbumNames().remove(songId);
+        });
+    }
+
+    @Override
+    public void indexArtist(Artist artist) {
+        indexes.write(target -> target.artistNames().put(artist.getArtistId(), artist.getArtistName()));
+    }
+
+    @Override
+    public void removeArtist(String artistId) {
+        indexes.write(target -> target.artistNames().remove(artistId));
+    }
+
+    @Override
+    public void indexAlbum(Album album) {
+        indexes.write(target -> target.albumNames().put(album.getAlbumId(), album.getAlbumName()));
+    }
+
+    @Override
+    public void removeAlbum(String albumId) {
+        indexes.write(target -> target.albumNames().remove(albumId));
+    }
+
+    @Override
+    public void rebuild() {
+        long start = System.nanoTime();
+        Indexes rebuilt = indexes.rebuild(new Indexes(), target -> {
+            keysetScanner.forEach(Song.class, "songId", List.of("title", "album.albumName"), rebuildBatchSize,
+                    Song::getSongId, song -> putSong(target, song));
+            keysetScanner.forEach(Artist.class, "artistId", List.of("artistName"), rebuildBatchSize,
+                    Artist::getArtistId,
+                    artist -> target.artistNames().put(artist.getArtistId(), artist.getArtistName()));
+            keysetScanner.forEach(Album.class, "albumId", List.of("albumName"), rebuildBatchSize,
+                    Album::getAlbumId,
+                    album -> target.albumNames().put(album.getAlbumId(), album.getAlbumName()));
+        });
+
+        log.info("Search index built: {} songs, {} artists, {} albums in {} ms", rebuilt.songTitles().size(),
+                rebuilt.artistNames().size(), rebuilt.albumNames().size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void putSong(Indexes target, Song song) {
+        target.songTitles().put(song.getSongId(), song.getTitle());
+        target.songAlbumNames().put(song.getSongId(), song.getAlbum() != null ? song.getAlbum().getAlbumName() : null);
+    }
+
+    private InvertedIndex.Hits find(InvertedIndex index, String query, int offset, int limit) {
+        InvertedIndex.Hits hits = index.search(query, offset, limit);
+        return hits.total() > 0 ? hits : index.searchFuzzy(query, offset, limit);
+    }
+
+    // One $in query for the page, put back in ranking order
+    private <T> List<T> load(List<String> ids, Function<List<String>, Iterable<T>> finder, Function<T, String> id) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<String, T> byId = new HashMap<>();
+        finder.apply(ids).forEach(document -> byId.put(id.apply(document), document));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+}
@@ -0,0 +1,246 @@
+package iuh.fit.se.music_stream_app_backend.service.Impl;
+
+import iuh.fit.se.music_stream_app_backend.models.DownloadToken;
+import iuh.fit.se.music_stream_app_backend.service.DownloadTokenStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Tokens live in memory and are looked up and consumed without a database round trip. Expiry is
+ * driven by a hashed timing wheel, so removing expired tokens costs O(1) per token instead of a
+ * scan. Issued and used tokens are written behind to download_tokens in batches, for audit and
+ * so a restart reloads the tokens still outstanding; at most one flush interval can be lost.
+ * <p>
+ * The used flag is an in-memory compare-and-set: of two concurrent redeems of one token exactly
+ * one wins. Tokens issued by another instance are read through from Mongo on a miss, but only
+ * redeems on the same instance are serialized, so run one instance or route users stickily.
+ */
+@Service
+@ConditionalOnProperty(name = "download.token.store", havingValue = "memory")
+@RequiredArgsConstructor
+@Slf4j
+public class InMemoryDownloadTokenStore implements DownloadTokenStore {
+
+    @Value("${download.token.memory.tick-ms:1000}")
+    private long tickMillis;
+
+    @Value("${download.token.memory.wheel-size:1024}")
+    private int wheelSize;
+
+    @Value("${download.token.memory.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Entry> tokens = new ConcurrentHashMap<>();
+    // Tokens changed since the last flush; issue + redeem within one interval become one write
+    private final Map<String, DownloadToken> dirty = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private Queue<Entry>[] wheel;
+    private long lastTick;
+    private Counter persisted;
+    // Epoch millis; replaced in tests
+    private LongSupplier clock = System::currentTimeMillis;
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    void init() {
+        wheel = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        lastTick = clock.getAsLong() / tickMillis;
+        persisted = meterRegistry.counter("download.tokens.persisted");
+        meterRegistry.gauge("download.tokens.memory.size", tokens, Map::size);
+        meterRegistry.gauge("download.tokens.memory.pending", dirty, Map::size);
+        recover();
+    }
+
+    @Override
+    public void save(DownloadToken token) {
+        put(token);
+        dirty.put(token.getToken(), token);
+    }
+
+    @Override
+    public void saveAll(List<DownloadToken> tokens) {
+        for (DownloadToken token : tokens) {
+            save(token);
+        }
+    }
+
+    @Override
+    public Optional<DownloadToken> findValid(String token, LocalDateTime now) {
+        Entry entry = tokens.get(token);
+        if (entry == null) {
+            entry = readThrough(token, now);
+        }
+        // The wheel runs once per tick, expiry is still exact on lookup
+        if (entry == null || entry.used.get() || entry.expiresAtMillis <= toMillis(now)) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.token);
+    }
+
+    @Override
+    public boolean markUsed(DownloadToken token, LocalDateTime now) {
+        Entry entry = tokens.get(token.getToken());
+        if (entry == null || !entry.used.compareAndSet(false, true)) {
+            return false;
+        }
+        entry.token.setUsed(true);
+        entry.token.setUsedAt(now);
+        dirty.put(entry.token.getToken(), entry.token);
+        return true;
+    }
+
+    /**
+     * Advances the wheel to the current tick, dropping every token whose slot came due.
+     */
+    @Scheduled(fixedRateString = "${download.token.memory.tick-ms:1000}")
+    public void advance() {
+        long now = clock.getAsLong();
+        long currentTick = now / tickMillis;
+        // After a long pause one full turn visits every slot
+        long from = Math.max(lastTick + 1, currentTick - wheelSize + 1);
+        for (long tick = from; tick <= currentTick; tick++) {
+            Iterator<Entry> slot = wheel[(int) (tick % wheelSize)].iterator();
+            while (slot.hasNext()) {
+                Entry entry = slot.next();
+                // Entries more than one turn ahead stay for a later round
+                if (entry.expiresAtMillis <= now) {
+                    slot.remove();
+                    tokens.remove(entry.token.getToken(), entry);
+                }
+            }
+        }
+        lastTick = currentTick;
+    }
+
+    /**
+     * Writes changed tokens to download_tokens as unordered bulk upserts keyed by token.
+     */
+    @Scheduled(fixedDelayString = "${download.token.memory.flush-interval-ms:500}")
+    public void flush() {
+        if (dirty.isEmpty() || !flushLock.tryLock()) {
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Waits for a running flush, then writes whatever is left
+    @PreDestroy
+    void shutdown() {
+        flushLock.lock();
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void drain() {
+        List<DownloadToken> batch = new ArrayList<>(flushBatchSize);
+        for (String key : dirty.keySet()) {
+            DownloadToken token = dirty.remove(key);
+            if (token != null) {
+                batch.add(token);
+            }
+            if (batch.size() == flushBatchSize) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private void write(List<DownloadToken> batch) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DownloadToken.class);
+        for (DownloadToken token : batch) {
+            Update update = new Update()
+                    .setOnInsert("userId", token.getUserId())
+                    .setOnInsert("songId", token.getSongId())
+                    .setOnInsert("createdAt", token.getCreatedAt())
+                    .set("expiresAt", token.getExpiresAt())
+                    .set("used", token.isUsed())
+                    .set("usedAt", token.getUsedAt());
+            bulk.upsert(Query.query(Criteria.where("token").is(token.getToken())), update);
+        }
+        try {
+            bulk.execute();
+            persisted.increment(batch.size());
+        } catch (RuntimeException e) {
+            // Kept for the next flush; a newer version of the same token wins
+            log.warn("Could not persist {} download tokens: {}", batch.size(), e.getMessage());
+            for (DownloadToken token : batch) {
+                dirty.putIfAbsent(token.getToken(), token);
+            }
+        }
+    }
+
+    private Entry readThrough(String token, LocalDateTime now) {
+        DownloadToken stored = mongoTemplate.findOne(Query.query(Criteria.where("token").is(token)
+                .and("used").is(false).and("expiresAt").gt(now)), DownloadToken.class);
+        return stored != null ? put(stored) : null;
+    }
+
+    private Entry put(DownloadToken token) {
+        Entry entry = new Entry(token, toMillis(token.getExpiresAt()), new AtomicBoolean(token.isUsed()));
+        Entry existing = tokens.putIfAbsent(token.getToken(), entry);
+        if (existing != null) {
+            return existing;
+        }
+        wheel[(int) ((entry.expiresAtMillis / tickMillis) % wheelSize)].add(entry);
+        return entry;
+    }
+
+    // Used tokens are reloaded too, so they cannot be redeemed a second time after a restart
+    private void recover() {
+        List<DownloadToken> outstanding = mongoTemplate.find(
+                Query.query(Criteria.where("expiresAt").gt(LocalDateTime.now())), DownloadToken.class);
+        outstanding.forEach(this::put);
+        log.info("Loaded {} outstanding download tokens into memory", outstanding.size());
+    }
+
+    private long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private record Entry(DownloadToken token, long expiresAtMillis, AtomicBoolean used) {
+    }
+}
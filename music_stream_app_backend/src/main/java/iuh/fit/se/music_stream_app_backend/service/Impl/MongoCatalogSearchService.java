@@ -0,0 +1,80 @@
+package iuh.fit.se.music_stream_app_backend.service.Impl;
+
+import iuh.fit.se.music_stream_app_backend.models.Album;
+import iuh.fit.se.music_stream_app_backend.models.Artist;
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.service.CatalogSearchService;
+import iuh.fit.se.music_stream_app_backend.utils.SearchQueries;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Search on the persisted search keys: every query token must be one of the document's folded
+ * tokens, the last one as an anchored prefix, so both conditions use the multikey index on
+ * search_tokens. Keys are kept current by SearchKeysCallback, the index* methods have nothing to do.
+ * Queries are built and time-bounded by {@link SearchQueries}.
+ */
+@Service
+@ConditionalOnProperty(name = "search.engine", havingValue = "mongo")
+@RequiredArgsConstructor
+public class MongoCatalogSearchService implements CatalogSearchService {
+
+    @Value("${search.index.album-songs-limit:500}")
+    private int albumSongsLimit;
+
+    private final SearchQueries searchQueries;
+
+    @Override
+    public Page<Song> searchSongs(String query, Pageable pageable) {
+        return searchQueries.page(searchQueries.tokens("searchTokens", query), pageable, Song.class);
+    }
+
+    @Override
+    public List<Song> searchSongsByAlbumName(String query) {
+        return searchQueries.list(searchQueries.tokens("albumTokens", query), albumSongsLimit, Song.class);
+    }
+
+    @Override
+    public Page<Artist> searchArtists(String query, Pageable pageable) {
+        return searchQueries.page(searchQueries.tokens("searchTokens", query), pageable, Artist.class);
+    }
+
+    @Override
+    public Page<Album> searchAlbums(String query, Pageable pageable) {
+        return searchQueries.page(searchQueries.tokens("searchTokens", query), pageable, Album.class);
+    }
+
+    @Override
+    public void indexSong(Song song) {
+    }
+
+    @Override
+    public void removeSong(String songId) {
+    }
+
+    @Override
+    public void indexArtist(Artist artist) {
+    }
+
+    @Override
+    public void removeArtist(String artistId) {
+    }
+
+    @Override
+    public void indexAlbum(Album album) {
+    }
+
+    @Override
+    public void removeAlbum(String albumId) {
+    }
+
+    @Override
+    public void rebuild() {
+    }
+}
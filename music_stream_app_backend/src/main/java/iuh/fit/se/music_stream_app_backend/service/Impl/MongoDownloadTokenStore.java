@@ -0,0 +1,59 @@
+package iuh.fit.se.music_stream_app_backend.service.Impl;
+
+import iuh.fit.se.music_stream_app_backend.models.DownloadToken;
+import iuh.fit.se.music_stream_app_backend.repository.DownloadTokenRepository;
+import iuh.fit.se.music_stream_app_backend.service.DownloadTokenStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Every issue and redeem is a round trip to download_tokens.
+ */
+@Service
+@ConditionalOnProperty(name = "download.token.store", havingValue = "mongo", matchIfMissing = true)
+@RequiredArgsConstructor
+public class MongoDownloadTokenStore implements DownloadTokenStore {
+
+    private final DownloadTokenRepository downloadTokenRepository;
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void save(DownloadToken token) {
+        downloadTokenRepository.save(token);
+    }
+
+    @Override
+    public void saveAll(List<DownloadToken> tokens) {
+        downloadTokenRepository.insert(tokens);
+    }
+
+    @Override
+    public Optional<DownloadToken> findValid(String token, LocalDateTime now) {
+        return downloadTokenRepository.findByTokenAndUsedFalseAndExpiresAtAfter(token, now);
+    }
+
+    // findAndModify on used=false: of two concurrent redeems only one matches
+    @Override
+    public boolean markUsed(DownloadToken token, LocalDateTime now) {
+        Query query = Query.query(Criteria.where("token").is(token.getToken()).and("used").is(false));
+        Update update = new Update().set("used", true).set("usedAt", now);
+        DownloadToken updated = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), DownloadToken.class);
+        if (updated == null) {
+            return false;
+        }
+        token.setUsed(true);
+        token.setUsedAt(now);
+        return true;
+    }
+}
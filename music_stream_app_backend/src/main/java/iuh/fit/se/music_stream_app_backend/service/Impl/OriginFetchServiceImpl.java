@@ -0,0 +1,163 @@
+package iuh.fit.se.music_stream_app_backend.service.Impl;
+
+import iuh.fit.se.music_stream_app_backend.exception.ResourceNotFoundException;
+import iuh.fit.se.music_stream_app_backend.exception.ServiceUnavailableException;
+import iuh.fit.se.music_stream_app_backend.service.OriginFetchService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fetches audio from origin with one GET per request over pooled keep-alive connections.
+ * Concurrency is capped per origin host; the permit is held until the body stream is closed.
+ */
+@Service
+@Slf4j
+public class OriginFetchServiceImpl implements OriginFetchService {
+
+    @Value("${audio.origin.connect-timeout-ms:3000}")
+    private long connectTimeoutMs;
+
+    @Value("${audio.origin.request-timeout-ms:10000}")
+    private long requestTimeoutMs;
+
+    @Value("${audio.origin.max-connections-per-host:64}")
+    private int maxConnectionsPerHost;
+
+    @Value("${audio.origin.acquire-timeout-ms:2000}")
+    private long acquireTimeoutMs;
+
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    private HttpClient httpClient;
+
+    @PostConstruct
+    void init() {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Override
+    public OriginResponse fetch(String url, String range, String ifRange) {
+        URI uri = toUri(url);
+        Semaphore permits = hostPermits.computeIfAbsent(uri.getAuthority(), host -> new Semaphore(maxConnectionsPerHost));
+        acquire(permits, uri);
+
+        boolean handedOff = false;
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofMillis(requestTimeoutMs))
+                    .GET();
+            if (StringUtils.hasText(range)) {
+                builder.header("Range", range);
+                if (StringUtils.hasText(ifRange)) {
+                    builder.header("If-Range", ifRange);
+                }
+            }
+
+            HttpResponse<InputStream> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+            int status = response.statusCode();
+            if (status == 404 || status == 410) {
+                response.body().close();
+                throw new ResourceNotFoundException("File", "url", url);
+            }
+            // 416 is passed back to the client as-is, any other error means origin is unusable
+            if (status >= 400 && status != 416) {
+                response.body().close();
+                log.error("Origin returned {} for {}", status, url);
+                throw new ServiceUnavailableException("Error accessing audio file");
+            }
+
+            handedOff = true;
+            return new OriginResponse(status, response.headers(), new PermitReleasingInputStream(response.body(), permits));
+        } catch (IOException e) {
+            log.error("Error fetching audio from origin {}", url, e);
+            throw new ServiceUnavailableException("Error accessing audio file");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while fetching audio file");
+        } finally {
+            if (!handedOff) {
+                permits.release();
+            }
+        }
+    }
+
+    @Override
+    public long download(String url, Path target) {
+        try (OriginResponse response = fetch(url, null, null)) {
+            return Files.copy(response.body(), target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.error("Error downloading audio from origin {}", url, e);
+            throw new ServiceUnavailableException("Error accessing audio file");
+        }
+    }
+
+    private void acquire(Semaphore permits, URI uri) {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Origin connection limit reached for {}", uri.getAuthority());
+                throw new ServiceUnavailableException("Audio origin is busy, please retry");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for audio origin");
+        }
+    }
+
+    private URI toUri(String url) {
+        try {
+            URI uri = new URI(url);
+            if (uri.getScheme() == null || uri.getAuthority() == null) {
+                throw new IllegalStateException("Invalid audio URL");
+            }
+            return uri;
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Invalid audio URL");
+        }
+    }
+
+    // Releases the host permit exactly once, when the caller is done with the body
+    private static final class PermitReleasingInputStream extends FilterInputStream {
+        private final Semaphore permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private PermitReleasingInputStream(InputStream in, Semaphore permits) {
+            super(in);
+            this.permits = permits;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        }
+    }
+}
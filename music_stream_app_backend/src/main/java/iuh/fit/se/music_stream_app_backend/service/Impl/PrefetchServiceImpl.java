@@ -0,0 +1,227 @@
+package iuh.fit.se.music_stream_app_backend.service.Impl;
+
+import iuh.fit.se.music_stream_app_backend.dto.embedded.SongEmbedded;
+import iuh.fit.se.music_stream_app_backend.models.Album;
+import iuh.fit.se.music_stream_app_backend.models.Playlist;
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.repository.AlbumRepository;
+import iuh.fit.se.music_stream_app_backend.repository.PlaylistRepository;
+import iuh.fit.se.music_stream_app_backend.repository.SongRepository;
+import iuh.fit.se.music_stream_app_backend.service.AudioCacheService;
+import iuh.fit.se.music_stream_app_backend.service.PrefetchService;
+import iuh.fit.se.music_stream_app_backend.utils.PinnedFileResource;
+import iuh.fit.se.music_stream_app_backend.utils.TokenBucket;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Warms the audio cache with the tracks that follow the one being streamed in its playlist or
+ * album. Work runs on a small low-priority pool, is deduplicated across listeners, and is paid
+ * for from a global byte budget so prefetching never competes with real plays for origin bandwidth.
+ */
+@Service
+@Slf4j
+public class PrefetchServiceImpl implements PrefetchService {
+
+    private static final int MAX_CONTEXTS_IN_MEMORY = 10_000;
+    private static final long CONTEXT_TTL_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    @Value("${audio.prefetch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audio.prefetch.next-tracks:2}")
+    private int nextTracks;
+
+    @Value("${audio.prefetch.budget-bytes-per-second:10485760}")
+    private long budgetBytesPerSecond;
+
+    @Value("${audio.prefetch.budget-burst-bytes:104857600}")
+    private long budgetBurstBytes;
+
+    private final PlaylistRepository playlistRepository;
+    private final AlbumRepository albumRepository;
+    private final SongRepository songRepository;
+    private final AudioCacheService audioCacheService;
+    private final MeterRegistry meterRegistry;
+    private final Executor prefetchExecutor;
+
+    // Scheduled contexts and songs being fetched, so concurrent listeners trigger one prefetch
+    private final Set<String> scheduled = ConcurrentHashMap.newKeySet();
+    private final Set<String> fetching = ConcurrentHashMap.newKeySet();
+
+    // (context, song) -> next songs; playlists change rarely, so a few minutes of staleness is fine
+    private final LinkedHashMap<String, NextTracks> nextTracksCache = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private TokenBucket budget;
+
+    public PrefetchServiceImpl(PlaylistRepository playlistRepository,
+                               AlbumRepository albumRepository,
+                               SongRepository songRepository,
+                               AudioCacheService audioCacheService,
+                               MeterRegistry meterRegistry,
+                               @Qualifier("prefetchExecutor") Executor prefetchExecutor) {
+        this.playlistRepository = playlistRepository;
+        this.albumRepository = albumRepository;
+        this.songRepository = songRepository;
+        this.audioCacheService = audioCacheService;
+        this.meterRegistry = meterRegistry;
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    @PostConstruct
+    void init() {
+        budget = new TokenBucket(budgetBytesPerSecond, budgetBurstBytes);
+    }
+
+    @Override
+    public void prefetchNext(Song current, String playlistId, String albumId) {
+        if (!enabled || !audioCacheService.isEnabled() || (playlistId == null && albumId == null)) {
+            return;
+        }
+        String contextKey = (playlistId != null ? "p:" + playlistId : "a:" + albumId) + ":" + current.getSongId();
+        if (!scheduled.add(contextKey)) {
+            record("duplicate");
+            return;
+        }
+
+        try {
+            // Lookups and fetches both happen off the request thread
+            prefetchExecutor.execute(() -> {
+                try {
+                    for (Song next : nextSongs(contextKey, current, playlistId, albumId)) {
+                        prefetch(next);
+                    }
+                } catch (RuntimeException e) {
+                    log.debug("Prefetch after song {} failed: {}", current.getSongId(), e.getMessage());
+                } finally {
+                    scheduled.remove(contextKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            scheduled.remove(contextKey);
+            record("rejected");
+        }
+    }
+
+    private void prefetch(Song song) {
+        if (song.getAudioUrl() == null || song.getAudioUrl().isEmpty()) {
+            return;
+        }
+        if (audioCacheService.isCached(song.getSongId())) {
+            record("cached");
+            return;
+        }
+        if (!fetching.add(song.getSongId())) {
+            record("duplicate");
+            return;
+        }
+        try {
+            // Unknown sizes are estimated from the duration at 128 kbps
+            long size = song.getFileSizeBytes() != null
+                    ? song.getFileSizeBytes()
+                    : (long) (song.getDuration() * 128_000 / 8);
+            if (!budget.tryReserve(size)) {
+                record("budget");
+                return;
+            }
+            PinnedFileResource.release(audioCacheService.getOrFetch(song));
+            record("fetched");
+        } finally {
+            fetching.remove(song.getSongId());
+        }
+    }
+
+    private List<Song> nextSongs(String contextKey, Song current, String playlistId, String albumId) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            NextTracks cached = nextTracksCache.get(contextKey);
+            if (cached != null && now - cached.loadedAt < CONTEXT_TTL_NANOS) {
+                return cached.songs;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        List<Song> songs = playlistId != null
+                ? nextInPlaylist(current, playlistId)
+                : nextInAlbum(current, albumId);
+
+        lock.lock();
+        try {
+            nextTracksCache.put(contextKey, new NextTracks(songs, now));
+            if (nextTracksCache.size() > MAX_CONTEXTS_IN_MEMORY) {
+                nextTracksCache.remove(nextTracksCache.keySet().iterator().next());
+            }
+        } finally {
+            lock.unlock();
+        }
+        return songs;
+    }
+
+    // Playlist.songs holds song ids in play order
+    private List<Song> nextInPlaylist(Song current, String playlistId) {
+        Playlist playlist = playlistRepository.findById(playlistId).orElse(null);
+        if (playlist == null || playlist.getSongs() == null) {
+            return List.of();
+        }
+        int index = playlist.getSongs().indexOf(current.getSongId());
+        if (index < 0) {
+            return List.of();
+        }
+        List<String> nextIds = playlist.getSongs().subList(index + 1,
+                Math.min(index + 1 + nextTracks, playlist.getSongs().size()));
+
+        Map<String, Song> byId = new LinkedHashMap<>();
+        songRepository.findAllById(nextIds).forEach(song -> byId.put(song.getSongId(), song));
+        return nextIds.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    // Album.songs only embeds titles, matched against the album's songs
+    private List<Song> nextInAlbum(Song current, String albumId) {
+        Album album = albumRepository.findById(albumId).orElse(null);
+        if (album == null || album.getSongs() == null) {
+            return List.of();
+        }
+        List<String> titles = album.getSongs().stream().map(SongEmbedded::getTitle).toList();
+        int index = titles.indexOf(current.getTitle());
+        if (index < 0) {
+            return List.of();
+        }
+        List<String> nextTitles = titles.subList(index + 1, Math.min(index + 1 + nextTracks, titles.size()));
+
+        List<Song> albumSongs = songRepository.findByAlbumName(album.getAlbumName());
+        List<Song> next = new ArrayList<>();
+        for (String title : nextTitles) {
+            albumSongs.stream()
+                    .filter(song -> title.equals(song.getTitle()))
+                    .findFirst()
+                    .ifPresent(next::add);
+        }
+        return next;
+    }
+
+    private void record(String result) {
+        meterRegistry.counter("audio.prefetch", "result", result).increment();
+    }
+
+    private record NextTracks(List<Song> songs, long loadedAt) {
+    }
+}
@@ -0,0 +1,216 @@
+package iuh.fit.se.music_stream_app_backend.service.Impl;
+
+import iuh.fit.se.music_stream_app_backend.exception.ResourceNotFoundException;
+import iuh.fit.se.music_stream_app_backend.exception.ServiceUnavailableException;
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.repository.SongRepository;
+import iuh.fit.se.music_stream_app_backend.service.AudioCacheService;
+import iuh.fit.se.music_stream_app_backend.service.AudioIndexService;
+import iuh.fit.se.music_stream_app_backend.service.OriginFetchService;
+import iuh.fit.se.music_stream_app_backend.service.PreviewService;
+import iuh.fit.se.music_stream_app_backend.utils.Mp3FrameParser;
+import iuh.fit.se.music_stream_app_backend.utils.Mp3SeekIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Preview clips: the first seconds of a song cut on MP3 frame boundaries. Only the byte range
+ * the seek index points at is read, from the local cache when the song is there and with a
+ * single range request to origin otherwise. Clips live in their own byte-bounded LRU so
+ * catalog browsing does not churn the full-file audio cache.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PreviewServiceImpl implements PreviewService {
+
+    // A VBR estimate can undershoot the cut point, read a little past it
+    private static final double RANGE_MARGIN = 0.1;
+    private static final int MIN_MARGIN_BYTES = 8 * 1024;
+
+    // Requests are rounded up to one of these, so a song has a handful of clips rather than one per second
+    @Value("${audio.preview.lengths-seconds:10,30}")
+    private List<Integer> lengthsSeconds;
+
+    @Value("${audio.preview.cache-max-bytes:67108864}")
+    private long cacheMaxBytes;
+
+    private final SongRepository songRepository;
+    private final AudioCacheService audioCacheService;
+    private final AudioIndexService audioIndexService;
+    private final OriginFetchService originFetchService;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, CompletableFuture<PreviewClip>> building = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, PreviewClip> clips = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private long cachedBytes;
+
+    @Override
+    public PreviewClip getPreview(String songId, int seconds) {
+        int clipSeconds = clipSeconds(seconds);
+        String key = songId + ":" + clipSeconds;
+
+        lock.lock();
+        try {
+            PreviewClip clip = clips.get(key);
+            if (clip != null) {
+                meterRegistry.counter("audio.preview.requests", "result", "hit").increment();
+                return clip;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        meterRegistry.counter("audio.preview.requests", "result", "miss").increment();
+        PreviewClip clip = buildShared(key, songId, clipSeconds);
+        put(key, clip);
+        return clip;
+    }
+
+    @Override
+    public int clipSeconds(int seconds) {
+        return lengthsSeconds.stream()
+                .filter(length -> length >= seconds)
+                .min(Integer::compare)
+                .orElseGet(() -> lengthsSeconds.stream().max(Integer::compare).orElseThrow());
+    }
+
+    // Clips are keyed by song id alone, so new audio must drop them
+    @Override
+    public void evict(String songId) {
+        String prefix = songId + ":";
+        lock.lock();
+        try {
+            Iterator<Map.Entry<String, PreviewClip>> it = clips.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, PreviewClip> entry = it.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    cachedBytes -= entry.getValue().data().length;
+                    it.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A song trending in the catalog is cut once, not once per browsing user
+    private PreviewClip buildShared(String key, String songId, int seconds) {
+        CompletableFuture<PreviewClip> mine = new CompletableFuture<>();
+        CompletableFuture<PreviewClip> existing = building.putIfAbsent(key, mine);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        try {
+            PreviewClip clip = build(songId, seconds);
+            mine.complete(clip);
+            return clip;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            building.remove(key, mine);
+        }
+    }
+
+    private PreviewClip build(String songId, int seconds) {
+        Song song = songRepository.findById(songId)
+                .orElseThrow(() -> new ResourceNotFoundException("Song", "id", songId));
+        if (song.getAudioUrl() == null || song.getAudioUrl().isEmpty()) {
+            throw new ResourceNotFoundException("Audio", "songId", songId);
+        }
+
+        // 1. Byte range from the first frame to a bit past the cut point (ID3 tags and art are skipped)
+        Mp3SeekIndex index = audioIndexService.getIndex(song);
+        long start = index.audioStart();
+        long cut = index.byteOffsetAt(seconds);
+        long end = Math.min(index.audioEnd(),
+                cut + Math.max(MIN_MARGIN_BYTES, (long) ((cut - start) * RANGE_MARGIN)));
+        int length = (int) (end - start);
+
+        // 2. Whole frames only, so every decoder plays the clip without glitches at the end
+        ByteBuffer data = read(song, start, length);
+        Mp3FrameParser.FrameScan scan = Mp3FrameParser.scan(data);
+        if (scan.frameCount() == 0) {
+            throw new IllegalStateException("Audio file is not a valid MP3 stream");
+        }
+        int frames = (int) Math.min(scan.frameCount(), Math.ceil(seconds / scan.frameDurationSeconds()));
+        int from = (int) scan.offsets()[0];
+        int to = (int) (scan.offsets()[frames - 1] + scan.lengths()[frames - 1]);
+
+        byte[] clip = new byte[to - from];
+        data.get(from, clip);
+        double duration = Math.round(frames * scan.frameDurationSeconds() * 1000) / 1000.0;
+        String version = song.getContentHash() != null ? song.getContentHash().substring(0, 16) : songId;
+        return new PreviewClip(clip, duration, "\"preview-" + version + "-" + seconds + "\"");
+    }
+
+    private ByteBuffer read(Song song, long start, int length) {
+        if (audioCacheService.isCached(song.getSongId())) {
+            try {
+                return audioCacheService.readSegment(song.getSongId(), start, length);
+            } catch (ResourceNotFoundException e) {
+                // Evicted since isCached, read the range from origin instead
+                log.debug("Song {} left the audio cache, reading preview from origin", song.getSongId());
+            }
+        }
+        try (OriginFetchService.OriginResponse response = originFetchService.fetch(
+                song.getAudioUrl(), "bytes=" + start + "-" + (start + length - 1), null)) {
+            InputStream body = response.body();
+            if (response.status() == 200) {
+                // Origin ignored the Range header
+                body.skipNBytes(start);
+            }
+            return ByteBuffer.wrap(body.readNBytes(length));
+        } catch (IOException e) {
+            log.error("Error reading preview of song {}", song.getSongId(), e);
+            throw new ServiceUnavailableException("Error accessing audio file");
+        }
+    }
+
+    private void put(String key, PreviewClip clip) {
+        if (clip.data().length > cacheMaxBytes) {
+            return;
+        }
+        lock.lock();
+        try {
+            PreviewClip previous = clips.put(key, clip);
+            if (previous != null) {
+                cachedBytes -= previous.data().length;
+            }
+            cachedBytes += clip.data().length;
+
+            Iterator<PreviewClip> eldest = clips.values().iterator();
+            while (cachedBytes > cacheMaxBytes && eldest.hasNext()) {
+                cachedBytes -= eldest.next().data().length;
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
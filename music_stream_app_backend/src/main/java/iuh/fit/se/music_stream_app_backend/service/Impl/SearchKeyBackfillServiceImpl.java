@@ -0,0 +1,94 @@
+package iuh.fit.se.music_stream_app_backend.service.Impl;
+
+import iuh.fit.se.music_stream_app_backend.models.Album;
+import iuh.fit.se.music_stream_app_backend.models.Artist;
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.service.SearchKeyBackfillService;
+import iuh.fit.se.music_stream_app_backend.utils.KeysetScanner;
+import iuh.fit.se.music_stream_app_backend.utils.SearchKeys;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Online migration for search keys: documents without them are read in small batches (name
+ * fields only), the keys are computed with {@link SearchKeys} and written with one unordered
+ * bulk update per batch, with a pause in between so the catalog stays responsive.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SearchKeyBackfillServiceImpl implements SearchKeyBackfillService {
+
+    @Value("${search.keys.backfill-batch-size:500}")
+    private int batchSize;
+
+    @Value("${search.keys.backfill-pause-ms:100}")
+    private long pauseMillis;
+
+    private final MongoTemplate mongoTemplate;
+    private final KeysetScanner keysetScanner;
+
+    @Override
+    public int backfill() {
+        int updated = 0;
+        updated += backfill(Song.class, "songId", "titleFolded", List.of("title", "album.albumName"),
+                Song::getSongId, song -> new Update()
+                        .set("titleFolded", song.getTitleFolded())
+                        .set("searchTokens", song.getSearchTokens())
+                        .set("albumTokens", song.getAlbumTokens()));
+        updated += backfill(Artist.class, "artistId", "artistNameFolded", List.of("artistName"),
+                Artist::getArtistId, artist -> new Update()
+                        .set("artistNameFolded", artist.getArtistNameFolded())
+                        .set("searchTokens", artist.getSearchTokens()));
+        updated += backfill(Album.class, "albumId", "albumNameFolded", List.of("albumName"),
+                Album::getAlbumId, album -> new Update()
+                        .set("albumNameFolded", album.getAlbumNameFolded())
+                        .set("searchTokens", album.getSearchTokens()));
+        if (updated > 0) {
+            log.info("Search key backfill updated {} documents", updated);
+        }
+        return updated;
+    }
+
+    // Keyset pagination on _id over documents still missing the marker field
+    private <T> int backfill(Class<T> type, String idProperty, String marker, List<String> fields,
+                             Function<T, String> id, Function<T, Update> keys) {
+        if (Thread.currentThread().isInterrupted()) {
+            return 0;
+        }
+        Criteria missing = Criteria.where(marker).exists(false);
+        return keysetScanner.forEachBatch(type, idProperty, missing, fields, batchSize, id, batch -> {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type);
+            for (T document : batch) {
+                SearchKeys.apply(document);
+                // Only the keys are written; a concurrent save recomputes them anyway
+                bulk.updateOne(Query.query(Criteria.where(idProperty).is(id.apply(document))),
+                        keys.apply(document));
+            }
+            bulk.execute();
+            return batch.size() < batchSize || pause();
+        });
+    }
+
+    // False when interrupted, which ends the backfill
+    private boolean pause() {
+        try {
+            Thread.sleep(Duration.ofMillis(pauseMillis));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -2,30 +2,82 @@ package iuh.fit.se.music_stream_app_backend.service.Impl;
 
 import iuh.fit.se.music_stream_app_backend.exception.ResourceNotFoundException;
 import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.models.enums.SearchMode;
 import iuh.fit.se.music_stream_app_backend.repository.SongRepository;
+import iuh.fit.se.music_stream_app_backend.service.AudioCacheService;
+import iuh.fit.se.music_stream_app_backend.service.AudioIndexService;
+import iuh.fit.se.music_stream_app_backend.service.AudioMetadataService;
+import iuh.fit.se.music_stream_app_backend.service.CatalogSearchService;
+import iuh.fit.se.music_stream_app_backend.service.HlsService;
+import iuh.fit.se.music_stream_app_backend.service.PreviewService;
 import iuh.fit.se.music_stream_app_backend.service.SongService;
+import iuh.fit.se.music_stream_app_backend.service.SuggestService;
+import iuh.fit.se.music_stream_app_backend.utils.SearchQueries;
+import iuh.fit.se.music_stream_app_backend.utils.SearchResultCache;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 
-import java.text.Normalizer;
 import java.util.List;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 @Service
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @RequiredArgsConstructor
 public class SongServiceImpl implements SongService {
     SongRepository songRepository;
+    HlsService hlsService;
+    AudioCacheService audioCacheService;
+    AudioIndexService audioIndexService;
+    PreviewService previewService;
+    AudioMetadataService audioMetadataService;
+    CatalogSearchService catalogSearchService;
+    SuggestService suggestService;
+    SearchResultCache searchResultCache;
+    SearchQueries searchQueries;
+
+    @NonFinal
+    @Value("${audio.hls.warm-on-ingest:false}")
+    boolean warmHlsOnIngest;
+
+    @NonFinal
+    @Value("${audio.metadata.extract-on-ingest:true}")
+    boolean extractMetadataOnIngest;
+
+    @NonFinal
+    @Value("${search.index.album-songs-limit:500}")
+    int albumSongsLimit;
 
     @Override
     public Song AddSong(Song song) {
-        return songRepository.save(song);
+        Song previous = song.getSongId() != null ? songRepository.findById(song.getSongId()).orElse(null) : null;
+        Song saved = songRepository.save(song);
+        // An update pointing at new audio must not keep serving the old file or anything cut from it
+        if (previous != null && !Objects.equals(previous.getAudioUrl(), saved.getAudioUrl())) {
+            evictAudio(saved.getSongId());
+        }
+        catalogSearchService.indexSong(saved);
+        suggestService.indexSong(saved);
+        searchResultCache.invalidate(SearchResultCache.Section.SONGS);
+        if (saved.getAudioUrl() == null || saved.getAudioUrl().isEmpty()) {
+            return saved;
+        }
+
+        // Size, bitrate, duration and content hash are read from the audio itself
+        if (extractMetadataOnIngest) {
+            audioMetadataService.extractAsync(saved);
+        }
+        // Build HLS segments ahead of the first playback
+        if (warmHlsOnIngest) {
+            hlsService.warmAsync(saved);
+        }
+        return saved;
     }
 
     @Override
@@ -40,23 +92,23 @@ public class SongServiceImpl implements SongService {
     }
 
     @Override
-    public List<Song> getSongsByAlbumName(String albumName) {
-        // Cách 1: Tìm kiếm thông thường (case-insensitive)
-        String searchTerm = albumName.trim();
-        List<Song> result = songRepository.findByAlbumNameRegex(searchTerm);
-
-        // Nếu không tìm thấy, thử loại bỏ dấu và tìm lại
-        if (result.isEmpty()) {
-            String normalizedSearch = removeAccents(searchTerm).toLowerCase();
-            List<Song> allSongs = songRepository.findAll();
-
-            result = allSongs.stream()
-                .filter(song -> song.getAlbum() != null &&
-                               removeAccents(song.getAlbum().getAlbumName()).toLowerCase().contains(normalizedSearch))
-                .collect(Collectors.toList());
-        }
-
-        return result;
+    public List<Song> getSongsByAlbumName(String albumName, SearchMode mode) {
+        return searchResultCache.get(SearchResultCache.Section.SONGS, "songsByAlbumName", mode, albumName,
+                Pageable.unpaged(), () -> {
+                    // Cách 1: Các từ của tên album (dùng index album_tokens); chỉ quét chuỗi con khi được yêu cầu
+                    String searchTerm = albumName.trim();
+                    Criteria criteria = mode == SearchMode.CONTAINS
+                            ? searchQueries.name(mode, null, "album.albumName", searchTerm)
+                            : searchQueries.tokens("albumTokens", searchTerm);
+                    List<Song> result = searchQueries.list(criteria, albumSongsLimit, Song.class);
+
+                    // Nếu không tìm thấy, tìm không dấu qua search index
+                    if (result.isEmpty()) {
+                        result = catalogSearchService.searchSongsByAlbumName(searchTerm);
+                    }
+
+                    return result;
+                });
     }
 
     @Override
@@ -65,47 +117,40 @@ public class SongServiceImpl implements SongService {
     }
 
     @Override
-    public Page<Song> getSongsByName(String name, Pageable pageable) {
-        // Cách 1: Tìm kiếm thông thường (case-insensitive)
-        String searchTerm = name.trim();
-        Page<Song> result = songRepository.findByTitleRegex(searchTerm, pageable);
-
-        // Nếu không tìm thấy, thử loại bỏ dấu và tìm lại
-        if (result.isEmpty()) {
-            // Lấy tất cả songs và filter trong Java
-            String normalizedSearch = removeAccents(searchTerm).toLowerCase();
-            List<Song> allSongs = songRepository.findAll();
-
-            List<Song> filtered = allSongs.stream()
-                .filter(song -> removeAccents(song.getTitle()).toLowerCase().contains(normalizedSearch))
-                .skip((long) pageable.getPageNumber() * pageable.getPageSize())
-                .limit(pageable.getPageSize())
-                .collect(Collectors.toList());
-
-            long total = allSongs.stream()
-                .filter(song -> removeAccents(song.getTitle()).toLowerCase().contains(normalizedSearch))
-                .count();
-
-            return new PageImpl<>(filtered, pageable, total);
-        }
-
-        return result;
+    public Page<Song> getSongsByName(String name, SearchMode mode, Pageable pageable) {
+        return searchResultCache.get(SearchResultCache.Section.SONGS, "songsByName", mode, name, pageable, () -> {
+            // Cách 1: Tiền tố của tên đã chuẩn hoá (dùng index title_folded)
+            String searchTerm = name.trim();
+            Page<Song> result = searchQueries.page(
+                    searchQueries.name(mode, "titleFolded", "title", searchTerm), pageable, Song.class);
+
+            // Nếu không tìm thấy, tìm không dấu qua search index (không đọc toàn bộ collection)
+            if (result.isEmpty()) {
+                return catalogSearchService.searchSongs(searchTerm, pageable);
+            }
+
+            return result;
+        });
     }
 
     @Override
     public boolean deleteById(String id) {
         if (songRepository.existsById(id)) {
             songRepository.deleteById(id);
+            catalogSearchService.removeSong(id);
+            suggestService.removeSong(id);
+            searchResultCache.invalidate(SearchResultCache.Section.SONGS);
+            evictAudio(id);
             return true;
         }
         return false;
     }
 
-    // Helper method để loại bỏ dấu tiếng Việt
-    private String removeAccents(String text) {
-        if (text == null) return "";
-        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
-        Pattern pattern = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
-        return pattern.matcher(normalized).replaceAll("");
+    // Everything derived from a song's audio is keyed by song id, and dropped with it
+    private void evictAudio(String songId) {
+        audioCacheService.evict(songId);
+        audioIndexService.evict(songId);
+        hlsService.evict(songId);
+        previewService.evict(songId);
     }
 }
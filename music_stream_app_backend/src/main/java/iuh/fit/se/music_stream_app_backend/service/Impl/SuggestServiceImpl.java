@@ -0,0 +1,130 @@
+package iuh.fit.se.music_stream_app_backend.service.Impl;
+
+import iuh.fit.se.music_stream_app_backend.dto.response.SuggestionResponse;
+import iuh.fit.se.music_stream_app_backend.models.Album;
+import iuh.fit.se.music_stream_app_backend.models.Artist;
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.service.SuggestService;
+import iuh.fit.se.music_stream_app_backend.utils.KeysetScanner;
+import iuh.fit.se.music_stream_app_backend.utils.RebuildableIndex;
+import iuh.fit.se.music_stream_app_backend.utils.SuggestionTrie;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Type-ahead over song titles, artist names and album names, ranked by popularity. The trie is
+ * built from projections once the application is up, follows catalog writes incrementally and
+ * is rebuilt together with the search index. Writes made during a rebuild are replayed onto the
+ * new trie before it replaces the old one.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SuggestServiceImpl implements SuggestService {
+
+    private static final String SONG = "song";
+    private static final String ARTIST = "artist";
+    private static final String ALBUM = "album";
+
+    @Value("${search.suggest.top-k:10}")
+    private int topK;
+
+    @Value("${search.suggest.max-word-starts:6}")
+    private int maxWordStarts;
+
+    @Value("${search.index.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    private final KeysetScanner keysetScanner;
+
+    private RebuildableIndex<SuggestionTrie> trie;
+
+    @PostConstruct
+    void init() {
+        trie = new RebuildableIndex<>(new SuggestionTrie(topK, maxWordStarts));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void onReady() {
+        rebuild();
+    }
+
+    @Override
+    public List<SuggestionResponse> suggest(String query, int limit) {
+        return trie.get().suggest(query, Math.min(limit, topK)).stream()
+                .map(suggestion -> SuggestionResponse.builder()
+                        .type(suggestion.type())
+                        .id(suggestion.id())
+                        .text(suggestion.text())
+                        .score(suggestion.score())
+                        .build())
+                .toList();
+    }
+
+    @Override
+    public void indexSong(Song song) {
+        trie.write(target -> target.put(songSuggestion(song)));
+    }
+
+    @Override
+    public void removeSong(String songId) {
+        trie.write(target -> target.remove(SONG, songId));
+    }
+
+    @Override
+    public void indexArtist(Artist artist) {
+        trie.write(target -> target.put(artistSuggestion(artist)));
+    }
+
+    @Override
+    public void removeArtist(String artistId) {
+        trie.write(target -> target.remove(ARTIST, artistId));
+    }
+
+    @Override
+    public void indexAlbum(Album album) {
+        trie.write(target -> target.put(albumSuggestion(album)));
+    }
+
+    @Override
+    public void removeAlbum(String albumId) {
+        trie.write(target -> target.remove(ALBUM, albumId));
+    }
+
+    @Override
+    public void rebuild() {
+        long start = System.nanoTime();
+        SuggestionTrie rebuilt = trie.rebuild(new SuggestionTrie(topK, maxWordStarts), target -> {
+            // Only the name and popularity fields are read
+            keysetScanner.forEach(Song.class, "songId", List.of("title", "listens", "likes"), rebuildBatchSize,
+                    Song::getSongId, song -> target.put(songSuggestion(song)));
+            keysetScanner.forEach(Artist.class, "artistId", List.of("artistName", "followers"), rebuildBatchSize,
+                    Artist::getArtistId, artist -> target.put(artistSuggestion(artist)));
+            keysetScanner.forEach(Album.class, "albumId", List.of("albumName", "listens", "favourites"),
+                    rebuildBatchSize, Album::getAlbumId, album -> target.put(albumSuggestion(album)));
+        });
+
+        log.info("Suggestion trie built: {} entries in {} ms", rebuilt.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private SuggestionTrie.Suggestion songSuggestion(Song song) {
+        return new SuggestionTrie.Suggestion(SONG, song.getSongId(), song.getTitle(), song.getListens() + song.getLikes());
+    }
+
+    private SuggestionTrie.Suggestion artistSuggestion(Artist artist) {
+        return new SuggestionTrie.Suggestion(ARTIST, artist.getArtistId(), artist.getArtistName(), artist.getFollowers());
+    }
+
+    private SuggestionTrie.Suggestion albumSuggestion(Album album) {
+        return new SuggestionTrie.Suggestion(ALBUM, album.getAlbumId(), album.getAlbumName(),
+                album.getListens() + album.getFavourites());
+    }
+}
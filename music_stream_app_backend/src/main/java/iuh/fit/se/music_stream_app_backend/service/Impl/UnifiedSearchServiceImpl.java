@@ -0,0 +1,181 @@
+package iuh.fit.se.music_stream_app_backend.service.Impl;
+
+import iuh.fit.se.music_stream_app_backend.dto.response.SearchResponse;
+import iuh.fit.se.music_stream_app_backend.dto.response.SearchResultResponse;
+import iuh.fit.se.music_stream_app_backend.models.Album;
+import iuh.fit.se.music_stream_app_backend.models.Artist;
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.service.CatalogSearchService;
+import iuh.fit.se.music_stream_app_backend.service.UnifiedSearchService;
+import iuh.fit.se.music_stream_app_backend.utils.TextNormalizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * One search over songs, artists and albums. The three sources run concurrently on virtual
+ * threads and share a single deadline; a source that has not answered by then is left out and
+ * the response is flagged partial instead of waiting for it. Results are merged on one score:
+ * how well the name matches the query, boosted by popularity.
+ */
+@Service
+@Slf4j
+public class UnifiedSearchServiceImpl implements UnifiedSearchService {
+
+    private static final String SONG = "song";
+    private static final String ARTIST = "artist";
+    private static final String ALBUM = "album";
+
+    // A hundredfold more plays is worth about one step of match quality
+    private static final double POPULARITY_WEIGHT = 0.1;
+
+    @Value("${search.unified.timeout-ms:300}")
+    private long timeoutMs;
+
+    @Value("${search.unified.max-limit:50}")
+    private int maxLimit;
+
+    private final CatalogSearchService catalogSearchService;
+    private final MeterRegistry meterRegistry;
+    private final Executor searchExecutor;
+
+    public UnifiedSearchServiceImpl(CatalogSearchService catalogSearchService,
+                                    MeterRegistry meterRegistry,
+                                    @Qualifier("searchExecutor") Executor searchExecutor) {
+        this.catalogSearchService = catalogSearchService;
+        this.meterRegistry = meterRegistry;
+        this.searchExecutor = searchExecutor;
+    }
+
+    @Override
+    public SearchResponse search(String query, int limit) {
+        int size = Math.min(Math.max(1, limit), maxLimit);
+        String folded = TextNormalizer.fold(query);
+        if (folded.isEmpty()) {
+            return SearchResponse.builder().query(query).results(List.of()).missing(List.of()).build();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        // 1. Fan out, every source asks for a full page so the merge can pick the best of each
+        Map<String, CompletableFuture<List<SearchResultResponse>>> sources = new LinkedHashMap<>();
+        sources.put(SONG, submit(SONG, () -> songs(query, folded, size)));
+        sources.put(ARTIST, submit(ARTIST, () -> artists(query, folded, size)));
+        sources.put(ALBUM, submit(ALBUM, () -> albums(query, folded, size)));
+
+        // 2. Collect until the shared deadline, whatever is late is dropped
+        List<SearchResultResponse> results = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<List<SearchResultResponse>>> source : sources.entrySet()) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                results.addAll(source.getValue().get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                // The query runs to completion in the background, bounded by its own server-side limit
+                source.getValue().cancel(true);
+                missing.add(source.getKey());
+                log.debug("Search source {} missed the {} ms deadline for '{}'", source.getKey(), timeoutMs, query);
+            } catch (ExecutionException e) {
+                missing.add(source.getKey());
+                log.warn("Search source {} failed for '{}': {}", source.getKey(), query, e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                missing.add(source.getKey());
+            }
+        }
+
+        // 3. Merge on one score
+        results.sort(Comparator.comparingDouble(SearchResultResponse::getScore).reversed());
+        List<SearchResultResponse> page = results.size() > size ? new ArrayList<>(results.subList(0, size)) : results;
+
+        boolean partial = !missing.isEmpty();
+        meterRegistry.counter("search.unified.requests", "result", partial ? "partial" : "complete").increment();
+        return SearchResponse.builder()
+                .query(query)
+                .results(page)
+                .partial(partial)
+                .missing(missing)
+                .build();
+    }
+
+    private CompletableFuture<List<SearchResultResponse>> submit(String source,
+                                                                 Supplier<List<SearchResultResponse>> search) {
+        Timer timer = meterRegistry.timer("search.unified.source", "source", source);
+        try {
+            return CompletableFuture.supplyAsync(() -> timer.record(search), searchExecutor);
+        } catch (RejectedExecutionException e) {
+            // Over the concurrency cap, the source counts as missing rather than queueing behind others
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private List<SearchResultResponse> songs(String query, String folded, int size) {
+        return catalogSearchService.searchSongs(query, PageRequest.of(0, size)).stream()
+                .map(song -> result(SONG, song.getSongId(), song.getTitle(), folded,
+                        song.getListens() + song.getLikes(), song))
+                .toList();
+    }
+
+    private List<SearchResultResponse> artists(String query, String folded, int size) {
+        return catalogSearchService.searchArtists(query, PageRequest.of(0, size)).stream()
+                .map(artist -> result(ARTIST, artist.getArtistId(), artist.getArtistName(), folded,
+                        artist.getFollowers(), artist))
+                .toList();
+    }
+
+    private List<SearchResultResponse> albums(String query, String folded, int size) {
+        return catalogSearchService.searchAlbums(query, PageRequest.of(0, size)).stream()
+                .map(album -> result(ALBUM, album.getAlbumId(), album.getAlbumName(), folded,
+                        album.getListens() + album.getFavourites(), album))
+                .toList();
+    }
+
+    private SearchResultResponse result(String type, String id, String text, String folded, long popularity,
+                                        Object item) {
+        double score = relevance(TextNormalizer.fold(text), folded)
+                * (1 + POPULARITY_WEIGHT * Math.log10(1 + Math.max(0, popularity)));
+        return SearchResultResponse.builder()
+                .type(type)
+                .id(id)
+                .text(text)
+                .score(Math.round(score * 1000) / 1000.0)
+                .item(item)
+                .build();
+    }
+
+    // Exact name, name prefix, word prefix, all words somewhere; anything else matched with typos
+    private double relevance(String name, String query) {
+        if (name.equals(query)) {
+            return 1.0;
+        }
+        if (name.startsWith(query)) {
+            return 0.85;
+        }
+        if (name.contains(" " + query)) {
+            return 0.7;
+        }
+        List<String> words = TextNormalizer.tokenize(name);
+        for (String token : TextNormalizer.tokenize(query)) {
+            if (words.stream().noneMatch(word -> word.startsWith(token))) {
+                return 0.3;
+            }
+        }
+        return 0.55;
+    }
+}
@@ -0,0 +1,166 @@
+package iuh.fit.se.music_stream_app_backend.service.Impl;
+
+import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.service.AudioCacheService;
+import iuh.fit.se.music_stream_app_backend.service.ZipExportService;
+import iuh.fit.se.music_stream_app_backend.utils.PinnedFileResource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams a ZIP of songs straight to the response. MP3s are already compressed, so local files
+ * are written as STORED entries; the next track is fetched and checksummed while the current
+ * one is being written.
+ */
+@Service
+@Slf4j
+public class ZipExportServiceImpl implements ZipExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final AudioCacheService audioCacheService;
+    private final Executor audioFetchExecutor;
+
+    public ZipExportServiceImpl(AudioCacheService audioCacheService,
+                                @Qualifier("audioFetchExecutor") Executor audioFetchExecutor) {
+        this.audioCacheService = audioCacheService;
+        this.audioFetchExecutor = audioFetchExecutor;
+    }
+
+    @Override
+    public void writeZip(List<Song> songs, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        // Only used for entries that cannot be STORED (origin streams of unknown size/CRC)
+        zip.setLevel(Deflater.NO_COMPRESSION);
+
+        Set<String> usedNames = new HashSet<>();
+        CompletableFuture<PreparedTrack> next = songs.isEmpty() ? null : prepareAsync(songs.get(0));
+
+        try {
+            for (int i = 0; i < songs.size(); i++) {
+                PreparedTrack current = await(next);
+                next = i + 1 < songs.size() ? prepareAsync(songs.get(i + 1)) : null;
+
+                String name = entryName(i + 1, songs.get(i), usedNames);
+                // The cached file stays pinned from prepare until it has been copied
+                try {
+                    if (current.file() != null) {
+                        ZipEntry entry = new ZipEntry(name);
+                        entry.setMethod(ZipEntry.STORED);
+                        entry.setSize(current.size());
+                        entry.setCompressedSize(current.size());
+                        entry.setCrc(current.crc());
+                        zip.putNextEntry(entry);
+                        Files.copy(current.file(), zip);
+                    } else {
+                        zip.putNextEntry(new ZipEntry(name));
+                        try (InputStream in = current.resource().getInputStream()) {
+                            in.transferTo(zip);
+                        }
+                    }
+                } finally {
+                    PinnedFileResource.release(current.resource());
+                }
+                zip.closeEntry();
+                zip.flush();
+            }
+        } finally {
+            // Left over when writing failed (e.g. the client aborted): unpin it whenever it is ready
+            if (next != null) {
+                next.thenAccept(track -> PinnedFileResource.release(track.resource()));
+            }
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    private CompletableFuture<PreparedTrack> prepareAsync(Song song) {
+        try {
+            return CompletableFuture.supplyAsync(() -> prepare(song), audioFetchExecutor);
+        } catch (RejectedExecutionException e) {
+            // Fetch pool saturated: prepare on the writing thread instead
+            return CompletableFuture.completedFuture(prepare(song));
+        }
+    }
+
+    // Brings the track into the local cache and computes the CRC that STORED entries need up front
+    private PreparedTrack prepare(Song song) {
+        Resource resource = audioCacheService.getOrFetch(song);
+        if (!resource.isFile()) {
+            return new PreparedTrack(resource, null, 0, 0);
+        }
+        try {
+            Path file = resource.getFile().toPath();
+            CRC32 crc = new CRC32();
+            long size = 0;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                int read;
+                while ((read = channel.read(buffer)) != -1) {
+                    buffer.flip();
+                    crc.update(buffer);
+                    buffer.clear();
+                    size += read;
+                }
+            }
+            return new PreparedTrack(resource, file, size, crc.getValue());
+        } catch (IOException e) {
+            PinnedFileResource.release(resource);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private PreparedTrack await(CompletableFuture<PreparedTrack> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private String entryName(int position, Song song, Set<String> usedNames) {
+        String artist = song.getArtist() != null && !song.getArtist().isEmpty()
+                ? String.join(", ", song.getArtist()) : "Unknown Artist";
+        String title = song.getTitle() != null ? song.getTitle() : song.getSongId();
+        String base = String.format("%02d - %s - %s", position, artist, title)
+                .replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_");
+
+        String name = base + ".mp3";
+        for (int suffix = 2; !usedNames.add(name); suffix++) {
+            name = base + " (" + suffix + ").mp3";
+        }
+        return name;
+    }
+
+    private record PreparedTrack(Resource resource, Path file, long size, long crc) {
+    }
+}
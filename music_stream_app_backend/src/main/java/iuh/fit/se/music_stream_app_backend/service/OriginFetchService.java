@@ -0,0 +1,24 @@
+package iuh.fit.se.music_stream_app_backend.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpHeaders;
+import java.nio.file.Path;
+
+public interface OriginFetchService {
+    OriginResponse fetch(String url, String range, String ifRange);
+
+    long download(String url, Path target);
+
+    record OriginResponse(int status, HttpHeaders headers, InputStream body) implements Closeable {
+        public String header(String name) {
+            return headers.firstValue(name).orElse(null);
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package iuh.fit.se.music_stream_app_backend.service;
+
+import iuh.fit.se.music_stream_app_backend.models.Song;
+
+public interface PrefetchService {
+    void prefetchNext(Song current, String playlistId, String albumId);
+}
@@ -0,0 +1,18 @@
+package iuh.fit.se.music_stream_app_backend.service;
+
+public interface PreviewService {
+    PreviewClip getPreview(String songId, int seconds);
+
+    /**
+     * The clip length actually served for a requested length: one of a few fixed lengths.
+     */
+    int clipSeconds(int seconds);
+
+    void evict(String songId);
+
+    /**
+     * The first {@code durationSeconds} of a song as whole MP3 frames.
+     */
+    record PreviewClip(byte[] data, double durationSeconds, String etag) {
+    }
+}
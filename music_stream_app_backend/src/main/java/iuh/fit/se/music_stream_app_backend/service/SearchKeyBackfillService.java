@@ -0,0 +1,8 @@
+package iuh.fit.se.music_stream_app_backend.service;
+
+public interface SearchKeyBackfillService {
+    /**
+     * Writes search keys on catalog documents saved before they existed; returns how many were updated.
+     */
+    int backfill();
+}
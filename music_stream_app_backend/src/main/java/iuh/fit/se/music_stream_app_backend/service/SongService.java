@@ -1,6 +1,7 @@
 package iuh.fit.se.music_stream_app_backend.service;
 
 import iuh.fit.se.music_stream_app_backend.models.Song;
+import iuh.fit.se.music_stream_app_backend.models.enums.SearchMode;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -10,8 +11,8 @@ public interface SongService {
     Song AddSong(Song song);
     Page<Song> findAllSongs(Pageable pageable);
     Song findSongById(String id);
-    List<Song> getSongsByAlbumName(String albumName);
+    List<Song> getSongsByAlbumName(String albumName, SearchMode mode);
     Page<Song> getSongsByArtist(List<String> artistNames, Pageable pageable);
-    Page<Song> getSongsByName(String name, Pageable pageable);
+    Page<Song> getSongsByName(String name, SearchMode mode, Pageable pageable);
     boolean deleteById(String id);
 }
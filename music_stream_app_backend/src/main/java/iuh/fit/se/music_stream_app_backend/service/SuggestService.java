@@ -0,0 +1,26 @@
+package iuh.fit.se.music_stream_app_backend.service;
+
+import iuh.fit.se.music_stream_app_backend.dto.response.SuggestionResponse;
+import iuh.fit.se.music_stream_app_backend.models.Album;
+import iuh.fit.se.music_stream_app_backend.models.Artist;
+import iuh.fit.se.music_stream_app_backend.models.Song;
+
+import java.util.List;
+
+public interface SuggestService {
+    List<SuggestionResponse> suggest(String query, int limit);
+
+    void indexSong(Song song);
+
+    void removeSong(String songId);
+
+    void indexArtist(Artist artist);
+
+    void removeArtist(String artistId);
+
+    void indexAlbum(Album album);
+
+    void removeAlbum(String albumId);
+
+    void rebuild();
+}
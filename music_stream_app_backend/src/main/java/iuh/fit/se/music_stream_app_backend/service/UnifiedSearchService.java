@@ -0,0 +1,7 @@
+package iuh.fit.se.music_stream_app_backend.service;
+
+import iuh.fit.se.music_stream_app_backend.dto.response.SearchResponse;
+
+public interface UnifiedSearchService {
+    SearchResponse search(String query, int limit);
+}
@@ -0,0 +1,11 @@
+package iuh.fit.se.music_stream_app_backend.service;
+
+import iuh.fit.se.music_stream_app_backend.models.Song;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+public interface ZipExportService {
+    void writeZip(List<Song> songs, OutputStream out) throws IOException;
+}
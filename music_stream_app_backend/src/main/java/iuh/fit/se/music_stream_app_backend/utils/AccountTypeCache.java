@@ -0,0 +1,58 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import iuh.fit.se.music_stream_app_backend.models.Account;
+import iuh.fit.se.music_stream_app_backend.models.enums.Type;
+import iuh.fit.se.music_stream_app_backend.repository.AccountRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived userId -> account type cache for per-request limits (bandwidth, concurrent streams).
+ * Token validation already loads the account and fills it, so limits add no extra database round trip.
+ */
+@Component
+@RequiredArgsConstructor
+public class AccountTypeCache {
+
+    @Value("${download.account-type-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${download.account-type-cache.max-entries:100000}")
+    private int maxEntries;
+
+    private final AccountRepository accountRepository;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public Type get(String userId) {
+        Entry entry = entries.get(userId);
+        if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+            return entry.type;
+        }
+        Type type = accountRepository.findByUserId(userId)
+                .map(Account::getType)
+                .orElse(Type.STANDARD);
+        put(userId, type);
+        return type;
+    }
+
+    public void put(String userId, Type type) {
+        if (entries.size() >= maxEntries) {
+            long now = System.nanoTime();
+            entries.values().removeIf(entry -> entry.expiresAt - now <= 0);
+            if (entries.size() >= maxEntries) {
+                // Everything is fresh: start over rather than grow without bound
+                entries.clear();
+            }
+        }
+        entries.put(userId, new Entry(type, System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds)));
+    }
+
+    private record Entry(Type type, long expiresAt) {
+    }
+}
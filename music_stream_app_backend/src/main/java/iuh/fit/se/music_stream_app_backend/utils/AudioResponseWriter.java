@@ -0,0 +1,318 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import iuh.fit.se.music_stream_app_backend.service.OriginFetchService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes audio resources to the servlet response with HTTP Range support
+ * (single range, multi-range and If-Range), answering 206 Partial Content when applicable.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AudioResponseWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Tomcat NIO connector hands these files to the kernel (sendfile) after the servlet returns
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private static final List<String> PROXIED_HEADERS = List.of(
+            HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_RANGE, HttpHeaders.ACCEPT_RANGES,
+            HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED);
+
+    private final MeterRegistry meterRegistry;
+
+    public void write(Resource resource, MediaType contentType,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        write(resource, contentType, null, null, request, response);
+    }
+
+    /**
+     * Same as {@link #write(Resource, MediaType, HttpServletRequest, HttpServletResponse)}, but serves
+     * {@code rangeOverride} (e.g. a time seek resolved to bytes) instead of the request's Range/If-Range
+     * headers, and uses {@code etag} (e.g. a content hash) instead of one derived from the file when given.
+     */
+    public void write(Resource resource, MediaType contentType, String rangeOverride, String etag,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean headOnly = "HEAD".equalsIgnoreCase(request.getMethod());
+        String rangeHeader = rangeOverride != null ? rangeOverride : request.getHeader(HttpHeaders.RANGE);
+        String ifRange = rangeOverride != null ? null : request.getHeader(HttpHeaders.IF_RANGE);
+
+        if (etag != null && rangeOverride == null && notModified(request, etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            return;
+        }
+
+        if (resource instanceof OriginResource origin) {
+            if (etag != null) {
+                // Origin does not know our validator, so If-Range is resolved here
+                if (!ifRangeMatches(request, ifRange, etag, 0)) {
+                    rangeHeader = null;
+                }
+                ifRange = null;
+            }
+            proxy(origin, contentType, headOnly, rangeHeader, ifRange, etag, response);
+            return;
+        }
+
+        long length = resource.contentLength();
+        long lastModified = lastModified(resource);
+        if (etag == null) {
+            etag = buildEtag(resource, length, lastModified);
+            if (etag != null && rangeOverride == null && notModified(request, etag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                response.setHeader(HttpHeaders.ETAG, etag);
+                return;
+            }
+        }
+
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+        }
+        if (lastModified > 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+
+        // Unknown length: ranges cannot be resolved, send the whole body
+        if (length < 0) {
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "none");
+            response.setContentType(contentType.toString());
+            if (!headOnly) {
+                try (InputStream in = resource.getInputStream()) {
+                    in.transferTo(response.getOutputStream());
+                }
+            }
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (!StringUtils.hasText(rangeHeader) || !ifRangeMatches(request, ifRange, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType.toString());
+            response.setContentLengthLong(length);
+            if (!headOnly) {
+                writeRange(resource, 0, length, request, response);
+            }
+            return;
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+            long total = 0;
+            for (HttpRange range : ranges) {
+                // getRangeStart does not check the start against the length, "bytes=<length>-" would pass
+                if (range.getRangeStart(length) >= length) {
+                    throw new IllegalArgumentException("Range starts past the end of the content");
+                }
+                total += range.getRangeEnd(length) - range.getRangeStart(length) + 1;
+            }
+            // Overlapping ranges adding up to more than the file are a known amplification trick
+            if (ranges.isEmpty() || total > length) {
+                throw new IllegalArgumentException("Total range length exceeds content length");
+            }
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        if (ranges.size() == 1) {
+            long start = ranges.get(0).getRangeStart(length);
+            long end = ranges.get(0).getRangeEnd(length);
+            response.setContentType(contentType.toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if (!headOnly) {
+                writeRange(resource, start, end - start + 1, request, response);
+            }
+            return;
+        }
+
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        if (headOnly) {
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            String partHeader = "\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + length + "\r\n\r\n";
+            out.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+            recordBytesServed(resource, end - start + 1);
+            copy(resource, start, end - start + 1, out);
+        }
+        out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    // Not cached yet: one GET to origin with the client's Range, streamed straight through
+    private void proxy(OriginResource origin, MediaType contentType, boolean headOnly,
+                       String range, String ifRange, String etag, HttpServletResponse response) throws IOException {
+        try (OriginFetchService.OriginResponse upstream = origin.fetch(range, ifRange)) {
+            response.setStatus(upstream.status());
+            for (String header : PROXIED_HEADERS) {
+                String value = upstream.header(header);
+                if (value != null) {
+                    response.setHeader(header, value);
+                }
+            }
+            if (etag != null) {
+                response.setHeader(HttpHeaders.ETAG, etag);
+            }
+            if (upstream.status() == HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+                return;
+            }
+            response.setContentType(contentType.toString());
+            if (!headOnly) {
+                long copied = upstream.body().transferTo(response.getOutputStream());
+                meterRegistry.counter("audio.bytes.served", "source", "origin").increment(copied);
+            }
+        }
+    }
+
+    // Single contiguous range: let Tomcat sendfile local files unless throttled, otherwise copy
+    private void writeRange(Resource resource, long start, long count,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        recordBytesServed(resource, count);
+        if (resource.isFile() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))
+                && !(response instanceof BandwidthShaper.ThrottledResponse)) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, resource.getFile().getCanonicalPath());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + count);
+            return;
+        }
+        copy(resource, start, count, response.getOutputStream());
+    }
+
+    private void copy(Resource resource, long start, long count, OutputStream out) throws IOException {
+        if (resource.isFile()) {
+            transferFile(resource.getFile(), start, count, out);
+            return;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            in.skipNBytes(start);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = count;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read == -1) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    // FileChannel.transferTo avoids copying file pages through the Java heap
+    private void transferFile(File file, long start, long count, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, target);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+
+    // If-None-Match: weak comparison, as for any conditional GET
+    private boolean notModified(HttpServletRequest request, String etag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (!StringUtils.hasText(ifNoneMatch)) {
+            return false;
+        }
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if ("*".equals(candidate) || candidate.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // If-Range: serve the range only when the validator still matches, otherwise the full body
+    private boolean ifRangeMatches(HttpServletRequest request, String ifRange, String etag, long lastModified) {
+        if (!StringUtils.hasText(ifRange)) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Weak validators are never allowed for If-Range
+            return etag != null && !ifRange.startsWith("W/") && ifRange.equals(etag);
+        }
+        try {
+            long since = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return lastModified > 0 && since == (lastModified / 1000) * 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Local files come from the audio cache, anything else is proxied from origin
+    private void recordBytesServed(Resource resource, long count) {
+        meterRegistry.counter("audio.bytes.served", "source", resource.isFile() ? "cache" : "origin")
+                .increment(count);
+    }
+
+    private long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private String buildEtag(Resource resource, long length, long lastModified) {
+        if (length < 0) {
+            return null;
+        }
+        String description = resource.getDescription();
+        return "\"" + Integer.toHexString(description.hashCode()) + "-" + Long.toHexString(length)
+                + "-" + Long.toHexString(Math.max(lastModified, 0)) + "\"";
+    }
+}
@@ -0,0 +1,281 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import iuh.fit.se.music_stream_app_backend.models.enums.Type;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-user bandwidth shaping for audio output. Every user gets one token bucket per priority,
+ * sized by account type; bulk downloads additionally share a global bucket so they cannot take
+ * the egress that streaming playback needs. Streams never wait on the global bucket.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BandwidthShaper {
+
+    public enum Priority {
+        STREAM, BULK
+    }
+
+    private static final long ACTIVE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    @Value("${download.bandwidth.enabled:true}")
+    private boolean enabled;
+
+    @Value("${download.bandwidth.chunk-bytes:16384}")
+    private int chunkBytes;
+
+    @Value("${download.bandwidth.burst-seconds:10}")
+    private long burstSeconds;
+
+    @Value("${download.bandwidth.standard.stream-bytes-per-second:262144}")
+    private long standardStreamRate;
+
+    @Value("${download.bandwidth.standard.bulk-bytes-per-second:524288}")
+    private long standardBulkRate;
+
+    @Value("${download.bandwidth.premium.stream-bytes-per-second:1048576}")
+    private long premiumStreamRate;
+
+    @Value("${download.bandwidth.premium.bulk-bytes-per-second:4194304}")
+    private long premiumBulkRate;
+
+    @Value("${download.bandwidth.bulk-total-bytes-per-second:52428800}")
+    private long bulkTotalRate;
+
+    @Value("${download.bandwidth.idle-minutes:10}")
+    private long idleMinutes;
+
+    private final AccountTypeCache accountTypeCache;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, UserBandwidth> users = new ConcurrentHashMap<>();
+    private final Map<Priority, Counter> bytesCounters = new EnumMap<>(Priority.class);
+    private final Map<Priority, Timer> delayTimers = new EnumMap<>(Priority.class);
+
+    private TokenBucket bulkTotal;
+
+    @PostConstruct
+    void init() {
+        bulkTotal = new TokenBucket(bulkTotalRate, bulkTotalRate * burstSeconds);
+        for (Priority priority : Priority.values()) {
+            String tag = priority.name().toLowerCase();
+            bytesCounters.put(priority, meterRegistry.counter("download.bandwidth.bytes", "priority", tag));
+            delayTimers.put(priority, meterRegistry.timer("download.bandwidth.delay", "priority", tag));
+        }
+        meterRegistry.gauge("download.bandwidth.users.active", users, map -> activeUsers().size());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public OutputStream throttle(OutputStream out, String userId, Priority priority) {
+        if (!enabled) {
+            return out;
+        }
+        return new ThrottledOutputStream(out, user(userId), priority);
+    }
+
+    public HttpServletResponse throttle(HttpServletResponse response, String userId, Priority priority) {
+        if (!enabled) {
+            return response;
+        }
+        return new ThrottledResponse(response, user(userId), priority);
+    }
+
+    /**
+     * Users that sent bytes in the last few seconds, busiest first.
+     */
+    public List<UserStats> activeUsers() {
+        long now = System.nanoTime();
+        return users.entrySet().stream()
+                .filter(entry -> now - entry.getValue().lastActive < ACTIVE_WINDOW_NANOS)
+                .map(entry -> entry.getValue().stats(entry.getKey()))
+                .sorted(Comparator.comparingLong(UserStats::bytesSent).reversed())
+                .toList();
+    }
+
+    // Buckets of idle users are dropped; the next transfer starts with a full burst again
+    public void purgeIdle() {
+        long cutoff = System.nanoTime() - TimeUnit.MINUTES.toNanos(idleMinutes);
+        users.values().removeIf(user -> user.lastActive - cutoff < 0);
+    }
+
+    private UserBandwidth user(String userId) {
+        UserBandwidth user = users.get(userId);
+        if (user != null) {
+            return user;
+        }
+        Type type = accountTypeCache.get(userId);
+        long streamRate = type == Type.PREMIUM ? premiumStreamRate : standardStreamRate;
+        long bulkRate = type == Type.PREMIUM ? premiumBulkRate : standardBulkRate;
+        UserBandwidth created = new UserBandwidth(type,
+                new TokenBucket(streamRate, streamRate * burstSeconds),
+                new TokenBucket(bulkRate, bulkRate * burstSeconds));
+        UserBandwidth existing = users.putIfAbsent(userId, created);
+        return existing != null ? existing : created;
+    }
+
+    private void acquire(UserBandwidth user, Priority priority, int bytes) throws IOException {
+        long delay = priority == Priority.STREAM
+                ? user.stream.reserve(bytes)
+                : Math.max(user.bulk.reserve(bytes), bulkTotal.reserve(bytes));
+
+        user.lastActive = System.nanoTime();
+        user.bytes.get(priority).add(bytes);
+        bytesCounters.get(priority).increment(bytes);
+        if (delay <= 0) {
+            return;
+        }
+
+        user.delayNanos.get(priority).add(delay);
+        delayTimers.get(priority).record(delay, TimeUnit.NANOSECONDS);
+        try {
+            // Sleeping parks a virtual thread without pinning its carrier
+            Thread.sleep(Duration.ofNanos(delay));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while throttling output");
+        }
+    }
+
+    public record UserStats(String userId, Type type, long bytesSent, long streamBytes, long bulkBytes,
+                            long streamDelayMs, long bulkDelayMs) {
+    }
+
+    private static final class UserBandwidth {
+        private final Type type;
+        private final TokenBucket stream;
+        private final TokenBucket bulk;
+        private final Map<Priority, LongAdder> bytes = new EnumMap<>(Priority.class);
+        private final Map<Priority, LongAdder> delayNanos = new EnumMap<>(Priority.class);
+        private volatile long lastActive = System.nanoTime();
+
+        private UserBandwidth(Type type, TokenBucket stream, TokenBucket bulk) {
+            this.type = type;
+            this.stream = stream;
+            this.bulk = bulk;
+            for (Priority priority : Priority.values()) {
+                bytes.put(priority, new LongAdder());
+                delayNanos.put(priority, new LongAdder());
+            }
+        }
+
+        private UserStats stats(String userId) {
+            long streamBytes = bytes.get(Priority.STREAM).sum();
+            long bulkBytes = bytes.get(Priority.BULK).sum();
+            return new UserStats(userId, type, streamBytes + bulkBytes, streamBytes, bulkBytes,
+                    TimeUnit.NANOSECONDS.toMillis(delayNanos.get(Priority.STREAM).sum()),
+                    TimeUnit.NANOSECONDS.toMillis(delayNanos.get(Priority.BULK).sum()));
+        }
+    }
+
+    private final class ThrottledOutputStream extends FilterOutputStream {
+        private final UserBandwidth user;
+        private final Priority priority;
+
+        private ThrottledOutputStream(OutputStream out, UserBandwidth user, Priority priority) {
+            super(out);
+            this.user = user;
+            this.priority = priority;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            acquire(user, priority, 1);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int chunk = Math.min(len, chunkBytes);
+                acquire(user, priority, chunk);
+                out.write(b, off, chunk);
+                off += chunk;
+                len -= chunk;
+            }
+        }
+    }
+
+    /**
+     * Response whose body goes through the user's buckets. {@link AudioResponseWriter} does not
+     * hand these to sendfile, since the kernel copy would bypass the throttle.
+     */
+    public final class ThrottledResponse extends HttpServletResponseWrapper {
+        private final UserBandwidth user;
+        private final Priority priority;
+        private ServletOutputStream outputStream;
+
+        private ThrottledResponse(HttpServletResponse response, UserBandwidth user, Priority priority) {
+            super(response);
+            this.user = user;
+            this.priority = priority;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream delegate = super.getOutputStream();
+                OutputStream throttled = new ThrottledOutputStream(delegate, user, priority);
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public boolean isReady() {
+                        return delegate.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        delegate.setWriteListener(writeListener);
+                    }
+
+                    @Override
+                    public void write(int b) throws IOException {
+                        throttled.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        throttled.write(b, off, len);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        delegate.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        delegate.close();
+                    }
+                };
+            }
+            return outputStream;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import iuh.fit.se.music_stream_app_backend.models.DownloadToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Deletes used download tokens in small batches, paced so the sweep never competes with token
+ * lookups for the primary. Expired tokens are removed by the TTL index on expires_at; the sweep
+ * also picks up any the TTL monitor has not reached yet.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DownloadTokenSweeper {
+
+    @Value("${download.token.sweep.used-retention-minutes:5}")
+    private long usedRetentionMinutes;
+
+    @Value("${download.token.sweep.batch-size:500}")
+    private int batchSize;
+
+    @Value("${download.token.sweep.max-deletes-per-second:2000}")
+    private int maxDeletesPerSecond;
+
+    @Value("${download.token.sweep.max-batches-per-run:200}")
+    private int maxBatchesPerRun;
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private Counter usedDeleted;
+    private Counter expiredDeleted;
+    private Timer sweepDuration;
+
+    @PostConstruct
+    void init() {
+        usedDeleted = meterRegistry.counter("download.tokens.swept", "reason", "used");
+        expiredDeleted = meterRegistry.counter("download.tokens.swept", "reason", "expired");
+        sweepDuration = meterRegistry.timer("download.tokens.sweep.duration");
+    }
+
+    /**
+     * Runs one sweep and returns the number of tokens deleted.
+     */
+    public long sweep() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        LocalDateTime now = LocalDateTime.now();
+        long deleted = 0;
+        try {
+            deleted += sweep(Criteria.where("used").is(true).and("usedAt").lt(now.minusMinutes(usedRetentionMinutes)),
+                    usedDeleted);
+            deleted += sweep(Criteria.where("expiresAt").lt(now), expiredDeleted);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sample.stop(sweepDuration);
+        }
+        if (deleted > 0) {
+            log.info("Swept {} download tokens", deleted);
+        }
+        return deleted;
+    }
+
+    // Ids first, then delete by _id: each round trip touches at most one batch of documents
+    private long sweep(Criteria criteria, Counter counter) throws InterruptedException {
+        long pauseMillis = maxDeletesPerSecond > 0 ? batchSize * 1000L / maxDeletesPerSecond : 0;
+        long deleted = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Query query = Query.query(criteria).limit(batchSize);
+            query.fields().include("_id");
+            List<String> ids = mongoTemplate.find(query, DownloadToken.class).stream()
+                    .map(DownloadToken::getTokenId)
+                    .toList();
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            long removed = mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), DownloadToken.class)
+                    .getDeletedCount();
+            counter.increment(removed);
+            deleted += removed;
+            if (ids.size() < batchSize) {
+                break;
+            }
+            Thread.sleep(Duration.ofMillis(pauseMillis));
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,128 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Stateless download tokens: songId, userId, expiry and a random nonce signed with HMAC-SHA256.
+ * Format: {@code s1.<songId>.<userId>.<expiresAtEpochSeconds>.<nonce>.<signature>} (base64url fields).
+ * HLS segment grants use the same format under the {@code g1.} prefix, so neither is accepted as the other.
+ */
+@Component
+public class DownloadUrlSigner {
+
+    private static final String PREFIX = "s1.";
+    private static final String GRANT_PREFIX = "g1.";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int NONCE_BYTES = 12;
+    private static final int STABLE_KEY_BYTES = 16;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecureRandom random = new SecureRandom();
+    private final Mac prototype;
+
+    public DownloadUrlSigner(@Value("${download.signing.secret:${jwt.secret:music_stream_app_secret_key_for_jwt_token_generation_2024}}") String secret) {
+        try {
+            prototype = Mac.getInstance(ALGORITHM);
+            prototype.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialise download URL signer", e);
+        }
+    }
+
+    public boolean isSigned(String token) {
+        return token != null && token.startsWith(PREFIX);
+    }
+
+    public String sign(String songId, String userId, long expiresAtEpochSeconds) {
+        return sign(PREFIX, songId, userId, expiresAtEpochSeconds);
+    }
+
+    // Empty when the signature does not match or the token is malformed; expiry is checked by the caller
+    public Optional<Claims> verify(String token) {
+        return isSigned(token) ? verify(PREFIX, token) : Optional.empty();
+    }
+
+    public String signGrant(String songId, String userId, long expiresAtEpochSeconds) {
+        return sign(GRANT_PREFIX, songId, userId, expiresAtEpochSeconds);
+    }
+
+    public Optional<Claims> verifyGrant(String grant) {
+        return grant != null && grant.startsWith(GRANT_PREFIX) ? verify(GRANT_PREFIX, grant) : Optional.empty();
+    }
+
+    // Deterministic and unguessable without the secret: names public, cacheable URLs that must not be enumerable
+    public String stableKey(String value) {
+        return ENCODER.encodeToString(Arrays.copyOf(hmac("k1." + value), STABLE_KEY_BYTES));
+    }
+
+    public boolean matchesStableKey(String value, String key) {
+        return key != null && MessageDigest.isEqual(
+                stableKey(value).getBytes(StandardCharsets.US_ASCII), key.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String sign(String prefix, String songId, String userId, long expiresAtEpochSeconds) {
+        byte[] nonce = new byte[NONCE_BYTES];
+        random.nextBytes(nonce);
+
+        String payload = prefix + encode(songId) + "." + encode(userId) + "."
+                + expiresAtEpochSeconds + "." + ENCODER.encodeToString(nonce);
+        return payload + "." + ENCODER.encodeToString(hmac(payload));
+    }
+
+    private Optional<Claims> verify(String prefix, String token) {
+        int lastDot = token.lastIndexOf('.');
+        // "s1." alone or "s1.x": no signature separator after the prefix
+        if (lastDot < prefix.length()) {
+            return Optional.empty();
+        }
+        String payload = token.substring(0, lastDot);
+        String[] parts = payload.substring(prefix.length()).split("\\.", -1);
+        if (parts.length != 4) {
+            return Optional.empty();
+        }
+
+        try {
+            byte[] signature = DECODER.decode(token.substring(lastDot + 1));
+            if (!MessageDigest.isEqual(signature, hmac(payload))) {
+                return Optional.empty();
+            }
+            return Optional.of(new Claims(decode(parts[0]), decode(parts[1]), Long.parseLong(parts[2]), parts[3]));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private byte[] hmac(String payload) {
+        Mac mac;
+        try {
+            mac = (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HMAC implementation is not cloneable", e);
+        }
+        return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String encode(String value) {
+        return ENCODER.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String decode(String value) {
+        return new String(DECODER.decode(value), StandardCharsets.UTF_8);
+    }
+
+    public record Claims(String songId, String userId, long expiresAtEpochSeconds, String nonce) {
+    }
+}
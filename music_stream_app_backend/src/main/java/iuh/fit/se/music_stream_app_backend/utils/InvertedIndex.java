@@ -0,0 +1,451 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Token -> posting list index over one text field of a collection. Documents get an increasing
+ * ordinal, so a posting list is a sorted int array that new documents are appended to. A query
+ * matches documents containing every query token, the last one as a prefix so partially typed
+ * words already hit. Only ids and folded text are held, never the documents themselves.
+ * <p>
+ * For typo-tolerant queries the distinct tokens (the vocabulary, far smaller than the catalog)
+ * are indexed by trigram: a misspelled query token only has to be compared, with a bounded edit
+ * distance, against the vocabulary tokens sharing enough trigrams with it.
+ */
+public final class InvertedIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final TreeMap<String, PostingList> postings = new TreeMap<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private final List<String> texts = new ArrayList<>();
+    // Vocabulary and its trigram index; removed tokens stay as ids and are skipped when absent from postings
+    private final List<String> terms = new ArrayList<>();
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final Map<String, PostingList> grams = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public record Hits(List<String> ids, int total) {
+    }
+
+    // Matching ordinals, ascending, with the edit distance each one was matched at
+    private record Matches(int[] ordinals, int[] distances) {
+    }
+
+    /**
+     * Adds or replaces the text of a document. A replaced document keeps its ordinal, so edits do
+     * not grow the index.
+     */
+    public void put(String id, String text) {
+        List<String> tokens = TextNormalizer.tokenize(text);
+        String folded = TextNormalizer.fold(text);
+        lock.writeLock().lock();
+        try {
+            Integer existing = ordinals.get(id);
+            int ordinal;
+            if (existing != null) {
+                ordinal = existing;
+                unpost(ordinal);
+                texts.set(ordinal, folded);
+            } else {
+                ordinal = ids.size();
+                ids.add(id);
+                texts.add(folded);
+                ordinals.put(id, ordinal);
+            }
+            for (String token : tokens.stream().distinct().toList()) {
+                PostingList list = postings.get(token);
+                if (list == null) {
+                    addTerm(token);
+                    list = new PostingList();
+                    postings.put(token, list);
+                }
+                list.add(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Matching ids, best first: exact title, then titles starting with the query, then the rest
+     * in insertion order. {@code total} counts every match, not just the returned page.
+     */
+    public Hits search(String query, int offset, int limit) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        if (tokens.isEmpty()) {
+            return new Hits(List.of(), 0);
+        }
+        String folded = TextNormalizer.fold(query);
+
+        lock.readLock().lock();
+        try {
+            int[] matches = null;
+            for (int i = 0; i < tokens.size(); i++) {
+                int[] list = i == tokens.size() - 1
+                        ? prefixPostings(tokens.get(i))
+                        : values(postings.get(tokens.get(i)));
+                matches = matches == null ? list : intersect(matches, list);
+                if (matches.length == 0) {
+                    return new Hits(List.of(), 0);
+                }
+            }
+
+            return page(matches, new int[matches.length], folded, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Like {@link #search} but every query token may also match a token within a small edit
+     * distance (none up to 3 letters, 1 up to 7, 2 beyond). Fewer edits rank first.
+     */
+    public Hits searchFuzzy(String query, int offset, int limit) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        if (tokens.isEmpty()) {
+            return new Hits(List.of(), 0);
+        }
+        String folded = TextNormalizer.fold(query);
+
+        lock.readLock().lock();
+        try {
+            Matches matches = null;
+            for (String token : tokens) {
+                Matches tokenMatches = fuzzyMatches(token);
+                matches = matches == null ? tokenMatches : intersect(matches, tokenMatches);
+                if (matches.ordinals().length == 0) {
+                    return new Hits(List.of(), 0);
+                }
+            }
+            return page(matches.ordinals(), matches.distances(), folded, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(String id) {
+        Integer ordinal = ordinals.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        // The ordinal slot stays behind as a tombstone; it is unreachable once out of the postings
+        unpost(ordinal);
+        texts.set(ordinal, "");
+    }
+
+    private void unpost(int ordinal) {
+        for (String token : TextNormalizer.tokenize(texts.get(ordinal)).stream().distinct().toList()) {
+            PostingList list = postings.get(token);
+            if (list != null && list.remove(ordinal) && list.size == 0) {
+                postings.remove(token);
+            }
+        }
+    }
+
+    private void addTerm(String term) {
+        if (termIds.containsKey(term)) {
+            return;
+        }
+        int id = terms.size();
+        terms.add(term);
+        termIds.put(term, id);
+        // Term ids only grow, so the gram lists stay sorted under plain appends
+        for (String gram : trigrams(term)) {
+            grams.computeIfAbsent(gram, g -> new PostingList()).add(id);
+        }
+    }
+
+    // Union of the postings of every vocabulary token close enough to the query token
+    private Matches fuzzyMatches(String token) {
+        int maxEdits = token.length() <= 3 ? 0 : token.length() <= 7 ? 1 : 2;
+        if (maxEdits == 0) {
+            int[] list = values(postings.get(token));
+            return new Matches(list, new int[list.length]);
+        }
+
+        // An edit touches at most 4 trigrams (a transposition), fewer shared ones cannot be a match
+        List<String> queryGrams = trigrams(token);
+        int minShared = Math.max(1, queryGrams.size() - 4 * maxEdits);
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (String gram : queryGrams) {
+            PostingList list = grams.get(gram);
+            for (int i = 0; list != null && i < list.size; i++) {
+                shared.merge(list.ordinals[i], 1, Integer::sum);
+            }
+        }
+
+        // One bitset over ordinals per distance: each posting is visited once, however many terms match
+        long[][] byDistance = new long[maxEdits + 1][];
+        for (Map.Entry<Integer, Integer> candidate : shared.entrySet()) {
+            if (candidate.getValue() < minShared) {
+                continue;
+            }
+            String term = terms.get(candidate.getKey());
+            PostingList postingList = postings.get(term);
+            if (postingList == null) {
+                continue;
+            }
+            int distance = EditDistance.bounded(token, term, maxEdits);
+            if (distance <= maxEdits) {
+                if (byDistance[distance] == null) {
+                    byDistance[distance] = new long[words()];
+                }
+                mark(byDistance[distance], postingList);
+            }
+        }
+
+        long[] all = new long[words()];
+        for (long[] bits : byDistance) {
+            for (int w = 0; bits != null && w < bits.length; w++) {
+                all[w] |= bits[w];
+            }
+        }
+        int[] ordinals = ordinalsOf(all);
+        // A document reached through several close tokens keeps its smallest distance
+        int[] distances = new int[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            int distance = 0;
+            while (!isSet(byDistance[distance], ordinals[i])) {
+                distance++;
+            }
+            distances[i] = distance;
+        }
+        return new Matches(ordinals, distances);
+    }
+
+    // Ranks by edit distance, then exact / starts-with / other, then ordinal, and cuts out the page
+    private Hits page(int[] ordinals, int[] distances, String folded, int offset, int limit) {
+        long[] keys = new long[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            long order = (long) distances[i] * 4 + rank(texts.get(ordinals[i]), folded);
+            keys[i] = order << 32 | ordinals[i];
+        }
+        long[] best = smallest(keys, (int) Math.min(keys.length, (long) offset + limit));
+
+        List<String> page = new ArrayList<>(Math.max(0, Math.min(limit, best.length - offset)));
+        for (int i = offset; i < best.length && page.size() < limit; i++) {
+            page.add(ids.get((int) best[i]));
+        }
+        return new Hits(page, keys.length);
+    }
+
+    // The n smallest keys in order; a bounded max-heap instead of sorting every match of a common token
+    private static long[] smallest(long[] keys, int n) {
+        if (n == 0) {
+            return new long[0];
+        }
+        if (keys.length <= 4 * n) {
+            Arrays.sort(keys);
+            return n == keys.length ? keys : Arrays.copyOf(keys, n);
+        }
+        long[] heap = Arrays.copyOf(keys, n);
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(heap, i, n);
+        }
+        for (int i = n; i < keys.length; i++) {
+            if (keys[i] < heap[0]) {
+                heap[0] = keys[i];
+                siftDown(heap, 0, n);
+            }
+        }
+        Arrays.sort(heap);
+        return heap;
+    }
+
+    private static void siftDown(long[] heap, int i, int size) {
+        while (true) {
+            int largest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && heap[left] > heap[largest]) {
+                largest = left;
+            }
+            if (right < size && heap[right] > heap[largest]) {
+                largest = right;
+            }
+            if (largest == i) {
+                return;
+            }
+            long swap = heap[i];
+            heap[i] = heap[largest];
+            heap[largest] = swap;
+            i = largest;
+        }
+    }
+
+    // A short prefix can cover thousands of terms: they are merged through a bitset, linear in their postings
+    private int[] prefixPostings(String prefix) {
+        NavigableMap<String, PostingList> range = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (range.isEmpty()) {
+            return EMPTY;
+        }
+        if (range.size() == 1) {
+            return range.firstEntry().getValue().values();
+        }
+        long[] bits = new long[words()];
+        for (PostingList list : range.values()) {
+            mark(bits, list);
+        }
+        return ordinalsOf(bits);
+    }
+
+    private int words() {
+        return (ids.size() + 63) >>> 6;
+    }
+
+    private static void mark(long[] bits, PostingList list) {
+        for (int i = 0; i < list.size; i++) {
+            int ordinal = list.ordinals[i];
+            bits[ordinal >>> 6] |= 1L << ordinal;
+        }
+    }
+
+    private static boolean isSet(long[] bits, int ordinal) {
+        return bits != null && (bits[ordinal >>> 6] & 1L << ordinal) != 0;
+    }
+
+    private static int[] ordinalsOf(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        int[] ordinals = new int[count];
+        int n = 0;
+        for (int w = 0; w < bits.length; w++) {
+            for (long word = bits[w]; word != 0; word &= word - 1) {
+                ordinals[n++] = w << 6 | Long.numberOfTrailingZeros(word);
+            }
+        }
+        return ordinals;
+    }
+
+    private static int[] values(PostingList list) {
+        return list == null ? EMPTY : list.values();
+    }
+
+    private static List<String> trigrams(String term) {
+        String padded = "$" + term + "$";
+        List<String> trigrams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams.stream().distinct().toList();
+    }
+
+    private static int rank(String text, String query) {
+        if (text.equals(query)) {
+            return 0;
+        }
+        return text.startsWith(query) ? 1 : 2;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private static Matches intersect(Matches a, Matches b) {
+        int[] ordinals = new int[Math.min(a.ordinals().length, b.ordinals().length)];
+        int[] distances = new int[ordinals.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.ordinals().length && j < b.ordinals().length) {
+            if (a.ordinals()[i] < b.ordinals()[j]) {
+                i++;
+            } else if (a.ordinals()[i] > b.ordinals()[j]) {
+                j++;
+            } else {
+                ordinals[n] = a.ordinals()[i];
+                distances[n++] = a.distances()[i++] + b.distances()[j++];
+            }
+        }
+        return new Matches(Arrays.copyOf(ordinals, n), Arrays.copyOf(distances, n));
+    }
+
+    /**
+     * Sorted ordinals (or term ids, for the trigram lists) with amortized appends. Readers get a trimmed copy that is cached until the
+     * next write, so a hot token is not copied on every query.
+     */
+    private static final class PostingList {
+        private int[] ordinals = new int[4];
+        private int size;
+        private volatile int[] snapshot;
+
+        // New ordinals append; a replaced document's reused ordinal is inserted in place
+        private void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            int at = size == 0 || ordinals[size - 1] < ordinal
+                    ? size
+                    : -Arrays.binarySearch(ordinals, 0, size, ordinal) - 1;
+            System.arraycopy(ordinals, at, ordinals, at + 1, size - at);
+            ordinals[at] = ordinal;
+            size++;
+            snapshot = null;
+        }
+
+        private boolean remove(int ordinal) {
+            int at = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ordinals, at + 1, ordinals, at, size - at - 1);
+            size--;
+            snapshot = null;
+            return true;
+        }
+
+        // Called under the read lock; concurrent readers may both build it, with equal content
+        private int[] values() {
+            int[] values = snapshot;
+            if (values == null) {
+                values = Arrays.copyOf(ordinals, size);
+                snapshot = values;
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Reads a collection in batches ordered by id, each batch starting after the last id of the
+ * previous one, so every batch is an index range scan however deep the scan is (skip/limit
+ * paging re-reads everything it skips). Only the given fields are loaded.
+ */
+@Component
+@RequiredArgsConstructor
+public class KeysetScanner {
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Calls {@code consumer} for every document of the collection.
+     *
+     * @return number of documents read
+     */
+    public <T> int forEach(Class<T> type, String idProperty, List<String> fields, int batchSize,
+                           Function<T, String> id, Consumer<T> consumer) {
+        return forEachBatch(type, idProperty, null, fields, batchSize, id, batch -> {
+            batch.forEach(consumer);
+            return true;
+        });
+    }
+
+    /**
+     * Calls {@code handler} for every batch of documents matching {@code filter} (all when null),
+     * until a batch comes back short or the handler returns false.
+     *
+     * @return number of documents read
+     */
+    public <T> int forEachBatch(Class<T> type, String idProperty, Criteria filter, List<String> fields,
+                                int batchSize, Function<T, String> id, Predicate<List<T>> handler) {
+        int read = 0;
+        String lastId = null;
+        while (true) {
+            Query query = filter != null ? Query.query(filter) : new Query();
+            query.with(Sort.by(Sort.Direction.ASC, idProperty)).limit(batchSize);
+            if (lastId != null) {
+                query.addCriteria(Criteria.where(idProperty).gt(lastId));
+            }
+            fields.forEach(field -> query.fields().include(field));
+            List<T> batch = mongoTemplate.find(query, type);
+            if (batch.isEmpty()) {
+                return read;
+            }
+
+            read += batch.size();
+            lastId = id.apply(batch.get(batch.size() - 1));
+            if (!handler.test(batch) || batch.size() < batchSize) {
+                return read;
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Minimal MPEG audio (MP3) frame header parser: skips ID3v2 tags and walks frame boundaries
+ * without decoding any audio.
+ */
+public final class Mp3FrameParser {
+
+    public static final int HEADER_SIZE = 4;
+    private static final int ID3_HEADER_SIZE = 10;
+
+    // Indexed by [version == MPEG1 ? 0 : 1][layer - 1][bitrate index]
+    private static final int[][][] BITRATES_KBPS = {
+            {
+                    {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448, -1},
+                    {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384, -1},
+                    {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, -1}
+            },
+            {
+                    {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256, -1},
+                    {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160, -1},
+                    {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160, -1}
+            }
+    };
+
+    private static final int[] SAMPLE_RATES_MPEG1 = {44100, 48000, 32000};
+
+    private Mp3FrameParser() {
+    }
+
+    public enum Version {
+        MPEG1(1), MPEG2(2), MPEG25(4);
+
+        private final int sampleRateDivisor;
+
+        Version(int sampleRateDivisor) {
+            this.sampleRateDivisor = sampleRateDivisor;
+        }
+    }
+
+    public record FrameHeader(Version version, int layer, int bitrateKbps, int sampleRate,
+                              boolean padding, boolean mono, int frameLength, int samplesPerFrame) {
+
+        public double durationSeconds() {
+            return (double) samplesPerFrame / sampleRate;
+        }
+    }
+
+    /**
+     * Frame boundaries of a file: frame i spans {@code offsets[i]} .. {@code offsets[i] + lengths[i]}.
+     */
+    public record FrameScan(long[] offsets, int[] lengths, int frameCount, int sampleRate, int samplesPerFrame) {
+
+        public double frameDurationSeconds() {
+            return (double) samplesPerFrame / sampleRate;
+        }
+
+        public double durationSeconds() {
+            return frameCount * frameDurationSeconds();
+        }
+
+        public long audioStart() {
+            return frameCount == 0 ? 0 : offsets[0];
+        }
+
+        public long audioEnd() {
+            return frameCount == 0 ? 0 : offsets[frameCount - 1] + lengths[frameCount - 1];
+        }
+    }
+
+    /**
+     * Xing/Info header found in the first frame of VBR (Xing) and LAME-encoded CBR (Info) files.
+     * Missing fields are -1 / null.
+     */
+    public record XingHeader(boolean vbr, int frames, long bytes, byte[] toc) {
+    }
+
+    /**
+     * Total size of the ID3v2 tag at {@code offset} (header, body and optional footer), or 0 if none.
+     */
+    public static int id3v2TagSize(ByteBuffer data, int offset) {
+        if (data.limit() - offset < ID3_HEADER_SIZE
+                || data.get(offset) != 'I' || data.get(offset + 1) != 'D' || data.get(offset + 2) != '3') {
+            return 0;
+        }
+        int flags = data.get(offset + 5) & 0xFF;
+        int size = ((data.get(offset + 6) & 0x7F) << 21)
+                | ((data.get(offset + 7) & 0x7F) << 14)
+                | ((data.get(offset + 8) & 0x7F) << 7)
+                | (data.get(offset + 9) & 0x7F);
+        boolean footer = (flags & 0x10) != 0;
+        return ID3_HEADER_SIZE + size + (footer ? ID3_HEADER_SIZE : 0);
+    }
+
+    /**
+     * Parses the 4-byte frame header at {@code offset}, or returns null if it is not a valid header.
+     */
+    public static FrameHeader parseHeader(ByteBuffer data, int offset) {
+        if (data.limit() - offset < HEADER_SIZE) {
+            return null;
+        }
+        int b1 = data.get(offset) & 0xFF;
+        int b2 = data.get(offset + 1) & 0xFF;
+        int b3 = data.get(offset + 2) & 0xFF;
+        int b4 = data.get(offset + 3) & 0xFF;
+
+        // 11-bit frame sync
+        if (b1 != 0xFF || (b2 & 0xE0) != 0xE0) {
+            return null;
+        }
+
+        Version version = switch ((b2 >> 3) & 0x03) {
+            case 0 -> Version.MPEG25;
+            case 2 -> Version.MPEG2;
+            case 3 -> Version.MPEG1;
+            default -> null;
+        };
+        int layer = switch ((b2 >> 1) & 0x03) {
+            case 1 -> 3;
+            case 2 -> 2;
+            case 3 -> 1;
+            default -> 0;
+        };
+        int bitrateIndex = (b3 >> 4) & 0x0F;
+        int sampleRateIndex = (b3 >> 2) & 0x03;
+        if (version == null || layer == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+            // Free-format (index 0) streams are not supported
+            return null;
+        }
+
+        int bitrateKbps = BITRATES_KBPS[version == Version.MPEG1 ? 0 : 1][layer - 1][bitrateIndex];
+        int sampleRate = SAMPLE_RATES_MPEG1[sampleRateIndex] / version.sampleRateDivisor;
+        boolean padding = ((b3 >> 1) & 0x01) == 1;
+        boolean mono = ((b4 >> 6) & 0x03) == 3;
+
+        int samplesPerFrame;
+        int frameLength;
+        if (layer == 1) {
+            samplesPerFrame = 384;
+            frameLength = (12 * bitrateKbps * 1000 / sampleRate + (padding ? 1 : 0)) * 4;
+        } else {
+            samplesPerFrame = (layer == 3 && version != Version.MPEG1) ? 576 : 1152;
+            frameLength = samplesPerFrame / 8 * bitrateKbps * 1000 / sampleRate + (padding ? 1 : 0);
+        }
+
+        return new FrameHeader(version, layer, bitrateKbps, sampleRate, padding, mono, frameLength, samplesPerFrame);
+    }
+
+    /**
+     * Parses the Xing/Info header inside the Layer III frame at {@code frameOffset}, or returns null.
+     */
+    public static XingHeader parseXing(ByteBuffer data, int frameOffset, FrameHeader header) {
+        if (header.layer() != 3) {
+            return null;
+        }
+        int sideInfo = header.version() == Version.MPEG1
+                ? (header.mono() ? 17 : 32)
+                : (header.mono() ? 9 : 17);
+        int pos = frameOffset + HEADER_SIZE + sideInfo;
+        if (data.limit() - pos < 8) {
+            return null;
+        }
+
+        int tag = data.getInt(pos);
+        boolean vbr = tag == 0x58696E67; // "Xing"
+        if (!vbr && tag != 0x496E666F) { // "Info"
+            return null;
+        }
+        int flags = data.getInt(pos + 4);
+        pos += 8;
+
+        int frames = -1;
+        long bytes = -1;
+        byte[] toc = null;
+        if ((flags & 0x1) != 0 && data.limit() - pos >= 4) {
+            frames = data.getInt(pos);
+            pos += 4;
+        }
+        if ((flags & 0x2) != 0 && data.limit() - pos >= 4) {
+            bytes = data.getInt(pos) & 0xFFFFFFFFL;
+            pos += 4;
+        }
+        if ((flags & 0x4) != 0 && data.limit() - pos >= 100) {
+            toc = new byte[100];
+            data.get(pos, toc);
+        }
+        return new XingHeader(vbr, frames, bytes, toc);
+    }
+
+    /**
+     * Finds the first offset at or after {@code from} holding a frame header that is followed by
+     * another consistent header, which rules out false syncs inside tags or album art.
+     */
+    public static int findFirstFrame(ByteBuffer data, int from) {
+        int offset = from + id3v2TagSize(data, from);
+        int limit = data.limit() - HEADER_SIZE;
+        for (; offset <= limit; offset++) {
+            FrameHeader header = parseHeader(data, offset);
+            if (header == null) {
+                continue;
+            }
+            int nextOffset = offset + header.frameLength();
+            if (nextOffset > limit) {
+                // Last frame in the buffer, nothing to confirm it with
+                return offset;
+            }
+            FrameHeader next = parseHeader(data, nextOffset);
+            if (next != null && next.sampleRate() == header.sampleRate() && next.layer() == header.layer()) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Walks every frame in {@code data}. Junk between frames is skipped by re-syncing.
+     */
+    public static FrameScan scan(ByteBuffer data) {
+        long[] offsets = new long[1024];
+        int[] lengths = new int[1024];
+        int count = 0;
+        int sampleRate = 0;
+        int samplesPerFrame = 0;
+
+        int offset = findFirstFrame(data, 0);
+        while (offset >= 0 && offset <= data.limit() - HEADER_SIZE) {
+            FrameHeader header = parseHeader(data, offset);
+            if (header == null || (sampleRate != 0 && header.sampleRate() != sampleRate)) {
+                offset = findFirstFrame(data, offset + 1);
+                continue;
+            }
+            if (offset + header.frameLength() > data.limit()) {
+                // Truncated last frame
+                break;
+            }
+            if (count == 0 && parseXing(data, offset, header) != null) {
+                // The Xing/Info frame carries metadata only, it is not part of the audio
+                offset += header.frameLength();
+                continue;
+            }
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            offsets[count] = offset;
+            lengths[count] = header.frameLength();
+            count++;
+            sampleRate = header.sampleRate();
+            samplesPerFrame = header.samplesPerFrame();
+            offset += header.frameLength();
+        }
+
+        return new FrameScan(offsets, lengths, count, sampleRate, samplesPerFrame);
+    }
+}
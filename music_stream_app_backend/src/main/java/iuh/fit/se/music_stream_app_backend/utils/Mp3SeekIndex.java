@@ -0,0 +1,173 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Maps a time offset to a byte offset inside an MP3 file.
+ * <ul>
+ *     <li>Exact: byte offset of every n-th frame, built from a full frame scan of a local file.</li>
+ *     <li>Xing TOC: the 100-entry table of contents of a VBR header, accurate to about 1%.</li>
+ *     <li>CBR: constant frame size, built from the first frame header alone.</li>
+ * </ul>
+ */
+public final class Mp3SeekIndex {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final boolean exact;
+    private final double durationSeconds;
+    private final int bitrateKbps;
+    private final long audioStart;
+    private final long audioEnd;
+    private final double frameDurationSeconds;
+
+    // Exact: offsets of frames 0, n, 2n, ... relative to audioStart
+    private final int framesPerPoint;
+    private final int[] points;
+
+    // Xing: byte position of i% of the playtime, as a fraction of 256 of the audio size
+    private final byte[] toc;
+
+    // CBR: average frame size, including padding
+    private final double frameBytes;
+
+    private Mp3SeekIndex(boolean exact, double durationSeconds, long audioStart, long audioEnd,
+                         double frameDurationSeconds, int framesPerPoint, int[] points, byte[] toc,
+                         double frameBytes) {
+        this.exact = exact;
+        this.durationSeconds = durationSeconds;
+        this.audioStart = audioStart;
+        this.audioEnd = audioEnd;
+        this.frameDurationSeconds = frameDurationSeconds;
+        this.framesPerPoint = framesPerPoint;
+        this.points = points;
+        this.toc = toc;
+        this.frameBytes = frameBytes;
+        this.bitrateKbps = durationSeconds > 0
+                ? (int) Math.round((audioEnd - audioStart) * 8 / durationSeconds / 1000)
+                : 0;
+    }
+
+    public static Mp3SeekIndex fromScan(Mp3FrameParser.FrameScan scan, double resolutionSeconds) {
+        int framesPerPoint = Math.max(1, (int) Math.round(resolutionSeconds / scan.frameDurationSeconds()));
+        int[] points = new int[(scan.frameCount() + framesPerPoint - 1) / framesPerPoint];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = (int) (scan.offsets()[i * framesPerPoint] - scan.audioStart());
+        }
+        return new Mp3SeekIndex(true, scan.durationSeconds(), scan.audioStart(), scan.audioEnd(),
+                scan.frameDurationSeconds(), framesPerPoint, points, null, 0);
+    }
+
+    /**
+     * Builds an index from the first frame of a file whose total size is {@code contentLength}.
+     * Uses the Xing/Info header when {@code xing} is present, otherwise assumes constant bitrate.
+     */
+    public static Mp3SeekIndex fromHeader(Mp3FrameParser.FrameHeader header, Mp3FrameParser.XingHeader xing,
+                                          long frameOffset, long contentLength) {
+        double frameDuration = header.durationSeconds();
+        if (xing != null && xing.frames() > 0) {
+            // The Xing frame itself holds no audio
+            long audioStart = frameOffset + header.frameLength();
+            long audioEnd = xing.bytes() > 0
+                    ? Math.min(frameOffset + xing.bytes(), contentLength)
+                    : contentLength;
+            return new Mp3SeekIndex(false, xing.frames() * frameDuration, audioStart, audioEnd,
+                    frameDuration, 0, null, xing.toc(), (double) (audioEnd - audioStart) / xing.frames());
+        }
+
+        double frameBytes = (double) header.samplesPerFrame() / 8 * header.bitrateKbps() * 1000 / header.sampleRate();
+        long frames = (long) ((contentLength - frameOffset) / frameBytes);
+        return new Mp3SeekIndex(false, frames * frameDuration, frameOffset, contentLength,
+                frameDuration, 0, null, null, frameBytes);
+    }
+
+    public boolean isExact() {
+        return exact;
+    }
+
+    public double durationSeconds() {
+        return durationSeconds;
+    }
+
+    public int bitrateKbps() {
+        return bitrateKbps;
+    }
+
+    public long audioStart() {
+        return audioStart;
+    }
+
+    public long audioEnd() {
+        return audioEnd;
+    }
+
+    /**
+     * Byte offset to start reading from to play from {@code seconds}. Exact indexes always land on
+     * a frame boundary; TOC and CBR estimates may land mid-frame, which decoders resync from.
+     * Times past the end resolve to the last frame.
+     */
+    public long byteOffsetAt(double seconds) {
+        if (seconds <= 0) {
+            return audioStart;
+        }
+        // At or past the end: the last frame, so a seek to the duration plays a short tail instead of failing
+        if (seconds >= durationSeconds) {
+            seconds = Math.max(0, durationSeconds - frameDurationSeconds);
+        }
+
+        if (points != null) {
+            int frame = (int) (seconds / frameDurationSeconds);
+            return audioStart + (points[Math.min(frame / framesPerPoint, points.length - 1)] & 0xFFFFFFFFL);
+        }
+
+        if (toc != null) {
+            double percent = seconds / durationSeconds * 100;
+            int i = Math.min((int) percent, 99);
+            double fa = toc[i] & 0xFF;
+            double fb = i < 99 ? toc[i + 1] & 0xFF : 256;
+            double fraction = (fa + (fb - fa) * (percent - i)) / 256;
+            return Math.min(audioStart + (long) (fraction * (audioEnd - audioStart)), audioEnd);
+        }
+
+        long frame = (long) (seconds / frameDurationSeconds);
+        return Math.min(audioStart + (long) (frame * frameBytes), audioEnd);
+    }
+
+    /**
+     * Only exact indexes are persisted, estimates are cheap to rebuild.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        if (!exact) {
+            throw new IllegalStateException("Only exact seek indexes can be persisted");
+        }
+        out.writeInt(FORMAT_VERSION);
+        out.writeDouble(durationSeconds);
+        out.writeLong(audioStart);
+        out.writeLong(audioEnd);
+        out.writeDouble(frameDurationSeconds);
+        out.writeInt(framesPerPoint);
+        out.writeInt(points.length);
+        for (int point : points) {
+            out.writeInt(point);
+        }
+    }
+
+    public static Mp3SeekIndex readFrom(DataInput in) throws IOException {
+        if (in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unsupported seek index version");
+        }
+        double durationSeconds = in.readDouble();
+        long audioStart = in.readLong();
+        long audioEnd = in.readLong();
+        double frameDurationSeconds = in.readDouble();
+        int framesPerPoint = in.readInt();
+        int[] points = new int[in.readInt()];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = in.readInt();
+        }
+        return new Mp3SeekIndex(true, durationSeconds, audioStart, audioEnd, frameDurationSeconds,
+                framesPerPoint, points, null, 0);
+    }
+}
@@ -0,0 +1,64 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import iuh.fit.se.music_stream_app_backend.service.OriginFetchService;
+import lombok.Getter;
+import org.springframework.core.io.AbstractResource;
+
+import java.io.InputStream;
+
+/**
+ * Audio that is not cached locally. The response writer proxies it with the client's
+ * Range passed through to origin instead of opening it through {@link #getInputStream()}.
+ */
+@Getter
+public class OriginResource extends AbstractResource {
+
+    private final String url;
+    private final OriginFetchService originFetchService;
+
+    public OriginResource(String url, OriginFetchService originFetchService) {
+        this.url = url;
+        this.originFetchService = originFetchService;
+    }
+
+    public OriginFetchService.OriginResponse fetch(String range, String ifRange) {
+        return originFetchService.fetch(url, range, ifRange);
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return originFetchService.fetch(url, null, null).body();
+    }
+
+    @Override
+    public boolean exists() {
+        // Checked by the single GET instead of a separate probe
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return -1;
+    }
+
+    @Override
+    public long lastModified() {
+        return 0;
+    }
+
+    @Override
+    public String getFilename() {
+        String path = url;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        return name.isEmpty() ? null : name;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Origin resource [" + url + "]";
+    }
+}
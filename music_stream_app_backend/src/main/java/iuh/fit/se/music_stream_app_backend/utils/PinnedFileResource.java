@@ -0,0 +1,37 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A cached file that the audio cache will not delete until {@link #close()} is called (or the
+ * pin times out). Callers receive it as a plain {@link Resource} and hand it back with
+ * {@link #release(Resource)} once the file has been opened or copied.
+ */
+public final class PinnedFileResource extends FileSystemResource implements AutoCloseable {
+
+    private final Runnable onRelease;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    public PinnedFileResource(Path path, Runnable onRelease) {
+        super(path);
+        this.onRelease = onRelease;
+    }
+
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            onRelease.run();
+        }
+    }
+
+    // Safe on any resource: origin proxies and unpinned files have nothing to release
+    public static void release(Resource resource) {
+        if (resource instanceof PinnedFileResource pinned) {
+            pinned.close();
+        }
+    }
+}
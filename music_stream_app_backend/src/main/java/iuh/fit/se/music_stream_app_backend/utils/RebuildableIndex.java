@@ -0,0 +1,80 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * An in-memory index that follows catalog writes incrementally and is rebuilt from scratch now
+ * and then. Writes apply to the live index at once; while a rebuild scans, they are also recorded
+ * and replayed onto the new index, which then replaces the live one with no write in between, so
+ * the swap loses none of them. Rebuilds run one at a time.
+ */
+public final class RebuildableIndex<T> {
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile T live;
+    // Non-null while a rebuild scans; guarded by writeLock
+    private List<Consumer<T>> pendingWrites;
+
+    public RebuildableIndex(T initial) {
+        this.live = initial;
+    }
+
+    public T get() {
+        return live;
+    }
+
+    public void write(Consumer<T> write) {
+        writeLock.lock();
+        try {
+            write.accept(live);
+            if (pendingWrites != null) {
+                pendingWrites.add(write);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Fills {@code empty} with {@code scan} and swaps it in. If the scan throws, the live index stays.
+     *
+     * @return the new live index
+     */
+    public T rebuild(T empty, Consumer<T> scan) {
+        rebuildLock.lock();
+        try {
+            record(new ArrayList<>());
+            try {
+                scan.accept(empty);
+            } catch (RuntimeException e) {
+                record(null);
+                throw e;
+            }
+
+            writeLock.lock();
+            try {
+                pendingWrites.forEach(write -> write.accept(empty));
+                live = empty;
+            } finally {
+                pendingWrites = null;
+                writeLock.unlock();
+            }
+            return empty;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void record(List<Consumer<T>> writes) {
+        writeLock.lock();
+        try {
+            pendingWrites = writes;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
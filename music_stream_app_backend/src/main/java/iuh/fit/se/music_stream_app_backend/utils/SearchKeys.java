@@ -0,0 +1,35 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import iuh.fit.se.music_stream_app_backend.models.Album;
+import iuh.fit.se.music_stream_app_backend.models.Artist;
+import iuh.fit.se.music_stream_app_backend.models.Song;
+
+import java.util.List;
+
+/**
+ * Derives the persisted search keys of catalog documents: the whole name folded, for exact and
+ * prefix matches, and its distinct folded tokens, for word matches through a multikey index.
+ */
+public final class SearchKeys {
+
+    private SearchKeys() {
+    }
+
+    public static void apply(Object entity) {
+        if (entity instanceof Song song) {
+            song.setTitleFolded(TextNormalizer.fold(song.getTitle()));
+            song.setSearchTokens(tokens(song.getTitle()));
+            song.setAlbumTokens(tokens(song.getAlbum() != null ? song.getAlbum().getAlbumName() : null));
+        } else if (entity instanceof Artist artist) {
+            artist.setArtistNameFolded(TextNormalizer.fold(artist.getArtistName()));
+            artist.setSearchTokens(tokens(artist.getArtistName()));
+        } else if (entity instanceof Album album) {
+            album.setAlbumNameFolded(TextNormalizer.fold(album.getAlbumName()));
+            album.setSearchTokens(tokens(album.getAlbumName()));
+        }
+    }
+
+    public static List<String> tokens(String text) {
+        return TextNormalizer.tokenize(text).stream().distinct().toList();
+    }
+}
@@ -0,0 +1,131 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import com.mongodb.MongoExecutionTimeoutException;
+import iuh.fit.se.music_stream_app_backend.exception.ServiceUnavailableException;
+import iuh.fit.se.music_stream_app_backend.models.enums.SearchMode;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Builds and runs the name-search queries. User input never reaches $regex unescaped; the default
+ * mode is an anchored prefix on a folded field, which MongoDB answers with an index range scan,
+ * and every query carries maxTimeMS so a slow one is stopped by the server instead of piling up.
+ */
+@Component
+@RequiredArgsConstructor
+public class SearchQueries {
+
+    private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    @Value("${search.query.max-time-ms:2000}")
+    private long maxTimeMs;
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Matches the query against a whole name.
+     *
+     * @param foldedField field holding {@link TextNormalizer#fold} of the name, indexed
+     * @param nameField   field holding the name as displayed, for {@link SearchMode#CONTAINS}
+     * @return null when the query has nothing to match on
+     */
+    public Criteria name(SearchMode mode, String foldedField, String nameField, String query) {
+        if (mode == SearchMode.CONTAINS) {
+            String literal = query.trim();
+            return literal.isEmpty() ? null : Criteria.where(nameField).regex(escape(literal), "i");
+        }
+        String folded = TextNormalizer.fold(query);
+        // Already lower-case, so no 'i' option: with it the index could not bound the scan
+        return folded.isEmpty() ? null : Criteria.where(foldedField).regex("^" + escape(folded));
+    }
+
+    /**
+     * Every query word must be one of the document's folded tokens, the last one as a prefix;
+     * both conditions use the multikey index on the tokens field.
+     *
+     * @return null when the query has no words
+     */
+    public Criteria tokens(String tokensField, String query) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        Criteria prefix = Criteria.where(tokensField).regex("^" + escape(tokens.get(tokens.size() - 1)));
+        if (tokens.size() == 1) {
+            return prefix;
+        }
+        return new Criteria().andOperator(
+                Criteria.where(tokensField).all(tokens.subList(0, tokens.size() - 1)),
+                prefix);
+    }
+
+    public <T> Page<T> page(Criteria criteria, Pageable pageable, Class<T> type) {
+        if (criteria == null) {
+            return Page.empty(pageable);
+        }
+        Query query = bounded(Query.query(criteria));
+        long total = run(() -> mongoTemplate.count(query, type));
+        List<T> content = total > pageable.getOffset()
+                ? run(() -> mongoTemplate.find(Query.of(query).with(pageable), type))
+                : List.of();
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    public <T> List<T> list(Criteria criteria, int limit, Class<T> type) {
+        if (criteria == null) {
+            return List.of();
+        }
+        return run(() -> mongoTemplate.find(bounded(Query.query(criteria)).limit(limit), type));
+    }
+
+    public Query bounded(Query query) {
+        return query.maxTime(Duration.ofMillis(maxTimeMs));
+    }
+
+    public static String escape(String literal) {
+        StringBuilder escaped = new StringBuilder(literal.length() + 8);
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (REGEX_METACHARACTERS.indexOf(c) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    private <T> T run(Supplier<T> query) {
+        try {
+            return query.get();
+        } catch (DataAccessException e) {
+            if (isTimeout(e)) {
+                meterRegistry.counter("search.query.timeouts").increment();
+                throw new ServiceUnavailableException("Search took too long, try a more specific query");
+            }
+            throw e;
+        }
+    }
+
+    private boolean isTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoExecutionTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
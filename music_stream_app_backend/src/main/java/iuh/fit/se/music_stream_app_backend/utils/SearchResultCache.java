@@ -0,0 +1,199 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import iuh.fit.se.music_stream_app_backend.models.enums.SearchMode;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Size-bounded LRU of search result pages, keyed by (kind, mode, query, page, size, sort). Each catalog
+ * section has a version counter that catalog writes bump; an entry remembers the version it was
+ * loaded under and is dropped when read after a bump, so a write invalidates only the results
+ * that could have changed, without a global flush. Entries also expire after a TTL, which covers
+ * writes made by other instances. Concurrent misses on the same key run the query once.
+ */
+@Component
+@RequiredArgsConstructor
+public class SearchResultCache {
+
+    public enum Section {
+        SONGS, ARTISTS, ALBUMS
+    }
+
+    // Map entry, key and bookkeeping on top of the result itself
+    private static final long ENTRY_OVERHEAD_BYTES = 256;
+
+    @Value("${search.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.cache.max-bytes:33554432}")
+    private long maxBytes;
+
+    @Value("${search.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    // Estimated heap of one cached document; pages are weighed by count instead of being serialized
+    @Value("${search.cache.bytes-per-result:2048}")
+    private long bytesPerResult;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Section, AtomicLong> versions = new EnumMap<>(Section.class);
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<Load, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long cachedBytes;
+
+    @PostConstruct
+    void init() {
+        for (Section section : Section.values()) {
+            versions.put(section, new AtomicLong());
+        }
+        meterRegistry.gauge("search.cache.bytes", this, cache -> cache.cachedBytes);
+    }
+
+    /**
+     * Returns the cached result for this query, or loads, caches and returns it.
+     *
+     * @param section the part of the catalog the result is read from
+     * @param kind    which search, so the same query of two searches does not collide
+     * @param mode    how the query matches, which decides which spellings share a result
+     */
+    public <T> T get(Section section, String kind, SearchMode mode, String query, Pageable pageable,
+                     Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        // Prefix searches run on the folded field, so "Sơn" and "son" share a result; contains
+        // searches are case-insensitive but not accent-insensitive, so they are only lower-cased
+        String normalized = mode == SearchMode.PREFIX
+                ? TextNormalizer.fold(query)
+                : query.trim().toLowerCase(Locale.ROOT);
+        Key key = new Key(section, kind, mode, normalized,
+                pageable.isPaged() ? pageable.getPageNumber() : -1,
+                pageable.isPaged() ? pageable.getPageSize() : -1,
+                pageable.getSort().toString());
+        long version = versions.get(section).get();
+        long now = System.nanoTime();
+
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.version == version && entry.expiresAt - now > 0) {
+                    meterRegistry.counter("search.cache.requests", "result", "hit").increment();
+                    @SuppressWarnings("unchecked")
+                    T value = (T) entry.value;
+                    return value;
+                }
+                entries.remove(key);
+                cachedBytes -= entry.bytes;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        meterRegistry.counter("search.cache.requests", "result", "miss").increment();
+        return load(key, version, now, loader);
+    }
+
+    // Only misses under the same version share a load, a query started before a write is not reused after it
+    private <T> T load(Key key, long version, long now, Supplier<T> loader) {
+        Load load = new Load(key, version);
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loading.putIfAbsent(load, mine);
+        if (existing != null) {
+            try {
+                @SuppressWarnings("unchecked")
+                T value = (T) existing.join();
+                return value;
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        try {
+            // Loaded under the version read before the query: a write meanwhile makes it stale at once
+            T value = loader.get();
+            put(key, new Entry(value, version, now + TimeUnit.SECONDS.toNanos(ttlSeconds), weigh(value)));
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(load, mine);
+        }
+    }
+
+    /**
+     * Called after a catalog write; cached results of that section are dropped as they are read.
+     */
+    public void invalidate(Section section) {
+        versions.get(section).incrementAndGet();
+    }
+
+    private void put(Key key, Entry entry) {
+        if (entry.bytes > maxBytes) {
+            return;
+        }
+        lock.lock();
+        try {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                cachedBytes -= previous.bytes;
+            }
+            cachedBytes += entry.bytes;
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (cachedBytes > maxBytes && eldest.hasNext()) {
+                cachedBytes -= eldest.next().bytes;
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long weigh(Object value) {
+        int results;
+        if (value instanceof Page<?> page) {
+            results = page.getNumberOfElements();
+        } else if (value instanceof Collection<?> collection) {
+            results = collection.size();
+        } else {
+            results = 1;
+        }
+        return ENTRY_OVERHEAD_BYTES + results * bytesPerResult;
+    }
+
+    private record Key(Section section, String kind, SearchMode mode, String query, int page, int size, String sort) {
+    }
+
+    private record Load(Key key, long version) {
+    }
+
+    private record Entry(Object value, long version, long expiresAt, long bytes) {
+    }
+}
@@ -0,0 +1,63 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import iuh.fit.se.music_stream_app_backend.exception.ServiceUnavailableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers nonces of redeemed signed tokens until they expire, bucketed by expiry window so
+ * whole windows are dropped at once. The set is bounded: when full, new redemptions are refused
+ * rather than forgetting nonces that could still be replayed.
+ */
+@Component
+public class SeenNonceRegistry {
+
+    private final ConcurrentSkipListMap<Long, Set<String>> windows = new ConcurrentSkipListMap<>();
+    private final AtomicLong size = new AtomicLong();
+
+    @Value("${download.signing.nonce-window-seconds:60}")
+    private long windowSeconds;
+
+    @Value("${download.signing.max-tracked-nonces:1000000}")
+    private long maxTrackedNonces;
+
+    /**
+     * @return true the first time a nonce is seen, false on replay
+     * @throws ServiceUnavailableException when the registry is full
+     */
+    public boolean markSeen(String nonce, long expiresAtEpochSeconds, long nowEpochSeconds) {
+        purgeExpired(nowEpochSeconds);
+
+        if (size.incrementAndGet() > maxTrackedNonces) {
+            size.decrementAndGet();
+            throw new ServiceUnavailableException("Too many downloads in progress, please retry later");
+        }
+        long window = expiresAtEpochSeconds / windowSeconds;
+        boolean added = windows.computeIfAbsent(window, w -> ConcurrentHashMap.newKeySet()).add(nonce);
+        if (!added) {
+            size.decrementAndGet();
+        }
+        return added;
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    // A window can go once every token in it has expired
+    private void purgeExpired(long nowEpochSeconds) {
+        ConcurrentNavigableMap<Long, Set<String>> expired = windows.headMap(nowEpochSeconds / windowSeconds);
+        for (Long window : expired.keySet()) {
+            Set<String> removed = windows.remove(window);
+            if (removed != null) {
+                size.addAndGet(-removed.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import iuh.fit.se.music_stream_app_backend.exception.TooManyStreamsException;
+import iuh.fit.se.music_stream_app_backend.models.enums.Type;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Caps concurrent streams per account. A stream is one (user, song) pair that has a request in
+ * flight or is held: for a few seconds after a request ends (the gap between a player's Range
+ * requests), for the heartbeat timeout after a heartbeat, or after a response that hands playback
+ * off (a redirect, an HLS segment). The many Range requests of one player count once. A held
+ * lease counts until it runs out, whether or not the client sends heartbeats, so a new song only
+ * takes a slot that has expired. Users are striped over a fixed set of locks; no database access
+ * on stream start. Leases are snapshotted to disk periodically and reloaded on startup.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StreamLeaseRegistry {
+
+    private static final int STRIPES = 64;
+    private static final int SNAPSHOT_VERSION = 2;
+
+    @Value("${download.streams.enabled:true}")
+    private boolean enabled;
+
+    @Value("${download.streams.standard-max:1}")
+    private int standardMax;
+
+    @Value("${download.streams.premium-max:3}")
+    private int premiumMax;
+
+    @Value("${download.streams.heartbeat-timeout-seconds:120}")
+    private long heartbeatTimeoutSeconds;
+
+    @Value("${download.streams.release-linger-seconds:5}")
+    private long releaseLingerSeconds;
+
+    @Value("${download.streams.snapshot-file:./audio-cache/stream-leases.snapshot}")
+    private String snapshotFile;
+
+    private final MeterRegistry meterRegistry;
+
+    // Epoch millis; replaced in tests
+    private LongSupplier clock = System::currentTimeMillis;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    // Lists are only read or changed while holding the user's stripe
+    private final Map<String, List<Lease>> leases = new ConcurrentHashMap<>();
+
+    private Path snapshotPath;
+
+    @PostConstruct
+    void init() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        snapshotPath = Paths.get(snapshotFile).toAbsolutePath().normalize();
+        recover();
+        meterRegistry.gauge("download.streams.active", leases, map -> countLeases());
+    }
+
+    /**
+     * Takes (or re-enters) the lease for this user and song. Must be paired with {@link #release(Lease)}.
+     *
+     * @throws TooManyStreamsException when the account already has its maximum of other streams
+     */
+    public Lease acquire(String userId, Type type, String songId) {
+        if (!enabled) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        ReentrantLock lock = stripe(userId);
+        lock.lock();
+        try {
+            List<Lease> userLeases = leases.computeIfAbsent(userId, id -> new ArrayList<>(2));
+            userLeases.removeIf(lease -> isExpired(lease, now));
+
+            for (Lease lease : userLeases) {
+                if (lease.songId.equals(songId)) {
+                    lease.active++;
+                    return lease;
+                }
+            }
+
+            int max = type == Type.PREMIUM ? premiumMax : standardMax;
+            if (userLeases.size() >= max) {
+                meterRegistry.counter("download.streams.rejected", "type", type.name().toLowerCase()).increment();
+                throw new TooManyStreamsException("Maximum of " + max + " concurrent streams reached for this account");
+            }
+
+            Lease lease = new Lease(userId, songId, now, now);
+            lease.active = 1;
+            userLeases.add(lease);
+            return lease;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The player keeps the slot for the linger after its request ends, long enough for its next Range request
+    public void release(Lease lease) {
+        release(lease, releaseLingerSeconds);
+    }
+
+    /**
+     * Releases after a response the player keeps playing from without coming back soon: a redirect
+     * to another URL, or an HLS segment with the next one a few seconds away. The slot is held for
+     * the heartbeat timeout.
+     */
+    public void releaseDetached(Lease lease) {
+        release(lease, heartbeatTimeoutSeconds);
+    }
+
+    private void release(Lease lease, long holdSeconds) {
+        if (lease == null) {
+            return;
+        }
+        ReentrantLock lock = stripe(lease.userId);
+        lock.lock();
+        try {
+            lease.active = Math.max(0, lease.active - 1);
+            lease.hold(clock.getAsLong() + holdSeconds * 1000);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void heartbeat(String userId, String songId) {
+        if (!enabled) {
+            return;
+        }
+        ReentrantLock lock = stripe(userId);
+        lock.lock();
+        try {
+            List<Lease> userLeases = leases.get(userId);
+            if (userLeases != null) {
+                for (Lease lease : userLeases) {
+                    if (lease.songId.equals(songId)) {
+                        lease.hold(clock.getAsLong() + heartbeatTimeoutSeconds * 1000);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void expire() {
+        long now = clock.getAsLong();
+        for (String userId : leases.keySet()) {
+            ReentrantLock lock = stripe(userId);
+            lock.lock();
+            try {
+                List<Lease> userLeases = leases.get(userId);
+                if (userLeases == null) {
+                    continue;
+                }
+                userLeases.removeIf(lease -> isExpired(lease, now));
+                if (userLeases.isEmpty()) {
+                    leases.remove(userId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes all leases to a compact binary file (replaced atomically).
+     */
+    @PreDestroy
+    public void snapshot() {
+        if (!enabled) {
+            return;
+        }
+        long now = clock.getAsLong();
+        List<Lease> copy = new ArrayList<>();
+        for (String userId : leases.keySet()) {
+            ReentrantLock lock = stripe(userId);
+            lock.lock();
+            try {
+                List<Lease> userLeases = leases.get(userId);
+                if (userLeases == null) {
+                    continue;
+                }
+                for (Lease lease : userLeases) {
+                    // Requests in flight die with this process: their leases only live out the heartbeat timeout
+                    long heldUntil = lease.active > 0
+                            ? Math.max(lease.heldUntil, now + heartbeatTimeoutSeconds * 1000)
+                            : lease.heldUntil;
+                    copy.add(new Lease(lease.userId, lease.songId, lease.startedAt, heldUntil));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        try {
+            Files.createDirectories(snapshotPath.getParent());
+            Path part = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".part");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(part)))) {
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(copy.size());
+                for (Lease lease : copy) {
+                    out.writeUTF(lease.userId);
+                    out.writeUTF(lease.songId);
+                    out.writeLong(lease.startedAt);
+                    out.writeLong(lease.heldUntil);
+                }
+            }
+            Files.move(part, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write stream lease snapshot {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    private void recover() {
+        if (!enabled || !Files.exists(snapshotPath)) {
+            return;
+        }
+        long now = clock.getAsLong();
+        Map<String, List<Lease>> restored = new HashMap<>();
+        int count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                log.warn("Ignoring stream lease snapshot with unknown version");
+                return;
+            }
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                Lease lease = new Lease(in.readUTF(), in.readUTF(), in.readLong(), in.readLong());
+                if (!isExpired(lease, now)) {
+                    restored.computeIfAbsent(lease.userId, id -> new ArrayList<>(2)).add(lease);
+                    count++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable stream lease snapshot {}", snapshotPath);
+            return;
+        }
+        leases.putAll(restored);
+        log.info("Recovered {} stream leases from {}", count, snapshotPath);
+    }
+
+    private int countLeases() {
+        int count = 0;
+        for (List<Lease> userLeases : leases.values()) {
+            count += userLeases.size();
+        }
+        return count;
+    }
+
+    private boolean isExpired(Lease lease, long now) {
+        return lease.active == 0 && now > lease.heldUntil;
+    }
+
+    private ReentrantLock stripe(String userId) {
+        return stripes[Math.floorMod(userId.hashCode(), STRIPES)];
+    }
+
+    public static final class Lease {
+        private final String userId;
+        private final String songId;
+        private final long startedAt;
+        // Counted until then once no request is in flight; only ever extended
+        private long heldUntil;
+        private int active;
+
+        private Lease(String userId, String songId, long startedAt, long heldUntil) {
+            this.userId = userId;
+            this.songId = songId;
+            this.startedAt = startedAt;
+            this.heldUntil = heldUntil;
+        }
+
+        private void hold(long until) {
+            heldUntil = Math.max(heldUntil, until);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Radix trie over folded names for type-ahead. Each entry is inserted under the folded name and
+ * under every word start in it ("son tung m tp", "tung m tp", ...), so typing any word finds it.
+ * Every node keeps the k most popular entries of its subtree, so a lookup is one walk down the
+ * prefix and a copy of that node's list, no matter how many entries share the prefix.
+ */
+public final class SuggestionTrie {
+
+    private static final Suggestion[] NONE = new Suggestion[0];
+    private static final Comparator<Suggestion> BY_SCORE =
+            Comparator.comparingLong(Suggestion::score).reversed().thenComparing(Suggestion::text);
+
+    public record Suggestion(String type, String id, String text, long score) {
+        private String key() {
+            return type + ":" + id;
+        }
+    }
+
+    private final int topK;
+    private final int maxWordStarts;
+    private final Node root = new Node("");
+    private final Map<String, Suggestion> entries = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public SuggestionTrie(int topK, int maxWordStarts) {
+        this.topK = topK;
+        this.maxWordStarts = maxWordStarts;
+    }
+
+    /**
+     * Adds the entry, or replaces its text and score if it is already in the trie.
+     */
+    public void put(Suggestion suggestion) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(suggestion.key());
+            entries.put(suggestion.key(), suggestion);
+            for (String key : keys(suggestion.text())) {
+                List<Node> path = insertPath(key);
+                Node node = path.get(path.size() - 1);
+                node.terminals.add(suggestion);
+                recompute(path);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String type, String id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(type + ":" + id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Most popular entries having a word that starts with {@code prefix} (folded), best first.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String folded = TextNormalizer.fold(prefix);
+        if (folded.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int i = 0;
+            while (i < folded.length()) {
+                Node child = node.children.get(folded.charAt(i));
+                if (child == null) {
+                    return List.of();
+                }
+                int common = commonPrefix(child.label, folded, i);
+                if (common < child.label.length() && i + common < folded.length()) {
+                    // Diverges inside the edge
+                    return List.of();
+                }
+                i += common;
+                node = child;
+            }
+            return Arrays.asList(node.top).subList(0, Math.min(limit, node.top.length));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(String entryKey) {
+        Suggestion existing = entries.remove(entryKey);
+        if (existing == null) {
+            return;
+        }
+        for (String key : keys(existing.text())) {
+            List<Node> path = exactPath(key);
+            if (path == null) {
+                continue;
+            }
+            Node node = path.get(path.size() - 1);
+            node.terminals.removeIf(terminal -> terminal.key().equals(entryKey));
+            // Drop emptied leaves, then refresh the top lists on the way up
+            for (int i = path.size() - 1; i > 0; i--) {
+                Node current = path.get(i);
+                if (!current.terminals.isEmpty() || !current.children.isEmpty()) {
+                    break;
+                }
+                path.get(i - 1).children.remove(current.label.charAt(0));
+                path.remove(i);
+            }
+            recompute(path);
+        }
+    }
+
+    private List<String> keys(String text) {
+        String folded = TextNormalizer.fold(text);
+        List<String> keys = new ArrayList<>();
+        int start = 0;
+        while (start < folded.length() && keys.size() < maxWordStarts) {
+            keys.add(folded.substring(start));
+            int space = folded.indexOf(' ', start);
+            if (space < 0) {
+                break;
+            }
+            start = space + 1;
+        }
+        return keys.stream().distinct().toList();
+    }
+
+    // Walks to the node for key, creating and splitting edges as needed
+    private List<Node> insertPath(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            char c = key.charAt(i);
+            Node child = node.children.get(c);
+            if (child == null) {
+                child = new Node(key.substring(i));
+                node.children.put(c, child);
+                path.add(child);
+                return path;
+            }
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children.put(child.label.charAt(0), child);
+                middle.top = child.top;
+                node.children.put(c, middle);
+                child = middle;
+            }
+            i += common;
+            node = child;
+            path.add(node);
+        }
+        return path;
+    }
+
+    private List<Node> exactPath(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.children.get(key.charAt(i));
+            if (child == null || !key.startsWith(child.label, i)) {
+                return null;
+            }
+            i += child.label.length();
+            node = child;
+            path.add(node);
+        }
+        return path;
+    }
+
+    // Bottom-up: a node's top is the best of its own entries and its children's tops
+    private void recompute(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            List<Suggestion> candidates = new ArrayList<>(node.terminals);
+            for (Node child : node.children.values()) {
+                candidates.addAll(Arrays.asList(child.top));
+            }
+            candidates.sort(BY_SCORE);
+
+            List<Suggestion> top = new ArrayList<>(topK);
+            Set<String> seen = new HashSet<>();
+            for (Suggestion candidate : candidates) {
+                // One entry can sit under several word starts of the same subtree
+                if (seen.add(candidate.key())) {
+                    top.add(candidate);
+                    if (top.size() == topK) {
+                        break;
+                    }
+                }
+            }
+            node.top = top.toArray(NONE);
+        }
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Node {
+        private String label;
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private final List<Suggestion> terminals = new ArrayList<>(1);
+        private Suggestion[] top = NONE;
+
+        private Node(String label) {
+            this.label = label;
+        }
+    }
+}
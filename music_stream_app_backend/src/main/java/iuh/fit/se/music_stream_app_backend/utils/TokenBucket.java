@@ -0,0 +1,74 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its GCRA form: the whole state is one "theoretical arrival time",
+ * advanced with a single CAS. Callers reserve bytes up front and wait the returned delay,
+ * so concurrent writers queue in reservation order without holding any lock.
+ */
+public final class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final long bytesPerSecond;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param bytesPerSecond sustained rate, 0 or less for unlimited
+     * @param burstBytes     bytes that may be sent at once after an idle period
+     */
+    public TokenBucket(long bytesPerSecond, long burstBytes) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.burstNanos = bytesPerSecond > 0 ? burstBytes * NANOS_PER_SECOND / bytesPerSecond : 0;
+        // Starts full: no debt before now
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Reserves {@code bytes} and returns how many nanoseconds the caller must wait before sending them.
+     */
+    public long reserve(long bytes) {
+        if (bytesPerSecond <= 0) {
+            return 0;
+        }
+        long cost = bytes * NANOS_PER_SECOND / bytesPerSecond;
+        while (true) {
+            long now = System.nanoTime();
+            long current = theoreticalArrival.get();
+            // Idle time pays back the debt, but never builds credit beyond the burst
+            long base = current - now > 0 ? current : now;
+            long next = base + cost;
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return Math.max(0, next - now - burstNanos);
+            }
+        }
+    }
+
+    /**
+     * Takes {@code bytes} only if they are available right now, without going into debt.
+     */
+    public boolean tryReserve(long bytes) {
+        if (bytesPerSecond <= 0) {
+            return true;
+        }
+        long cost = bytes * NANOS_PER_SECOND / bytesPerSecond;
+        while (true) {
+            long now = System.nanoTime();
+            long current = theoreticalArrival.get();
+            long base = current - now > 0 ? current : now;
+            long next = base + cost;
+            if (next - now - burstNanos > 0) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+}
@@ -0,0 +1,161 @@
+package iuh.fit.se.music_stream_app_backend.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent-stream capacity benchmark against a running backend.
+ * <p>
+ * Opens N simultaneous streams of one song, each read at playback speed like a real listener,
+ * and reports how many got their first byte in time. Run it once with platform request threads
+ * and once with virtual threads to compare:
+ * <pre>
+ * # server, with per-account limits off so one account can open every stream
+ * VIRTUAL_THREADS_ENABLED=false|true \
+ *   DOWNLOAD_STREAMS_ENABLED=false DOWNLOAD_BANDWIDTH_ENABLED=false mvn spring-boot:run
+ *
+ * # benchmark (test classpath, not run by mvn test)
+ * java -cp target/test-classes iuh.fit.se.music_stream_app_backend.benchmark.ConcurrentStreamBenchmark \
+ *   http://localhost:8080 &lt;jwt&gt; &lt;stream token&gt; 100,500,1000,2000 20
+ * </pre>
+ * With the default 200 Tomcat worker threads, streams beyond the pool size wait for a worker
+ * and time out; with virtual threads every stream is served until sockets or bandwidth run out.
+ */
+public final class ConcurrentStreamBenchmark {
+
+    // 128 kbps playback
+    private static final int LISTENER_BYTES_PER_SECOND = 16 * 1024;
+    private static final Duration FIRST_BYTE_TIMEOUT = Duration.ofSeconds(5);
+
+    private ConcurrentStreamBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: ConcurrentStreamBenchmark <baseUrl> <jwt> <streamToken> [levels=100,500,1000] [seconds=20]");
+            System.exit(1);
+        }
+        String baseUrl = args[0];
+        String jwt = args[1];
+        String token = args[2];
+        int[] levels = Arrays.stream((args.length > 3 ? args[3] : "100,500,1000").split(","))
+                .mapToInt(level -> Integer.parseInt(level.trim()))
+                .toArray();
+        int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        URI uri = URI.create(baseUrl + "/api/download/stream/" + token);
+
+        System.out.printf("%8s %8s %8s %8s %10s %10s %12s%n",
+                "streams", "ok", "timeout", "error", "ttfb p50", "ttfb p99", "MB received");
+        for (int level : levels) {
+            Result result = run(client, uri, jwt, level, seconds);
+            System.out.printf("%8d %8d %8d %8d %8dms %8dms %12.1f%n",
+                    level, result.ok, result.timeouts, result.errors,
+                    result.percentile(50), result.percentile(99), result.bytes / (1024.0 * 1024.0));
+        }
+    }
+
+    private static Result run(HttpClient client, URI uri, String jwt, int streams, int seconds)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<Listener>> futures = new ArrayList<>(streams);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < streams; i++) {
+                futures.add(executor.submit(() -> listen(client, uri, jwt, deadline)));
+            }
+        }
+
+        Result result = new Result();
+        for (Future<Listener> future : futures) {
+            try {
+                Listener listener = future.get();
+                result.bytes += listener.bytes;
+                if (listener.firstByteMillis < 0) {
+                    result.errors++;
+                } else if (listener.firstByteMillis > FIRST_BYTE_TIMEOUT.toMillis()) {
+                    result.timeouts++;
+                } else {
+                    result.ok++;
+                    result.firstByteMillis.add(listener.firstByteMillis);
+                }
+            } catch (Exception e) {
+                result.errors++;
+            }
+        }
+        return result;
+    }
+
+    // Reads at playback speed until the deadline, like a player with a small buffer
+    private static Listener listen(HttpClient client, URI uri, String jwt, long deadline) {
+        Listener listener = new Listener();
+        long start = System.nanoTime();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Authorization", "Bearer " + jwt)
+                .timeout(FIRST_BYTE_TIMEOUT.multipliedBy(4))
+                .GET()
+                .build();
+        try {
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                if (response.statusCode() >= 400) {
+                    listener.firstByteMillis = -1;
+                    return listener;
+                }
+                byte[] buffer = new byte[LISTENER_BYTES_PER_SECOND];
+                int read = body.read(buffer);
+                listener.firstByteMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                while (read != -1 && System.nanoTime() < deadline) {
+                    listener.bytes += read;
+                    Thread.sleep(1000);
+                    read = body.readNBytes(buffer, 0, buffer.length);
+                    if (read == 0) {
+                        break;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (listener.firstByteMillis == 0) {
+                listener.firstByteMillis = -1;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return listener;
+    }
+
+    private static final class Listener {
+        private long firstByteMillis;
+        private long bytes;
+    }
+
+    private static final class Result {
+        private int ok;
+        private int timeouts;
+        private int errors;
+        private long bytes;
+        private final List<Long> firstByteMillis = new ArrayList<>();
+
+        private long percentile(int percentile) {
+            if (firstByteMillis.isEmpty()) {
+                return 0;
+            }
+            List<Long> sorted = firstByteMillis.stream().sorted().toList();
+            return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percentile / 100));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package iuh.fit.se.music_stream_app_backend.benchmark;
+
+import iuh.fit.se.music_stream_app_backend.utils.InvertedIndex;
+import iuh.fit.se.music_stream_app_backend.utils.TextNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency on a synthetic catalog of Vietnamese-like song titles, with the latency
+ * targets enforced by {@link #main}:
+ * <pre>
+ * mvn test-compile
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *   iuh.fit.se.music_stream_app_backend.benchmark.FuzzySearchBenchmark
+ * </pre>
+ * Exits with status 1 when an average is above its target. Not run by mvn test.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class FuzzySearchBenchmark {
+
+    // Average microseconds per query
+    private static final Map<String, Double> TARGETS_MICROS = Map.of(
+            "exactSearch", 2_000.0,
+            "fuzzySearch", 10_000.0,
+            "exactThenFuzzy", 10_000.0);
+
+    private static final String[] SYLLABLES = {
+            "anh", "em", "yêu", "người", "tình", "mưa", "nắng", "đêm", "ngày", "trăng", "gió", "biển",
+            "xa", "nhớ", "thương", "hoa", "lòng", "mãi", "về", "đi", "trời", "mây", "sao", "tim",
+            "buồn", "vui", "đường", "phố", "quê", "hương", "chiều", "sáng", "mùa", "thu", "đông",
+            "xuân", "hạ", "lá", "rơi", "bóng", "hình", "giấc", "mơ", "câu", "chuyện", "bài", "khúc",
+            "hát", "dòng", "sông", "núi", "con", "thuyền", "bến", "đợi", "chờ", "cô", "đơn", "nguyễn",
+            "trần", "phương", "thanh", "tùng", "sơn", "hoàng", "minh", "khánh", "ngọc", "huyền",
+            "trường", "giang", "quỳnh", "thảo", "nguyên", "khuya", "thương", "tương", "phùng",
+            "miền", "trung", "nghiêng", "chênh", "vênh", "luyến", "tiếc", "xuyến", "dịu", "dàng"
+    };
+
+    @Param("1000000")
+    private int songs;
+
+    private InvertedIndex index;
+    private String[] exactQueries;
+    private String[] misspelledQueries;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void buildCatalog() {
+        Random random = new Random(42);
+        index = new InvertedIndex();
+        List<String> titles = new ArrayList<>(songs);
+        for (int i = 0; i < songs; i++) {
+            int words = 2 + random.nextInt(5);
+            StringBuilder title = new StringBuilder();
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    title.append(' ');
+                }
+                String syllable = SYLLABLES[random.nextInt(SYLLABLES.length)];
+                title.append(w == 0 ? Character.toUpperCase(syllable.charAt(0)) + syllable.substring(1) : syllable);
+            }
+            titles.add(title.toString());
+            index.put(Integer.toString(i), title.toString());
+        }
+
+        // Two words of a random title, the longer one with one typo
+        exactQueries = new String[1024];
+        misspelledQueries = new String[1024];
+        for (int i = 0; i < exactQueries.length; i++) {
+            List<String> tokens = TextNormalizer.tokenize(titles.get(random.nextInt(songs)));
+            String first = tokens.get(0);
+            String second = tokens.get(1);
+            exactQueries[i] = first + " " + second;
+            misspelledQueries[i] = first.length() >= second.length()
+                    ? typo(first, random) + " " + second
+                    : first + " " + typo(second, random);
+        }
+    }
+
+    @Benchmark
+    public InvertedIndex.Hits exactSearch() {
+        return index.search(exactQueries[next()], 0, 20);
+    }
+
+    @Benchmark
+    public InvertedIndex.Hits fuzzySearch() {
+        return index.searchFuzzy(misspelledQueries[next()], 0, 20);
+    }
+
+    // What the catalog search service does: exact first, typo-tolerant only without a hit
+    @Benchmark
+    public InvertedIndex.Hits exactThenFuzzy() {
+        String query = misspelledQueries[next()];
+        InvertedIndex.Hits hits = index.search(query, 0, 20);
+        return hits.total() > 0 ? hits : index.searchFuzzy(query, 0, 20);
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & 1023;
+        return cursor;
+    }
+
+    // Deletion, substitution or adjacent transposition, never on words short enough to be matched exactly
+    private static String typo(String word, Random random) {
+        if (word.length() <= 3) {
+            return word;
+        }
+        int at = 1 + random.nextInt(word.length() - 2);
+        return switch (random.nextInt(3)) {
+            case 0 -> word.substring(0, at) + word.substring(at + 1);
+            case 1 -> word.substring(0, at) + (char) ('a' + random.nextInt(26)) + word.substring(at + 1);
+            default -> word.substring(0, at) + word.charAt(at + 1) + word.charAt(at) + word.substring(at + 2);
+        };
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(FuzzySearchBenchmark.class.getName())
+                .build()).run();
+
+        boolean failed = false;
+        for (RunResult result : results) {
+            String label = result.getParams().getBenchmark();
+            String method = label.substring(label.lastIndexOf('.') + 1);
+            double score = result.getPrimaryResult().getScore();
+            double target = TARGETS_MICROS.getOrDefault(method, Double.MAX_VALUE);
+            boolean ok = score <= target;
+            failed |= !ok;
+            System.out.printf("%-16s %10.1f us/op  target %8.1f us  %s%n", method, score, target, ok ? "OK" : "FAILED");
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
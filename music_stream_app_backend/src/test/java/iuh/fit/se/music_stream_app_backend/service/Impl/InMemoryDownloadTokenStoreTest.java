@@ -0,0 +1,199 @@
+package iuh.fit.se.music_stream_app_backend.service.Impl;
+
+import iuh.fit.se.music_stream_app_backend.models.DownloadToken;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InMemoryDownloadTokenStoreTest {
+
+    // Whole seconds, so ticks line up with the clock
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations bulk = mock(BulkOperations.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong(toMillis(NOW));
+    private final InMemoryDownloadTokenStore store = new InMemoryDownloadTokenStore(mongoTemplate, meterRegistry);
+
+    @BeforeEach
+    void init() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DownloadToken.class)).thenReturn(bulk);
+        ReflectionTestUtils.setField(store, "tickMillis", 1000L);
+        ReflectionTestUtils.setField(store, "wheelSize", 8);
+        ReflectionTestUtils.setField(store, "flushBatchSize", 500);
+        ReflectionTestUtils.setField(store, "clock", (LongSupplier) clock::get);
+    }
+
+    @Test
+    void redeemsATokenOnce() {
+        store.init();
+        DownloadToken token = token("t1", NOW.plusMinutes(5));
+        store.save(token);
+
+        assertThat(store.findValid("t1", NOW)).contains(token);
+        assertThat(store.markUsed(token, NOW)).isTrue();
+        assertThat(store.markUsed(token, NOW)).isFalse();
+        assertThat(store.findValid("t1", NOW)).isEmpty();
+        assertThat(token.isUsed()).isTrue();
+        assertThat(token.getUsedAt()).isEqualTo(NOW);
+    }
+
+    @Test
+    void exactlyOneOfConcurrentRedeemsWins() throws Exception {
+        store.init();
+        DownloadToken token = token("t1", NOW.plusMinutes(5));
+        store.save(token);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> redeems = IntStream.range(0, 32)
+                    .mapToObj(i -> (Callable<Boolean>) () -> store.markUsed(token, NOW))
+                    .toList();
+            long won = 0;
+            for (Future<Boolean> result : executor.invokeAll(redeems)) {
+                if (result.get()) {
+                    won++;
+                }
+            }
+            assertThat(won).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void expiryIsExactOnLookupBeforeTheWheelRuns() {
+        store.init();
+        store.save(token("t1", NOW.plusSeconds(3)));
+
+        assertThat(store.findValid("t1", NOW.plusSeconds(2))).isPresent();
+        assertThat(store.findValid("t1", NOW.plusSeconds(3))).isEmpty();
+    }
+
+    @Test
+    void advanceDropsDueTokensAndKeepsThoseAFullTurnAhead() {
+        store.init();
+        store.save(token("soon", NOW.plusSeconds(3)));
+        // Lands in the same slot as a token due in four seconds
+        store.save(token("later", NOW.plusSeconds(12)));
+
+        clock.set(toMillis(NOW.plusSeconds(5)));
+        store.advance();
+
+        // Gone from memory, so the lookup falls through to Mongo
+        assertThat(store.findValid("soon", NOW)).isEmpty();
+        verify(mongoTemplate).findOne(any(Query.class), eq(DownloadToken.class));
+        assertThat(store.findValid("later", NOW)).isPresent();
+    }
+
+    @Test
+    void issueAndRedeemWithinOneIntervalBecomeOneWrite() {
+        store.init();
+        DownloadToken token = token("t1", NOW.plusMinutes(5));
+        store.save(token);
+        store.markUsed(token, NOW);
+
+        store.flush();
+        store.flush();
+
+        verify(bulk, times(1)).upsert(any(Query.class), any(Update.class));
+        verify(bulk, times(1)).execute();
+        assertThat(meterRegistry.counter("download.tokens.persisted").count()).isEqualTo(1);
+    }
+
+    @Test
+    void failedFlushIsRetriedOnTheNextOne() {
+        when(bulk.execute()).thenThrow(new IllegalStateException("mongo down")).thenReturn(null);
+        store.init();
+        store.save(token("t1", NOW.plusMinutes(5)));
+        store.save(token("t2", NOW.plusMinutes(5)));
+
+        store.flush();
+        assertThat(meterRegistry.counter("download.tokens.persisted").count()).isZero();
+
+        store.flush();
+        assertThat(meterRegistry.counter("download.tokens.persisted").count()).isEqualTo(2);
+        verify(bulk, times(4)).upsert(any(Query.class), any(Update.class));
+
+        store.flush();
+        verify(bulk, times(2)).execute();
+    }
+
+    @Test
+    void recoveryReloadsUsedTokensSoTheyCannotBeRedeemedAgain() {
+        DownloadToken open = token("open", NOW.plusMinutes(5));
+        DownloadToken used = token("used", NOW.plusMinutes(5));
+        used.setUsed(true);
+        when(mongoTemplate.find(any(Query.class), eq(DownloadToken.class))).thenReturn(List.of(open, used));
+
+        store.init();
+
+        assertThat(store.findValid("open", NOW)).contains(open);
+        assertThat(store.findValid("used", NOW)).isEmpty();
+        assertThat(store.markUsed(used, NOW)).isFalse();
+        assertThat(store.markUsed(open, NOW)).isTrue();
+        verify(mongoTemplate, never()).findOne(any(Query.class), eq(DownloadToken.class));
+    }
+
+    @Test
+    void readsThroughTokensIssuedElsewhere() {
+        DownloadToken stored = token("t1", NOW.plusMinutes(5));
+        when(mongoTemplate.findOne(any(Query.class), eq(DownloadToken.class))).thenReturn(stored);
+        store.init();
+
+        assertThat(store.findValid("t1", NOW)).contains(stored);
+        assertThat(store.markUsed(stored, NOW)).isTrue();
+        assertThat(store.findValid("t1", NOW)).isEmpty();
+        verify(mongoTemplate, times(1)).findOne(any(Query.class), eq(DownloadToken.class));
+    }
+
+    @Test
+    void shutdownWritesWhatIsLeft() {
+        store.init();
+        store.save(token("t1", NOW.plusMinutes(5)));
+
+        ReflectionTestUtils.invokeMethod(store, "shutdown");
+
+        verify(bulk).execute();
+    }
+
+    private static DownloadToken token(String token, LocalDateTime expiresAt) {
+        return DownloadToken.builder()
+                .token(token)
+                .userId("user")
+                .songId("song")
+                .createdAt(NOW)
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
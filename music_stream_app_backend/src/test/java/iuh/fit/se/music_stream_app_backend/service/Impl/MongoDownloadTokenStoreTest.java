@@ -0,0 +1,58 @@
+package iuh.fit.se.music_stream_app_backend.service.Impl;
+
+import iuh.fit.se.music_stream_app_backend.models.DownloadToken;
+import iuh.fit.se.music_stream_app_backend.repository.DownloadTokenRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MongoDownloadTokenStoreTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final DownloadTokenRepository repository = mock(DownloadTokenRepository.class);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final MongoDownloadTokenStore store = new MongoDownloadTokenStore(repository, mongoTemplate);
+
+    @Test
+    void redeemsOnlyWhileTheTokenIsStillUnused() {
+        DownloadToken token = DownloadToken.builder().token("t1").expiresAt(NOW.plusMinutes(5)).build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(DownloadToken.class))).thenReturn(token).thenReturn(null);
+
+        assertThat(store.markUsed(token, NOW)).isTrue();
+        assertThat(token.isUsed()).isTrue();
+        assertThat(token.getUsedAt()).isEqualTo(NOW);
+        assertThat(store.markUsed(token, NOW)).isFalse();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).findAndModify(query.capture(), any(Update.class),
+                any(FindAndModifyOptions.class), eq(DownloadToken.class));
+        assertThat(query.getValue().getQueryObject())
+                .isEqualTo(new Document("token", "t1").append("used", false));
+    }
+
+    @Test
+    void lookupsLeaveExpiryAndTheUsedFlagToTheQuery() {
+        DownloadToken token = DownloadToken.builder().token("t1").expiresAt(NOW.plusMinutes(5)).build();
+        when(repository.findByTokenAndUsedFalseAndExpiresAtAfter("t1", NOW)).thenReturn(Optional.of(token));
+
+        assertThat(store.findValid("t1", NOW)).contains(token);
+        assertThat(store.findValid("t2", NOW)).isEmpty();
+    }
+}
@@ -0,0 +1,208 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AudioResponseWriterTest {
+
+    private static final MediaType AUDIO_MPEG = MediaType.parseMediaType("audio/mpeg");
+    private static final String ETAG = "\"abc\"";
+
+    private final AudioResponseWriter writer = new AudioResponseWriter(new SimpleMeterRegistry());
+    private final Resource audio = new ByteArrayResource("0123456789".getBytes(StandardCharsets.US_ASCII));
+
+    @Test
+    void servesWholeBodyWithoutRange() throws IOException {
+        MockHttpServletResponse response = write(request());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getContentLengthLong()).isEqualTo(10);
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    void servesSingleRange() throws IOException {
+        MockHttpServletResponse response = write(request("bytes=2-5"));
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+        assertThat(response.getContentLengthLong()).isEqualTo(4);
+        assertThat(response.getContentAsString()).isEqualTo("2345");
+    }
+
+    @Test
+    void servesOpenEndedAndSuffixRanges() throws IOException {
+        MockHttpServletResponse openEnded = write(request("bytes=7-"));
+        MockHttpServletResponse suffix = write(request("bytes=-3"));
+
+        assertThat(openEnded.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 7-9/10");
+        assertThat(openEnded.getContentAsString()).isEqualTo("789");
+        assertThat(suffix.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 7-9/10");
+        assertThat(suffix.getContentAsString()).isEqualTo("789");
+    }
+
+    @Test
+    void clampsRangeEndToContentLength() throws IOException {
+        MockHttpServletResponse response = write(request("bytes=8-100"));
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 8-9/10");
+        assertThat(response.getContentAsString()).isEqualTo("89");
+    }
+
+    @Test
+    void rejectsRangeStartingPastTheEnd() throws IOException {
+        MockHttpServletResponse response = write(request("bytes=10-"));
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+    }
+
+    @Test
+    void rejectsMalformedRange() throws IOException {
+        assertThat(write(request("bytes=abc")).getStatus()).isEqualTo(416);
+        assertThat(write(request("items=0-1")).getStatus()).isEqualTo(416);
+    }
+
+    @Test
+    void rejectsOverlappingRangesLargerThanTheContent() throws IOException {
+        MockHttpServletResponse response = write(request("bytes=0-9,0-9"));
+
+        assertThat(response.getStatus()).isEqualTo(416);
+    }
+
+    @Test
+    void servesMultipleRangesAsMultipart() throws IOException {
+        MockHttpServletResponse response = write(request("bytes=0-1,5-6"));
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentType()).startsWith("multipart/byteranges; boundary=");
+        String body = response.getContentAsString();
+        assertThat(body).contains("Content-Range: bytes 0-1/10\r\n\r\n01");
+        assertThat(body).contains("Content-Range: bytes 5-6/10\r\n\r\n56");
+    }
+
+    @Test
+    void servesRangeWhenIfRangeEtagMatches() throws IOException {
+        MockHttpServletRequest request = request("bytes=2-3");
+        request.addHeader(HttpHeaders.IF_RANGE, ETAG);
+
+        MockHttpServletResponse response = write(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("23");
+    }
+
+    @Test
+    void servesWholeBodyWhenIfRangeEtagDiffers() throws IOException {
+        MockHttpServletRequest request = request("bytes=2-3");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"other\"");
+
+        MockHttpServletResponse response = write(request);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    void ignoresRangeWithWeakIfRangeValidator() throws IOException {
+        MockHttpServletRequest request = request("bytes=2-3");
+        request.addHeader(HttpHeaders.IF_RANGE, "W/" + ETAG);
+
+        assertThat(write(request).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void comparesIfRangeDateWithLastModified(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("song.mp3");
+        Files.writeString(file, "0123456789");
+        Instant modified = Instant.parse("2024-01-01T00:00:00Z");
+        Files.setLastModifiedTime(file, FileTime.from(modified));
+        Resource resource = new FileSystemResource(file);
+
+        MockHttpServletRequest current = request("bytes=0-1");
+        current.addHeader(HttpHeaders.IF_RANGE, "Mon, 01 Jan 2024 00:00:00 GMT");
+        MockHttpServletResponse currentResponse = new MockHttpServletResponse();
+        writer.write(resource, AUDIO_MPEG, current, currentResponse);
+
+        MockHttpServletRequest stale = request("bytes=0-1");
+        stale.addHeader(HttpHeaders.IF_RANGE, "Sun, 31 Dec 2023 00:00:00 GMT");
+        MockHttpServletResponse staleResponse = new MockHttpServletResponse();
+        writer.write(resource, AUDIO_MPEG, stale, staleResponse);
+
+        assertThat(currentResponse.getStatus()).isEqualTo(206);
+        assertThat(currentResponse.getContentAsString()).isEqualTo("01");
+        assertThat(staleResponse.getStatus()).isEqualTo(200);
+        assertThat(staleResponse.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    void answersNotModifiedForMatchingIfNoneMatch() throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"x\", W/" + ETAG);
+
+        MockHttpServletResponse response = write(request);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void rangeOverrideReplacesRequestRangeAndIfRange() throws IOException {
+        MockHttpServletRequest request = request("bytes=0-0");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"other\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(audio, AUDIO_MPEG, "bytes=6-", ETAG, request, response);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("6789");
+    }
+
+    @Test
+    void headRequestSendsHeadersOnly() throws IOException {
+        MockHttpServletRequest request = request("bytes=2-5");
+        request.setMethod("HEAD");
+
+        MockHttpServletResponse response = write(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentLengthLong()).isEqualTo(4);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    private MockHttpServletResponse write(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        writer.write(audio, AUDIO_MPEG, null, ETAG, request, response);
+        return response;
+    }
+
+    private MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/stream");
+    }
+
+    private MockHttpServletRequest request(String range) {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, range);
+        return request;
+    }
+}
@@ -0,0 +1,96 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DownloadUrlSignerTest {
+
+    private final DownloadUrlSigner signer = new DownloadUrlSigner("test-secret");
+
+    @Test
+    void verifiesWhatItSigned() {
+        String token = signer.sign("song-1", "user@example.com", 1_700_000_000L);
+
+        assertThat(signer.isSigned(token)).isTrue();
+        assertThat(signer.verify(token)).hasValueSatisfying(claims -> {
+            assertThat(claims.songId()).isEqualTo("song-1");
+            assertThat(claims.userId()).isEqualTo("user@example.com");
+            assertThat(claims.expiresAtEpochSeconds()).isEqualTo(1_700_000_000L);
+            assertThat(claims.nonce()).isNotEmpty();
+        });
+    }
+
+    @Test
+    void signsEachTokenWithAFreshNonce() {
+        assertThat(signer.sign("song-1", "user", 1L)).isNotEqualTo(signer.sign("song-1", "user", 1L));
+    }
+
+    @Test
+    void rejectsTamperedPayload() {
+        String token = signer.sign("song-1", "user", 1_700_000_000L);
+        String tampered = token.replace(".1700000000.", ".1800000000.");
+
+        assertThat(signer.verify(tampered)).isEmpty();
+    }
+
+    @Test
+    void rejectsTokenSignedWithAnotherSecret() {
+        String token = new DownloadUrlSigner("other-secret").sign("song-1", "user", 1_700_000_000L);
+
+        assertThat(signer.verify(token)).isEmpty();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "s1.", "s1.x", "s1..", "s1.a.b", "s1.a.b.c.d", "s1.a.b.c.d.e.f",
+            "s1.c29uZw.dXNlcg.notanumber.bm9uY2U.c2ln", "s1.!!.??.1.n.%%", "uuid-style-token"
+    })
+    void rejectsMalformedTokensWithoutThrowing(String token) {
+        assertThat(signer.verify(token)).isEmpty();
+    }
+
+    @Test
+    void rejectsNull() {
+        assertThat(signer.isSigned(null)).isFalse();
+        assertThat(signer.verify(null)).isEmpty();
+    }
+
+    @Test
+    void grantsAndTokensAreNotInterchangeable() {
+        String grant = signer.signGrant("song-1", "user", 1_700_000_000L);
+        String token = signer.sign("song-1", "user", 1_700_000_000L);
+
+        assertThat(signer.verifyGrant(grant)).hasValueSatisfying(claims -> {
+            assertThat(claims.songId()).isEqualTo("song-1");
+            assertThat(claims.userId()).isEqualTo("user");
+            assertThat(claims.expiresAtEpochSeconds()).isEqualTo(1_700_000_000L);
+        });
+        assertThat(signer.isSigned(grant)).isFalse();
+        assertThat(signer.verify(grant)).isEmpty();
+        assertThat(signer.verifyGrant(token)).isEmpty();
+        assertThat(signer.verifyGrant("g1." + token.substring(3))).isEmpty();
+        assertThat(signer.verifyGrant(null)).isEmpty();
+    }
+
+    @Test
+    void stableKeyIsDeterministicPerSecretAndUrlSafe() {
+        String key = signer.stableKey("content:abc");
+
+        assertThat(key).isEqualTo(signer.stableKey("content:abc")).matches("[A-Za-z0-9_-]{22}");
+        assertThat(signer.stableKey("content:abd")).isNotEqualTo(key);
+        assertThat(new DownloadUrlSigner("other-secret").stableKey("content:abc")).isNotEqualTo(key);
+    }
+
+    @Test
+    void matchesOnlyTheStableKeyOfTheSameValue() {
+        String key = signer.stableKey("hls:song-1");
+
+        assertThat(signer.matchesStableKey("hls:song-1", key)).isTrue();
+        assertThat(signer.matchesStableKey("hls:song-2", key)).isFalse();
+        assertThat(signer.matchesStableKey("hls:song-1", key.substring(1))).isFalse();
+        assertThat(signer.matchesStableKey("hls:song-1", null)).isFalse();
+    }
+}
@@ -0,0 +1,112 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EditDistanceTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "son tung, son tung, 0",
+            "son, soon, 1",
+            "hello, helo, 1",
+            "kitten, sitten, 1",
+            "abcd, abdc, 1",
+            "ca, ac, 1",
+            "kitten, sittin, 2",
+            "'', ab, 2"
+    })
+    void measuresWithinTheBound(String a, String b, int expected) {
+        assertThat(EditDistance.bounded(a, b, 2)).isEqualTo(expected);
+    }
+
+    @Test
+    void returnsMaxPlusOneBeyondTheBound() {
+        assertThat(EditDistance.bounded("kitten", "sitting", 1)).isEqualTo(2);
+        assertThat(EditDistance.bounded("abc", "xyz", 2)).isEqualTo(3);
+        assertThat(EditDistance.bounded("a", "abcdef", 2)).isEqualTo(3);
+    }
+
+    @Test
+    void zeroBoundIsEquality() {
+        assertThat(EditDistance.bounded("abc", "abc", 0)).isZero();
+        assertThat(EditDistance.bounded("abc", "abd", 0)).isEqualTo(1);
+    }
+
+    @Test
+    void agreesWithUnboundedDistanceOnRandomStrings() {
+        Random random = new Random(42);
+        for (int i = 0; i < 5_000; i++) {
+            String a = randomWord(random);
+            String b = random.nextBoolean() ? mutate(a, random) : randomWord(random);
+            int max = random.nextInt(4);
+
+            int expected = Math.min(osa(a, b), max + 1);
+
+            assertThat(EditDistance.bounded(a, b, max)).as("%s / %s / %d", a, b, max).isEqualTo(expected);
+        }
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = random.nextInt(9);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(4)));
+        }
+        return word.toString();
+    }
+
+    private static String mutate(String word, Random random) {
+        StringBuilder mutated = new StringBuilder(word);
+        for (int edits = random.nextInt(3); edits > 0; edits--) {
+            int at = mutated.isEmpty() ? 0 : random.nextInt(mutated.length());
+            switch (random.nextInt(4)) {
+                case 0 -> mutated.insert(at, (char) ('a' + random.nextInt(4)));
+                case 1 -> {
+                    if (!mutated.isEmpty()) {
+                        mutated.deleteCharAt(at);
+                    }
+                }
+                case 2 -> {
+                    if (!mutated.isEmpty()) {
+                        mutated.setCharAt(at, (char) ('a' + random.nextInt(4)));
+                    }
+                }
+                default -> {
+                    if (at + 1 < mutated.length()) {
+                        char swap = mutated.charAt(at);
+                        mutated.setCharAt(at, mutated.charAt(at + 1));
+                        mutated.setCharAt(at + 1, swap);
+                    }
+                }
+            }
+        }
+        return mutated.toString();
+    }
+
+    // Full-matrix optimal string alignment distance
+    private static int osa(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,139 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvertedIndexTest {
+
+    private final InvertedIndex index = new InvertedIndex();
+
+    @Test
+    void matchesEveryTokenIgnoringAccentsAndCase() {
+        index.put("1", "Sơn Tùng M-TP");
+        index.put("2", "Tùng Dương");
+        index.put("3", "Hà Anh Tuấn");
+
+        assertThat(index.search("son tung", 0, 10).ids()).containsExactly("1");
+        assertThat(index.search("TUNG", 0, 10).ids()).containsExactlyInAnyOrder("1", "2");
+        assertThat(index.search("tung tuan", 0, 10).ids()).isEmpty();
+    }
+
+    @Test
+    void onlyTheLastTokenMatchesAsPrefix() {
+        index.put("1", "Chạy Ngay Đi");
+
+        assertThat(index.search("chay ng", 0, 10).ids()).containsExactly("1");
+        assertThat(index.search("ch ngay", 0, 10).ids()).isEmpty();
+    }
+
+    @Test
+    void ranksExactThenStartsWithThenInsertionOrder() {
+        index.put("1", "Em Chạy");
+        index.put("2", "Chạy Ngay Đi");
+        index.put("3", "Chạy");
+        index.put("4", "Ta Chạy");
+
+        assertThat(index.search("chay", 0, 10).ids()).containsExactly("3", "2", "1", "4");
+    }
+
+    @Test
+    void pagesAndCountsEveryMatch() {
+        for (int i = 0; i < 25; i++) {
+            index.put("id" + i, "song " + i);
+        }
+
+        InvertedIndex.Hits page = index.search("song", 10, 10);
+
+        assertThat(page.total()).isEqualTo(25);
+        assertThat(page.ids()).hasSize(10).first().isEqualTo("id10");
+        assertThat(index.search("song", 20, 10).ids()).hasSize(5);
+        assertThat(index.search("song", 30, 10).ids()).isEmpty();
+    }
+
+    @Test
+    void putReplacesTheText() {
+        index.put("1", "Old Title");
+        index.put("1", "New Title");
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.search("old", 0, 10).total()).isZero();
+        assertThat(index.search("new", 0, 10).ids()).containsExactly("1");
+    }
+
+    @Test
+    void replacedDocumentsKeepTheirPlace() {
+        index.put("1", "Love Song");
+        index.put("2", "Love Story");
+        index.put("1", "Love Letter");
+
+        assertThat(index.search("love", 0, 10).ids()).containsExactly("1", "2");
+        assertThat(index.search("love le", 0, 10).ids()).containsExactly("1");
+        assertThat(index.searchFuzzy("lettre", 0, 10).ids()).containsExactly("1");
+    }
+
+    @Test
+    void prefixMergesEveryMatchingTermOnce() {
+        for (int i = 0; i < 300; i++) {
+            index.put("id" + i, "t" + i + " t" + (i * 7));
+        }
+
+        InvertedIndex.Hits hits = index.search("t", 0, 1000);
+
+        assertThat(hits.total()).isEqualTo(300);
+        assertThat(hits.ids()).doesNotHaveDuplicates().hasSize(300);
+    }
+
+    @Test
+    void fuzzyKeepsTheSmallestDistanceOfADocument() {
+        index.put("1", "Hallo Hello");
+        index.put("2", "Hallo");
+
+        assertThat(index.searchFuzzy("hello", 0, 10).ids()).containsExactly("1", "2");
+        assertThat(index.searchFuzzy("hello", 0, 10).total()).isEqualTo(2);
+    }
+
+    @Test
+    void removeDropsTheDocumentAndItsTokens() {
+        index.put("1", "Lạc Trôi");
+        index.put("2", "Lạc Lối");
+
+        index.remove("1");
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.search("lac", 0, 10).ids()).containsExactly("2");
+        assertThat(index.search("tro", 0, 10).total()).isZero();
+        assertThat(index.searchFuzzy("troi", 0, 10).total()).isZero();
+        index.remove("missing");
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void fuzzySearchToleratesTyposAndRanksFewerEditsFirst() {
+        index.put("1", "Hallo");
+        index.put("2", "Hello");
+        index.put("3", "Goodbye");
+
+        assertThat(index.searchFuzzy("hello", 0, 10).ids()).containsExactly("2", "1");
+        assertThat(index.searchFuzzy("hlelo", 0, 10).ids()).contains("2");
+        assertThat(index.searchFuzzy("godbye", 0, 10).ids()).containsExactly("3");
+    }
+
+    @Test
+    void fuzzySearchAllowsNoEditsOnShortTokensAndTwoOnLongOnes() {
+        index.put("1", "Son");
+        index.put("2", "Everything");
+
+        assertThat(index.searchFuzzy("sun", 0, 10).total()).isZero();
+        assertThat(index.searchFuzzy("evreythin", 0, 10).ids()).containsExactly("2");
+        assertThat(index.searchFuzzy("evrethn", 0, 10).total()).isZero();
+    }
+
+    @Test
+    void blankQueriesMatchNothing() {
+        index.put("1", "Song");
+
+        assertThat(index.search("  ", 0, 10).total()).isZero();
+        assertThat(index.searchFuzzy("!!", 0, 10).total()).isZero();
+    }
+}
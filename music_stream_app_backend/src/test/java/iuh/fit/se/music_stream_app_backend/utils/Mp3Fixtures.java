@@ -0,0 +1,75 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Synthetic MP3 streams: MPEG-1 Layer III, 128 kbps, 44.1 kHz, stereo frames with silent payloads.
+ */
+final class Mp3Fixtures {
+
+    static final int FRAME_LENGTH = 417;
+    static final double FRAME_SECONDS = 1152.0 / 44100;
+
+    private static final byte[] HEADER = {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x00};
+
+    private Mp3Fixtures() {
+    }
+
+    static byte[] frames(int count) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < count; i++) {
+            out.writeBytes(frame());
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] frame() {
+        byte[] frame = new byte[FRAME_LENGTH];
+        System.arraycopy(HEADER, 0, frame, 0, HEADER.length);
+        return frame;
+    }
+
+    /**
+     * ID3v2.4 tag with a {@code bodySize}-byte body of zeros.
+     */
+    static byte[] id3Tag(int bodySize, boolean footer) {
+        byte[] tag = new byte[10 + bodySize + (footer ? 10 : 0)];
+        tag[0] = 'I';
+        tag[1] = 'D';
+        tag[2] = '3';
+        tag[3] = 4;
+        tag[5] = (byte) (footer ? 0x10 : 0);
+        tag[6] = (byte) ((bodySize >> 21) & 0x7F);
+        tag[7] = (byte) ((bodySize >> 14) & 0x7F);
+        tag[8] = (byte) ((bodySize >> 7) & 0x7F);
+        tag[9] = (byte) (bodySize & 0x7F);
+        return tag;
+    }
+
+    /**
+     * First frame carrying a Xing header with frame count, byte count and a linear TOC.
+     */
+    static byte[] xingFrame(int frames, long bytes) {
+        ByteBuffer frame = ByteBuffer.wrap(frame());
+        // Header, then 32 bytes of MPEG-1 stereo side info
+        frame.position(4 + 32);
+        frame.put("Xing".getBytes(StandardCharsets.US_ASCII));
+        frame.putInt(0x1 | 0x2 | 0x4);
+        frame.putInt(frames);
+        frame.putInt((int) bytes);
+        for (int i = 0; i < 100; i++) {
+            frame.put((byte) (i * 256 / 100));
+        }
+        return frame.array();
+    }
+
+    static ByteBuffer concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+}
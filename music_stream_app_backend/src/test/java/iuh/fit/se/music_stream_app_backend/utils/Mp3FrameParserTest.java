@@ -0,0 +1,122 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static iuh.fit.se.music_stream_app_backend.utils.Mp3Fixtures.FRAME_LENGTH;
+import static iuh.fit.se.music_stream_app_backend.utils.Mp3Fixtures.FRAME_SECONDS;
+import static iuh.fit.se.music_stream_app_backend.utils.Mp3Fixtures.concat;
+import static iuh.fit.se.music_stream_app_backend.utils.Mp3Fixtures.frames;
+import static iuh.fit.se.music_stream_app_backend.utils.Mp3Fixtures.id3Tag;
+import static iuh.fit.se.music_stream_app_backend.utils.Mp3Fixtures.xingFrame;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class Mp3FrameParserTest {
+
+    @Test
+    void parsesMpeg1Layer3Header() {
+        Mp3FrameParser.FrameHeader header = Mp3FrameParser.parseHeader(ByteBuffer.wrap(frames(1)), 0);
+
+        assertThat(header).isNotNull();
+        assertThat(header.version()).isEqualTo(Mp3FrameParser.Version.MPEG1);
+        assertThat(header.layer()).isEqualTo(3);
+        assertThat(header.bitrateKbps()).isEqualTo(128);
+        assertThat(header.sampleRate()).isEqualTo(44100);
+        assertThat(header.samplesPerFrame()).isEqualTo(1152);
+        assertThat(header.frameLength()).isEqualTo(FRAME_LENGTH);
+        assertThat(header.durationSeconds()).isCloseTo(FRAME_SECONDS, within(1e-9));
+    }
+
+    @Test
+    void paddingAddsOneByte() {
+        ByteBuffer data = ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFB, (byte) 0x92, 0x00});
+
+        assertThat(Mp3FrameParser.parseHeader(data, 0).frameLength()).isEqualTo(FRAME_LENGTH + 1);
+    }
+
+    @Test
+    void rejectsInvalidHeaders() {
+        // No sync, free-format bitrate, bad bitrate index, reserved sample rate, truncated
+        assertThat(Mp3FrameParser.parseHeader(ByteBuffer.wrap(new byte[]{0x49, 0x44, 0x33, 0x04}), 0)).isNull();
+        assertThat(Mp3FrameParser.parseHeader(ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFB, 0x00, 0x00}), 0)).isNull();
+        assertThat(Mp3FrameParser.parseHeader(ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFB, (byte) 0xF0, 0x00}), 0)).isNull();
+        assertThat(Mp3FrameParser.parseHeader(ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFB, (byte) 0x9C, 0x00}), 0)).isNull();
+        assertThat(Mp3FrameParser.parseHeader(ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFB, (byte) 0x90}), 0)).isNull();
+    }
+
+    @Test
+    void measuresId3v2Tags() {
+        assertThat(Mp3FrameParser.id3v2TagSize(ByteBuffer.wrap(id3Tag(300, false)), 0)).isEqualTo(310);
+        assertThat(Mp3FrameParser.id3v2TagSize(ByteBuffer.wrap(id3Tag(300, true)), 0)).isEqualTo(320);
+        assertThat(Mp3FrameParser.id3v2TagSize(ByteBuffer.wrap(frames(1)), 0)).isZero();
+    }
+
+    @Test
+    void findsFirstFrameAfterId3Tag() {
+        ByteBuffer data = concat(id3Tag(300, false), frames(3));
+
+        assertThat(Mp3FrameParser.findFirstFrame(data, 0)).isEqualTo(310);
+    }
+
+    @Test
+    void skipsFalseSyncWithoutAConsistentNextFrame() {
+        // A header-like pattern whose "next frame" lands inside real frame payload
+        byte[] junk = {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x00, 0x00};
+        ByteBuffer data = concat(junk, frames(3));
+
+        assertThat(Mp3FrameParser.findFirstFrame(data, 0)).isEqualTo(junk.length);
+    }
+
+    @Test
+    void scansEveryFrame() {
+        ByteBuffer data = concat(id3Tag(300, false), frames(10));
+
+        Mp3FrameParser.FrameScan scan = Mp3FrameParser.scan(data);
+
+        assertThat(scan.frameCount()).isEqualTo(10);
+        assertThat(scan.audioStart()).isEqualTo(310);
+        assertThat(scan.audioEnd()).isEqualTo(310 + 10L * FRAME_LENGTH);
+        assertThat(scan.offsets()[3]).isEqualTo(310 + 3L * FRAME_LENGTH);
+        assertThat(scan.durationSeconds()).isCloseTo(10 * FRAME_SECONDS, within(1e-9));
+    }
+
+    @Test
+    void scanLeavesOutTheXingFrame() {
+        ByteBuffer data = concat(xingFrame(10, 11L * FRAME_LENGTH), frames(10));
+
+        Mp3FrameParser.FrameScan scan = Mp3FrameParser.scan(data);
+
+        assertThat(scan.frameCount()).isEqualTo(10);
+        assertThat(scan.audioStart()).isEqualTo(FRAME_LENGTH);
+    }
+
+    @Test
+    void scanResyncsOverJunkAndDropsTruncatedLastFrame() {
+        byte[] junk = new byte[7];
+        byte[] truncated = new byte[100];
+        System.arraycopy(frames(1), 0, truncated, 0, 4);
+        ByteBuffer data = concat(frames(3), junk, frames(3), truncated);
+
+        Mp3FrameParser.FrameScan scan = Mp3FrameParser.scan(data);
+
+        assertThat(scan.frameCount()).isEqualTo(6);
+        assertThat(scan.offsets()[3]).isEqualTo(3L * FRAME_LENGTH + junk.length);
+    }
+
+    @Test
+    void parsesXingHeader() {
+        ByteBuffer data = ByteBuffer.wrap(xingFrame(1000, 500_000));
+        Mp3FrameParser.FrameHeader header = Mp3FrameParser.parseHeader(data, 0);
+
+        Mp3FrameParser.XingHeader xing = Mp3FrameParser.parseXing(data, 0, header);
+
+        assertThat(xing).isNotNull();
+        assertThat(xing.vbr()).isTrue();
+        assertThat(xing.frames()).isEqualTo(1000);
+        assertThat(xing.bytes()).isEqualTo(500_000);
+        assertThat(xing.toc()).hasSize(100);
+        assertThat(Mp3FrameParser.parseXing(ByteBuffer.wrap(frames(1)), 0, header)).isNull();
+    }
+}
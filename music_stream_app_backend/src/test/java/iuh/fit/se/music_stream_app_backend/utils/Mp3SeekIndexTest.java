@@ -0,0 +1,110 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static iuh.fit.se.music_stream_app_backend.utils.Mp3Fixtures.FRAME_LENGTH;
+import static iuh.fit.se.music_stream_app_backend.utils.Mp3Fixtures.FRAME_SECONDS;
+import static iuh.fit.se.music_stream_app_backend.utils.Mp3Fixtures.concat;
+import static iuh.fit.se.music_stream_app_backend.utils.Mp3Fixtures.frames;
+import static iuh.fit.se.music_stream_app_backend.utils.Mp3Fixtures.id3Tag;
+import static iuh.fit.se.music_stream_app_backend.utils.Mp3Fixtures.xingFrame;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class Mp3SeekIndexTest {
+
+    private static final int TAG_SIZE = 310;
+    private static final int FRAMES = 100;
+
+    @Test
+    void exactIndexLandsOnFrameBoundaries() {
+        Mp3SeekIndex index = exact();
+
+        assertThat(index.isExact()).isTrue();
+        assertThat(index.audioStart()).isEqualTo(TAG_SIZE);
+        assertThat(index.byteOffsetAt(0)).isEqualTo(TAG_SIZE);
+        assertThat(index.byteOffsetAt(40 * FRAME_SECONDS + FRAME_SECONDS / 2))
+                .isEqualTo(TAG_SIZE + 40L * FRAME_LENGTH);
+        assertThat(index.durationSeconds()).isCloseTo(FRAMES * FRAME_SECONDS, within(1e-9));
+        assertThat(index.bitrateKbps()).isEqualTo(128);
+    }
+
+    @Test
+    void seeksAtOrPastTheEndResolveToTheLastFrame() {
+        Mp3SeekIndex index = exact();
+        long lastFrame = TAG_SIZE + (FRAMES - 1L) * FRAME_LENGTH;
+
+        assertThat(index.byteOffsetAt(index.durationSeconds())).isEqualTo(lastFrame);
+        assertThat(index.byteOffsetAt(index.durationSeconds() + 60)).isEqualTo(lastFrame);
+        assertThat(index.byteOffsetAt(Double.POSITIVE_INFINITY)).isEqualTo(lastFrame);
+        assertThat(index.byteOffsetAt(index.durationSeconds())).isLessThan(index.audioEnd());
+    }
+
+    @Test
+    void cbrEstimateSkipsTheId3Tag() {
+        ByteBuffer data = concat(id3Tag(300, false), frames(FRAMES));
+        Mp3FrameParser.FrameHeader header = Mp3FrameParser.parseHeader(data, TAG_SIZE);
+
+        Mp3SeekIndex index = Mp3SeekIndex.fromHeader(header, null, TAG_SIZE, data.limit());
+
+        assertThat(index.isExact()).isFalse();
+        assertThat(index.audioStart()).isEqualTo(TAG_SIZE);
+        assertThat(index.durationSeconds()).isCloseTo(FRAMES * FRAME_SECONDS, within(2 * FRAME_SECONDS));
+        assertThat(index.byteOffsetAt(50 * FRAME_SECONDS)).isCloseTo(TAG_SIZE + 50L * FRAME_LENGTH,
+                within((long) FRAME_LENGTH));
+        assertThat(index.byteOffsetAt(index.durationSeconds())).isLessThan(index.audioEnd());
+    }
+
+    @Test
+    void xingEstimateUsesFrameCountAndToc() {
+        long audioBytes = (long) FRAMES * FRAME_LENGTH;
+        ByteBuffer data = concat(xingFrame(FRAMES, FRAME_LENGTH + audioBytes), frames(FRAMES));
+        Mp3FrameParser.FrameHeader header = Mp3FrameParser.parseHeader(data, 0);
+        Mp3FrameParser.XingHeader xing = Mp3FrameParser.parseXing(data, 0, header);
+
+        Mp3SeekIndex index = Mp3SeekIndex.fromHeader(header, xing, 0, data.limit());
+
+        assertThat(index.audioStart()).isEqualTo(FRAME_LENGTH);
+        assertThat(index.audioEnd()).isEqualTo(FRAME_LENGTH + audioBytes);
+        assertThat(index.durationSeconds()).isCloseTo(FRAMES * FRAME_SECONDS, within(1e-9));
+        assertThat(index.byteOffsetAt(index.durationSeconds() / 2))
+                .isCloseTo(FRAME_LENGTH + audioBytes / 2, within(audioBytes / 100));
+    }
+
+    @Test
+    void exactIndexSurvivesARoundTrip() throws IOException {
+        Mp3SeekIndex index = exact();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+
+        Mp3SeekIndex read = Mp3SeekIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(read.isExact()).isTrue();
+        assertThat(read.durationSeconds()).isEqualTo(index.durationSeconds());
+        assertThat(read.byteOffsetAt(1.0)).isEqualTo(index.byteOffsetAt(1.0));
+        assertThat(read.audioEnd()).isEqualTo(index.audioEnd());
+    }
+
+    @Test
+    void estimatesAreNotPersisted() {
+        ByteBuffer data = ByteBuffer.wrap(frames(FRAMES));
+        Mp3SeekIndex estimate = Mp3SeekIndex.fromHeader(Mp3FrameParser.parseHeader(data, 0), null, 0, data.limit());
+
+        assertThatThrownBy(() -> estimate.writeTo(new DataOutputStream(new ByteArrayOutputStream())))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    // One seek point per frame
+    private Mp3SeekIndex exact() {
+        Mp3FrameParser.FrameScan scan = Mp3FrameParser.scan(concat(id3Tag(300, false), frames(FRAMES)));
+        return Mp3SeekIndex.fromScan(scan, FRAME_SECONDS);
+    }
+}
@@ -0,0 +1,59 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RebuildableIndexTest {
+
+    private final RebuildableIndex<List<String>> index = new RebuildableIndex<>(new ArrayList<>());
+
+    @Test
+    void writesApplyToTheLiveIndex() {
+        index.write(list -> list.add("a"));
+
+        assertThat(index.get()).containsExactly("a");
+    }
+
+    @Test
+    void rebuildSwapsInTheScannedIndex() {
+        index.write(list -> list.add("stale"));
+
+        List<String> rebuilt = index.rebuild(new ArrayList<>(), list -> list.add("scanned"));
+
+        assertThat(index.get()).isSameAs(rebuilt).containsExactly("scanned");
+    }
+
+    @Test
+    void writesDuringTheScanAreReplayedOntoTheNewIndex() {
+        List<String> old = index.get();
+
+        index.rebuild(new ArrayList<>(), list -> {
+            list.add("scanned");
+            // A catalog write arriving while the scan runs
+            index.write(live -> live.add("written"));
+        });
+
+        assertThat(old).containsExactly("written");
+        assertThat(index.get()).containsExactly("scanned", "written");
+    }
+
+    @Test
+    void failedScanKeepsTheLiveIndexAndStopsRecording() {
+        index.write(list -> list.add("a"));
+        List<String> live = index.get();
+
+        assertThatThrownBy(() -> index.rebuild(new ArrayList<>(), list -> {
+            throw new IllegalStateException("scan failed");
+        })).isInstanceOf(IllegalStateException.class);
+        index.write(list -> list.add("b"));
+        index.rebuild(new ArrayList<>(), list -> list.add("c"));
+
+        assertThat(live).containsExactly("a", "b");
+        assertThat(index.get()).containsExactly("c");
+    }
+}
@@ -0,0 +1,56 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import iuh.fit.se.music_stream_app_backend.models.enums.SearchMode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchQueriesTest {
+
+    private final SearchQueries queries = new SearchQueries(null, null);
+
+    @Test
+    void escapesEveryMetacharacter() {
+        assertThat(SearchQueries.escape("\\^$.|?*+()[]{}"))
+                .isEqualTo("\\\\\\^\\$\\.\\|\\?\\*\\+\\(\\)\\[\\]\\{\\}");
+        assertThat(SearchQueries.escape("son tung - m/tp")).isEqualTo("son tung - m/tp");
+        assertThat(SearchQueries.escape("")).isEmpty();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"a.b", "(.*)", "a+b?", "^start$", "[abc]", "x{2,}", "back\\slash", "a|b", ".*.*.*.*!"})
+    void escapedInputMatchesOnlyItself(String input) {
+        Pattern pattern = Pattern.compile(SearchQueries.escape(input));
+
+        assertThat(pattern.matcher(input).matches()).isTrue();
+        assertThat(pattern.matcher(input + "x").matches()).isFalse();
+        assertThat(pattern.matcher("x").matches()).isFalse();
+    }
+
+    @Test
+    void prefixModeAnchorsTheFoldedQuery() {
+        assertThat(queries.name(SearchMode.PREFIX, "searchName", "name", "Sơn Tùng.").getCriteriaObject()
+                .get("searchName")).hasToString("^son tung");
+        assertThat(queries.name(SearchMode.PREFIX, "searchName", "name", " ?! ")).isNull();
+    }
+
+    @Test
+    void containsModeEscapesTheTrimmedQuery() {
+        assertThat(queries.name(SearchMode.CONTAINS, "searchName", "name", " a.b ").getCriteriaObject()
+                .get("name")).hasToString("a\\.b");
+        assertThat(queries.name(SearchMode.CONTAINS, "searchName", "name", "   ")).isNull();
+    }
+
+    @Test
+    void tokensMatchesLastWordAsPrefix() {
+        assertThat(queries.tokens("tokens", "Lạc").getCriteriaObject().get("tokens")).hasToString("^lac");
+        assertThat(queries.tokens("tokens", "Lạc Trô").getCriteriaObject().toJson())
+                .contains("\"$all\": [\"lac\"]")
+                .contains("\"pattern\": \"^tro\"");
+        assertThat(queries.tokens("tokens", " - ")).isNull();
+    }
+}
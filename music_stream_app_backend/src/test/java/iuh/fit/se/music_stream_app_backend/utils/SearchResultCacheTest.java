@@ -0,0 +1,156 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import iuh.fit.se.music_stream_app_backend.models.enums.SearchMode;
+import iuh.fit.se.music_stream_app_backend.utils.SearchResultCache.Section;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchResultCacheTest {
+
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 10);
+
+    private final SearchResultCache cache = new SearchResultCache(new SimpleMeterRegistry());
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void init() {
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxBytes", 1_000_000L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 600L);
+        ReflectionTestUtils.setField(cache, "bytesPerResult", 100L);
+        cache.init();
+    }
+
+    @Test
+    void servesRepeatedQueriesFromTheCache() {
+        assertThat(songs("love", SearchMode.PREFIX)).isEqualTo("love#1");
+        assertThat(songs("love", SearchMode.PREFIX)).isEqualTo("love#1");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void prefixQueriesShareAResultAcrossAccentsAndCase() {
+        songs("Sơn", SearchMode.PREFIX);
+        songs(" son ", SearchMode.PREFIX);
+        assertThat(loads).hasValue(1);
+
+        // Contains is only case-insensitive
+        songs("Sơn", SearchMode.CONTAINS);
+        songs("SƠN", SearchMode.CONTAINS);
+        songs("son", SearchMode.CONTAINS);
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void invalidationDropsOnlyTheWrittenSection() {
+        songs("love", SearchMode.PREFIX);
+        cache.get(Section.ARTISTS, "artists", SearchMode.PREFIX, "love", FIRST_PAGE, () -> "artist" + loads.incrementAndGet());
+
+        cache.invalidate(Section.SONGS);
+
+        assertThat(songs("love", SearchMode.PREFIX)).isEqualTo("love#3");
+        assertThat(cache.get(Section.ARTISTS, "artists", SearchMode.PREFIX, "love", FIRST_PAGE,
+                () -> "artist" + loads.incrementAndGet())).isEqualTo("artist2");
+    }
+
+    @Test
+    void resultLoadedAcrossAWriteIsNotServedAfterIt() {
+        cache.get(Section.SONGS, "songs", SearchMode.PREFIX, "love", FIRST_PAGE, () -> {
+            // A catalog write lands while the query runs
+            cache.invalidate(Section.SONGS);
+            return "stale";
+        });
+
+        assertThat(songs("love", SearchMode.PREFIX)).isEqualTo("love#1");
+    }
+
+    @Test
+    void concurrentMissesRunTheQueryOnce() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() ->
+                cache.get(Section.SONGS, "songs", SearchMode.PREFIX, "love", FIRST_PAGE, () -> {
+                    started.countDown();
+                    await(release);
+                    return "love#" + loads.incrementAndGet();
+                }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> songs("love", SearchMode.PREFIX));
+        // Give the second miss time to find the running load
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("love#1");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("love#1");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        assertThatThrownBy(() -> cache.get(Section.SONGS, "songs", SearchMode.PREFIX, "love", FIRST_PAGE, () -> {
+            throw new IllegalStateException("mongo down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(songs("love", SearchMode.PREFIX)).isEqualTo("love#1");
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedPagesByWeight() {
+        // Room for two entries of three results each
+        ReflectionTestUtils.setField(cache, "maxBytes", 2 * (256 + 3 * 100L));
+
+        page("a");
+        page("b");
+        page("a");
+        page("c");
+        assertThat(loads).hasValue(3);
+
+        page("a");
+        assertThat(loads).hasValue(3);
+        page("b");
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+        ReflectionTestUtils.setField(cache, "enabled", false);
+
+        songs("love", SearchMode.PREFIX);
+        songs("love", SearchMode.PREFIX);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private String songs(String query, SearchMode mode) {
+        return cache.get(Section.SONGS, "songs", mode, query, FIRST_PAGE, () -> "love#" + loads.incrementAndGet());
+    }
+
+    private void page(String query) {
+        cache.get(Section.SONGS, "songs", SearchMode.PREFIX, query, FIRST_PAGE, () -> {
+            loads.incrementAndGet();
+            return List.of(1, 2, 3);
+        });
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
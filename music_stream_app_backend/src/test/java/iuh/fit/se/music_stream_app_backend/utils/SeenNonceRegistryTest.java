@@ -0,0 +1,54 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import iuh.fit.se.music_stream_app_backend.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SeenNonceRegistryTest {
+
+    private final SeenNonceRegistry registry = new SeenNonceRegistry();
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(registry, "windowSeconds", 60L);
+        ReflectionTestUtils.setField(registry, "maxTrackedNonces", 3L);
+    }
+
+    @Test
+    void acceptsANonceOnceUntilItsWindowExpires() {
+        assertThat(registry.markSeen("n1", 100, 10)).isTrue();
+        assertThat(registry.markSeen("n1", 100, 20)).isFalse();
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    @Test
+    void dropsWholeWindowsOnceEveryTokenInThemHasExpired() {
+        ReflectionTestUtils.setField(registry, "maxTrackedNonces", 10L);
+        registry.markSeen("n1", 100, 10);
+        registry.markSeen("n2", 119, 10);
+        registry.markSeen("n3", 130, 10);
+
+        // Still inside the window of n1 and n2
+        assertThat(registry.markSeen("n2", 119, 119)).isFalse();
+        assertThat(registry.size()).isEqualTo(3);
+
+        assertThat(registry.markSeen("n4", 200, 120)).isTrue();
+        assertThat(registry.size()).isEqualTo(2);
+    }
+
+    @Test
+    void refusesNoncesWhenFullUntilAWindowExpires() {
+        registry.markSeen("n1", 100, 10);
+        registry.markSeen("n2", 100, 10);
+        registry.markSeen("n3", 100, 10);
+
+        assertThatThrownBy(() -> registry.markSeen("n4", 100, 10))
+                .isInstanceOf(ServiceUnavailableException.class);
+        assertThat(registry.size()).isEqualTo(3);
+        assertThat(registry.markSeen("n4", 100, 120)).isTrue();
+    }
+}
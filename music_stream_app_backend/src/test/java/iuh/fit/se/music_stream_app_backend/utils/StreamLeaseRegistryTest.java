@@ -0,0 +1,162 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import iuh.fit.se.music_stream_app_backend.exception.TooManyStreamsException;
+import iuh.fit.se.music_stream_app_backend.models.enums.Type;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamLeaseRegistryTest {
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+    private StreamLeaseRegistry registry;
+
+    @BeforeEach
+    void init() {
+        registry = newRegistry();
+    }
+
+    @Test
+    void capsOtherStreamsPerAccountType() {
+        registry.acquire("standard", Type.STANDARD, "song-1");
+        assertThatThrownBy(() -> registry.acquire("standard", Type.STANDARD, "song-2"))
+                .isInstanceOf(TooManyStreamsException.class);
+
+        for (int i = 0; i < 3; i++) {
+            registry.acquire("premium", Type.PREMIUM, "song-" + i);
+        }
+        assertThatThrownBy(() -> registry.acquire("premium", Type.PREMIUM, "song-3"))
+                .isInstanceOf(TooManyStreamsException.class);
+        assertThat(meterRegistry.counter("download.streams.rejected", "type", "premium").count()).isEqualTo(1);
+    }
+
+    @Test
+    void rangeRequestsOfOneSongShareALease() {
+        StreamLeaseRegistry.Lease first = registry.acquire("user", Type.STANDARD, "song-1");
+        StreamLeaseRegistry.Lease second = registry.acquire("user", Type.STANDARD, "song-1");
+
+        assertThat(second).isSameAs(first);
+        registry.release(first);
+        clock.addAndGet(60_000);
+        // The second request is still in flight
+        assertThatThrownBy(() -> registry.acquire("user", Type.STANDARD, "song-2"))
+                .isInstanceOf(TooManyStreamsException.class);
+    }
+
+    @Test
+    void releasedLeaseHoldsItsSlotForTheLinger() {
+        registry.release(registry.acquire("user", Type.STANDARD, "song-1"));
+
+        clock.addAndGet(5_000);
+        assertThatThrownBy(() -> registry.acquire("user", Type.STANDARD, "song-2"))
+                .isInstanceOf(TooManyStreamsException.class);
+        // The player's next Range request re-enters its own lease
+        assertThat(registry.acquire("user", Type.STANDARD, "song-1")).isNotNull();
+    }
+
+    @Test
+    void newSongTakesTheSlotOnceTheLeaseExpires() {
+        registry.release(registry.acquire("user", Type.STANDARD, "song-1"));
+
+        clock.addAndGet(5_001);
+
+        assertThatCode(() -> registry.acquire("user", Type.STANDARD, "song-2")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void detachedReleaseHoldsForTheHeartbeatTimeout() {
+        registry.releaseDetached(registry.acquire("user", Type.STANDARD, "song-1"));
+
+        clock.addAndGet(120_000);
+        assertThatThrownBy(() -> registry.acquire("user", Type.STANDARD, "song-2"))
+                .isInstanceOf(TooManyStreamsException.class);
+
+        clock.addAndGet(1);
+        assertThatCode(() -> registry.acquire("user", Type.STANDARD, "song-2")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void heartbeatExtendsButNeverShortensTheHold() {
+        registry.releaseDetached(registry.acquire("user", Type.STANDARD, "song-1"));
+
+        clock.addAndGet(100_000);
+        registry.heartbeat("user", "song-1");
+        clock.addAndGet(100_000);
+        assertThatThrownBy(() -> registry.acquire("user", Type.STANDARD, "song-2"))
+                .isInstanceOf(TooManyStreamsException.class);
+
+        // A short linger after a later request does not cut the heartbeat's hold
+        registry.release(registry.acquire("user", Type.STANDARD, "song-1"));
+        clock.addAndGet(10_000);
+        assertThatThrownBy(() -> registry.acquire("user", Type.STANDARD, "song-2"))
+                .isInstanceOf(TooManyStreamsException.class);
+    }
+
+    @Test
+    void expireDropsOnlyExpiredLeases() {
+        registry.release(registry.acquire("a", Type.STANDARD, "song-1"));
+        registry.acquire("b", Type.STANDARD, "song-1");
+
+        clock.addAndGet(10_000);
+        registry.expire();
+
+        assertThat(meterRegistry.get("download.streams.active").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void snapshotRestoresHeldLeasesAndTurnsInFlightOnesIntoHolds() {
+        registry.releaseDetached(registry.acquire("held", Type.STANDARD, "song-1"));
+        registry.acquire("playing", Type.STANDARD, "song-1");
+        registry.release(registry.acquire("lingering", Type.STANDARD, "song-1"));
+        registry.snapshot();
+
+        clock.addAndGet(10_000);
+        StreamLeaseRegistry restarted = newRegistry();
+
+        assertThatThrownBy(() -> restarted.acquire("held", Type.STANDARD, "song-2"))
+                .isInstanceOf(TooManyStreamsException.class);
+        assertThatThrownBy(() -> restarted.acquire("playing", Type.STANDARD, "song-2"))
+                .isInstanceOf(TooManyStreamsException.class);
+        assertThatCode(() -> restarted.acquire("lingering", Type.STANDARD, "song-2")).doesNotThrowAnyException();
+
+        clock.addAndGet(120_000);
+        assertThatCode(() -> restarted.acquire("playing", Type.STANDARD, "song-2")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void disabledRegistryHandsOutNoLeases() {
+        StreamLeaseRegistry disabled = new StreamLeaseRegistry(meterRegistry);
+        ReflectionTestUtils.setField(disabled, "enabled", false);
+
+        assertThat(disabled.acquire("user", Type.STANDARD, "song-1")).isNull();
+        assertThat(disabled.acquire("user", Type.STANDARD, "song-2")).isNull();
+        disabled.release(null);
+    }
+
+    private StreamLeaseRegistry newRegistry() {
+        StreamLeaseRegistry created = new StreamLeaseRegistry(meterRegistry);
+        ReflectionTestUtils.setField(created, "enabled", true);
+        ReflectionTestUtils.setField(created, "standardMax", 1);
+        ReflectionTestUtils.setField(created, "premiumMax", 3);
+        ReflectionTestUtils.setField(created, "heartbeatTimeoutSeconds", 120L);
+        ReflectionTestUtils.setField(created, "releaseLingerSeconds", 5L);
+        ReflectionTestUtils.setField(created, "snapshotFile", dir.resolve("leases.snapshot").toString());
+        ReflectionTestUtils.setField(created, "clock", (LongSupplier) clock::get);
+        created.init();
+        return created;
+    }
+}
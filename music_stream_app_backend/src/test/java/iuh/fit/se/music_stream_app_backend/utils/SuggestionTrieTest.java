@@ -0,0 +1,114 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import iuh.fit.se.music_stream_app_backend.utils.SuggestionTrie.Suggestion;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SuggestionTrieTest {
+
+    private final SuggestionTrie trie = new SuggestionTrie(3, 8);
+
+    @Test
+    void findsEntriesByAnyWordStartIgnoringAccents() {
+        trie.put(new Suggestion("artist", "1", "Sơn Tùng M-TP", 10));
+
+        assertThat(ids(trie.suggest("son", 5))).containsExactly("1");
+        assertThat(ids(trie.suggest("Tùng", 5))).containsExactly("1");
+        assertThat(ids(trie.suggest("son tung m", 5))).containsExactly("1");
+        assertThat(ids(trie.suggest("mtp", 5))).isEmpty();
+        assertThat(trie.suggest("  ", 5)).isEmpty();
+    }
+
+    @Test
+    void stopsAtADivergenceInsideAnEdge() {
+        trie.put(new Suggestion("song", "1", "Hello", 1));
+
+        assertThat(ids(trie.suggest("hel", 5))).containsExactly("1");
+        assertThat(ids(trie.suggest("hello", 5))).containsExactly("1");
+        assertThat(trie.suggest("help", 5)).isEmpty();
+        assertThat(trie.suggest("hellos", 5)).isEmpty();
+    }
+
+    @Test
+    void keepsTheTopKByScoreThenText() {
+        trie.put(new Suggestion("song", "1", "Love One", 1));
+        trie.put(new Suggestion("song", "2", "Love Two", 5));
+        trie.put(new Suggestion("song", "3", "Love Three", 3));
+        trie.put(new Suggestion("song", "4", "Love Four", 4));
+        trie.put(new Suggestion("song", "5", "Love Five", 4));
+
+        assertThat(ids(trie.suggest("love", 10))).containsExactly("2", "5", "4");
+        assertThat(ids(trie.suggest("lo", 2))).containsExactly("2", "5");
+        assertThat(ids(trie.suggest("three", 10))).containsExactly("3");
+    }
+
+    @Test
+    void listsAnEntryOnceWhenSeveralWordsMatch() {
+        trie.put(new Suggestion("song", "1", "Love Love Love", 1));
+
+        assertThat(ids(trie.suggest("love", 10))).containsExactly("1");
+    }
+
+    @Test
+    void putReplacesTextAndScore() {
+        trie.put(new Suggestion("song", "1", "Old Name", 1));
+        trie.put(new Suggestion("song", "2", "New Song", 5));
+        trie.put(new Suggestion("song", "1", "New Name", 9));
+
+        assertThat(trie.size()).isEqualTo(2);
+        assertThat(trie.suggest("old", 5)).isEmpty();
+        assertThat(ids(trie.suggest("new", 5))).containsExactly("1", "2");
+    }
+
+    @Test
+    void removePromotesTheNextBestEntry() {
+        SuggestionTrie small = new SuggestionTrie(2, 8);
+        small.put(new Suggestion("song", "1", "Love A", 3));
+        small.put(new Suggestion("song", "2", "Love B", 2));
+        small.put(new Suggestion("song", "3", "Love C", 1));
+
+        small.remove("song", "1");
+
+        assertThat(small.size()).isEqualTo(2);
+        assertThat(ids(small.suggest("love", 5))).containsExactly("2", "3");
+    }
+
+    @Test
+    void removeKeepsSiblingsReachable() {
+        trie.put(new Suggestion("song", "1", "abc", 1));
+        trie.put(new Suggestion("song", "2", "abd", 1));
+
+        trie.remove("song", "2");
+        trie.remove("song", "missing");
+
+        assertThat(ids(trie.suggest("ab", 5))).containsExactly("1");
+        assertThat(ids(trie.suggest("abc", 5))).containsExactly("1");
+        assertThat(trie.suggest("abd", 5)).isEmpty();
+    }
+
+    @Test
+    void entriesAreKeyedByTypeAndId() {
+        trie.put(new Suggestion("song", "1", "Same", 2));
+        trie.put(new Suggestion("album", "1", "Same", 1));
+
+        trie.remove("song", "1");
+
+        assertThat(trie.suggest("same", 5)).extracting(Suggestion::type).containsExactly("album");
+    }
+
+    @Test
+    void indexesAtMostMaxWordStarts() {
+        SuggestionTrie shallow = new SuggestionTrie(3, 2);
+        shallow.put(new Suggestion("song", "1", "one two three", 1));
+
+        assertThat(ids(shallow.suggest("two", 5))).containsExactly("1");
+        assertThat(shallow.suggest("three", 5)).isEmpty();
+    }
+
+    private static List<String> ids(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::id).toList();
+    }
+}
@@ -0,0 +1,55 @@
+package iuh.fit.se.music_stream_app_backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    // One byte per second keeps refills far below the time a test takes to run
+    private final TokenBucket bucket = new TokenBucket(1, 10);
+
+    @Test
+    void startsWithAFullBurst() {
+        assertThat(bucket.tryReserve(10)).isTrue();
+        assertThat(bucket.tryReserve(1)).isFalse();
+    }
+
+    @Test
+    void tryReserveTakesNothingWhenRefused() {
+        assertThat(bucket.tryReserve(11)).isFalse();
+        assertThat(bucket.tryReserve(6)).isTrue();
+        assertThat(bucket.tryReserve(5)).isFalse();
+        assertThat(bucket.tryReserve(4)).isTrue();
+    }
+
+    @Test
+    void reserveGoesIntoDebtAndReturnsTheWait() {
+        assertThat(bucket.reserve(10)).isZero();
+
+        long wait = bucket.reserve(5);
+
+        assertThat(wait).isBetween(TimeUnit.SECONDS.toNanos(4), TimeUnit.SECONDS.toNanos(5));
+        assertThat(bucket.tryReserve(1)).isFalse();
+    }
+
+    @Test
+    void reservationsQueueBehindEachOther() {
+        bucket.reserve(10);
+
+        long first = bucket.reserve(2);
+        long second = bucket.reserve(2);
+
+        assertThat(second - first).isBetween(TimeUnit.SECONDS.toNanos(1), TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    void unlimitedBucketNeverWaits() {
+        TokenBucket unlimited = new TokenBucket(0, 0);
+
+        assertThat(unlimited.reserve(Long.MAX_VALUE / 2)).isZero();
+        assertThat(unlimited.tryReserve(Long.MAX_VALUE / 2)).isTrue();
+    }
+}